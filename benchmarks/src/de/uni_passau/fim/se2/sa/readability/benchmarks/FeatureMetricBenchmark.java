@@ -0,0 +1,55 @@
+package de.uni_passau.fim.se2.sa.readability.benchmarks;
+
+import de.uni_passau.fim.se2.sa.readability.features.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FeatureMetric#computeMetric(String)} of each feature metric, including parsing the snippet.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FeatureMetricBenchmark {
+
+    public enum Metric {
+        LINES, TOKEN_ENTROPY, H_VOLUME, CYCLOMATIC_COMPLEXITY;
+
+        FeatureMetric create() {
+            return switch (this) {
+                case LINES -> new NumberLinesFeature();
+                case TOKEN_ENTROPY -> new TokenEntropyFeature();
+                case H_VOLUME -> new HalsteadVolumeFeature();
+                case CYCLOMATIC_COMPLEXITY -> new CyclomaticComplexityFeature();
+            };
+        }
+    }
+
+    @Param
+    public Metric metric;
+
+    @Param
+    public Snippets input;
+
+    private FeatureMetric featureMetric;
+    private List<String> snippets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        featureMetric = metric.create();
+        snippets = input.load();
+    }
+
+    @Benchmark
+    public double computeMetric() {
+        String snippet = snippets.get(next);
+        next = (next + 1) % snippets.size();
+        return featureMetric.computeMetric(snippet);
+    }
+}
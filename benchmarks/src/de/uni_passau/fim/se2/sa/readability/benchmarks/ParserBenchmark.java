@@ -0,0 +1,48 @@
+package de.uni_passau.fim.se2.sa.readability.benchmarks;
+
+import com.github.javaparser.*;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import de.uni_passau.fim.se2.sa.readability.utils.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Parser#parseJavaSnippet(String)}, which reuses a lean parser per thread, against a fresh
+ * {@link JavaParser} with the default configuration per call.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    @Param
+    public Snippets input;
+
+    private List<String> snippets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        snippets = input.load();
+    }
+
+    @Benchmark
+    public BodyDeclaration<?> parseJavaSnippet() throws ParseException {
+        String snippet = snippets.get(next);
+        next = (next + 1) % snippets.size();
+        return Parser.parseJavaSnippet(snippet);
+    }
+
+    @Benchmark
+    public BodyDeclaration<?> parseWithDefaultParser() throws ParseException {
+        String snippet = snippets.get(next);
+        next = (next + 1) % snippets.size();
+        ParseResult<BodyDeclaration<?>> parseResult = new JavaParser().parse(ParseStart.CLASS_BODY, new StringProvider(snippet));
+        return parseResult.getResult().orElseThrow(() -> new ParseException("Could not parse " + snippet));
+    }
+}
@@ -0,0 +1,50 @@
+package de.uni_passau.fim.se2.sa.readability.benchmarks;
+
+import de.uni_passau.fim.se2.sa.readability.utils.Preprocess;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the helpers of {@link Preprocess} on the files of the resources directory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PreprocessBenchmark {
+
+    private File truthFile;
+    private List<String> fileNames;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path resources = Snippets.resourcesDirectory();
+        truthFile = resources.resolve("truth_scores.csv").toFile();
+        try (Stream<Path> files = Files.list(resources.resolve("snippets"))) {
+            fileNames = files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Double> loadTruthMap() {
+        return Preprocess.loadTruthMap(truthFile);
+    }
+
+    @Benchmark
+    public int extractNumber() {
+        String fileName = fileNames.get(next);
+        next = (next + 1) % fileNames.size();
+        return Preprocess.extractNumber(fileName);
+    }
+}
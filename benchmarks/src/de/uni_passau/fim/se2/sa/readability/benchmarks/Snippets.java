@@ -0,0 +1,103 @@
+package de.uni_passau.fim.se2.sa.readability.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The inputs of the benchmarks: the snippets of the resources/snippets corpus and synthetic snippets of increasing size.
+ * <p>
+ * The corpus directory is taken from the {@code readability.resources} system property and defaults to the resources
+ * directory of the repository, when the benchmarks are run from the repository root or the benchmarks directory.
+ */
+public enum Snippets {
+    CORPUS,
+    SMALL,      // a single short method
+    MEDIUM,     // a method with a few dozen statements
+    HUGE;       // a method with thousands of statements
+
+    private static final String RESOURCES_PROPERTY = "readability.resources";
+
+    /**
+     * Returns the code snippets of this input.
+     *
+     * @return the code snippets, never empty.
+     */
+    List<String> load() {
+        return switch (this) {
+            case CORPUS -> loadCorpus();
+            case SMALL -> List.of(synthesize(1));
+            case MEDIUM -> List.of(synthesize(10));
+            case HUGE -> List.of(synthesize(1_000));
+        };
+    }
+
+    static Path resourcesDirectory() {
+        String property = System.getProperty(RESOURCES_PROPERTY);
+        if (property != null) {
+            return Paths.get(property);
+        }
+        Path local = Paths.get("resources");
+        return Files.isDirectory(local) ? local : Paths.get("..", "resources");
+    }
+
+    private static List<String> loadCorpus() {
+        Path snippets = resourcesDirectory().resolve("snippets");
+        try (Stream<Path> files = Files.list(snippets)) {
+            List<String> corpus = files
+                    .filter(path -> path.getFileName().toString().endsWith(".jsnp"))
+                    .sorted()
+                    .map(Snippets::read)
+                    .toList();
+            if (corpus.isEmpty()) {
+                throw new IllegalStateException("No snippets found in " + snippets.toAbsolutePath());
+            }
+            return corpus;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Set -D" + RESOURCES_PROPERTY + " to the resources directory", e);
+        }
+    }
+
+    private static String read(Path path) {
+        try {
+            return Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates a method whose body repeats a block of branches, loops, operators and literals.
+     *
+     * @param blocks the number of repeated blocks.
+     * @return the generated snippet.
+     */
+    static String synthesize(int blocks) {
+        StringBuilder code = new StringBuilder();
+        code.append("/**\n * Generated benchmark input.\n */\n");
+        code.append("public int generated(int[] values, String name) {\n");
+        code.append("    int total = 0;\n");
+        for (int i = 0; i < blocks; i++) {
+            code.append("    // block ").append(i).append('\n');
+            code.append("    for (int i").append(i).append(" = 0; i").append(i).append(" < values.length; i")
+                    .append(i).append("++) {\n");
+            code.append("        if (values[i").append(i).append("] > ").append(i)
+                    .append(" && name != null || total == 0) {\n");
+            code.append("            total += values[i").append(i).append("] * ").append(i % 7 + 1).append(";\n");
+            code.append("        } else {\n");
+            code.append("            total = total > 100 ? total - 1 : -total;\n");
+            code.append("        }\n");
+            code.append("    }\n");
+            code.append("    String s").append(i).append(" = \"value").append(i).append("\" + name;\n");
+            code.append("    total += s").append(i).append(".length() + 'c' + 1.5f;\n");
+        }
+        code.append("    return total;\n");
+        code.append("}\n");
+        return code.toString();
+    }
+}
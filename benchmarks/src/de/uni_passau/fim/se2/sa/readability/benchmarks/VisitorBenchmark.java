@@ -0,0 +1,68 @@
+package de.uni_passau.fim.se2.sa.readability.benchmarks;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import de.uni_passau.fim.se2.sa.readability.utils.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares collecting the operators, operands and cyclomatic complexity of an already parsed snippet with the three
+ * separate visitors, each of which traverses the snippet with a {@link MetricsVisitor} of its own, against a single
+ * traversal of {@link MetricsVisitor}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VisitorBenchmark {
+
+    @Param
+    public Snippets input;
+
+    private List<BodyDeclaration<?>> declarations;
+    private int next;
+
+    @Setup
+    public void setUp() throws ParseException {
+        declarations = new ArrayList<>();
+        for (String snippet : input.load()) {
+            declarations.add(Parser.parseJavaSnippet(snippet));
+        }
+    }
+
+    private BodyDeclaration<?> nextDeclaration() {
+        BodyDeclaration<?> declaration = declarations.get(next);
+        next = (next + 1) % declarations.size();
+        return declaration;
+    }
+
+    @Benchmark
+    public void separateVisitors(Blackhole blackhole) {
+        BodyDeclaration<?> declaration = nextDeclaration();
+        OperatorVisitor operators = new OperatorVisitor();
+        declaration.accept(operators, null);
+        OperandVisitor operands = new OperandVisitor();
+        declaration.accept(operands, null);
+        CyclomaticComplexityVisitor complexity = new CyclomaticComplexityVisitor();
+        declaration.accept(complexity, null);
+        blackhole.consume(operators.getOperatorsPerMethod());
+        blackhole.consume(operands.getOperandsPerMethod());
+        blackhole.consume(complexity.getComplexity());
+    }
+
+    @Benchmark
+    public void combinedVisitor(Blackhole blackhole) {
+        MetricsVisitor metrics = new MetricsVisitor();
+        nextDeclaration().accept(metrics, null);
+        blackhole.consume(metrics.getOperatorsPerMethod());
+        blackhole.consume(metrics.getOperandsPerMethod());
+        blackhole.consume(metrics.getComplexity());
+    }
+}
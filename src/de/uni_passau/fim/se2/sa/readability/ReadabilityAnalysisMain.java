@@ -1,13 +1,22 @@
 package de.uni_passau.fim.se2.sa.readability;
 
 import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandClassify;
+import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandConvert;
+import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandMerge;
+import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandPack;
+import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandPipeline;
+import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandPredict;
 import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandPreprocess;
+import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandServe;
+import de.uni_passau.fim.se2.sa.readability.subcommands.SubcommandTrain;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
 import java.util.concurrent.Callable;
 
-@Command(name = "subcommands", subcommands = {SubcommandPreprocess.class, SubcommandClassify.class})
+@Command(name = "subcommands", subcommands = {SubcommandPreprocess.class, SubcommandClassify.class,
+        SubcommandTrain.class, SubcommandPredict.class, SubcommandServe.class,
+        SubcommandPack.class, SubcommandConvert.class, SubcommandPipeline.class, SubcommandMerge.class})
 public class ReadabilityAnalysisMain implements Callable<Integer> {
 
 
@@ -18,7 +27,7 @@ public static void main(String[] args) {
 
     @Override
     public Integer call() {
-        System.out.println("Subcommand needed: 'preprocess' or 'classify'");
+        System.out.println("Subcommand needed: 'preprocess', 'classify', 'train', 'predict', 'serve', 'pack', 'convert', 'pipeline' or 'merge'");
         return 0;
     }
 
@@ -0,0 +1,158 @@
+package de.uni_passau.fim.se2.sa.readability.api;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.utils.OrderedParallelIterator;
+import de.uni_passau.fim.se2.sa.readability.utils.Preprocess;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel.Prediction;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetContext;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Measures snippets and predicts their readability without going through the file system, for embedding the analysis
+ * into other applications.
+ * <p>
+ * The results of {@link #analyze(Stream)} are computed lazily: at most {@code window} snippets are taken from the source
+ * ahead of the consumer, and they are measured on {@code threads} worker threads. The results are returned in the order of
+ * the source. The returned stream owns its worker threads, so it should be closed, e.g. with try-with-resources, if it is
+ * not consumed completely.
+ * <pre>{@code
+ * ReadabilityAnalyzer analyzer = new ReadabilityAnalyzer(ReadabilityModel.load(modelFile), 4);
+ * try (Stream<SnippetResult> results = analyzer.analyze(snippets)) {
+ *     results.forEach(result -> ...);
+ * }
+ * }</pre>
+ * An analyzer is immutable and can be shared between threads. The snippets are measured concurrently, while the model
+ * classifies them one at a time, see {@link ReadabilityModel}.
+ */
+public class ReadabilityAnalyzer {
+
+    private final List<FeatureMetric> featureMetrics;
+    private final ReadabilityModel model;
+    private final boolean tokenStreamOnly;
+    private final int threads;
+    private final int window;
+
+    /**
+     * Creates an analyzer that only computes the given feature metrics.
+     *
+     * @param featureMetrics the metrics to compute.
+     * @param threads        the number of worker threads per analyzed stream.
+     */
+    public ReadabilityAnalyzer(List<FeatureMetric> featureMetrics, int threads) {
+        this(featureMetrics, null, threads, threads * 4);
+    }
+
+    /**
+     * Creates an analyzer that computes the feature metrics of the given model and predicts the readability.
+     *
+     * @param model   the trained model.
+     * @param threads the number of worker threads per analyzed stream.
+     */
+    public ReadabilityAnalyzer(ReadabilityModel model, int threads) {
+        this(model.getFeatureMetrics(), model, threads, threads * 4);
+    }
+
+    /**
+     * @param featureMetrics the metrics to compute, which must be the ones of the model if a model is given.
+     * @param model          the trained model or {@code null} if no predictions are made.
+     * @param threads        the number of worker threads per analyzed stream.
+     * @param window         the maximum number of snippets taken from the source ahead of the consumer.
+     */
+    public ReadabilityAnalyzer(List<FeatureMetric> featureMetrics, ReadabilityModel model, int threads, int window) {
+        if (threads < 1 || window < 1) {
+            throw new IllegalArgumentException("The number of threads and the window size must be positive.");
+        }
+        if (model != null && !identifiers(featureMetrics).equals(model.getMetricIdentifiers())) {
+            throw new IllegalArgumentException("The feature metrics " + identifiers(featureMetrics)
+                    + " do not match the features " + model.getMetricIdentifiers() + " of the model.");
+        }
+        this.featureMetrics = List.copyOf(featureMetrics);
+        this.model = model;
+        this.tokenStreamOnly = Preprocess.isTokenStreamSufficient(featureMetrics);
+        this.threads = threads;
+        this.window = window;
+    }
+
+    /**
+     * Returns the metrics computed by this analyzer, in the order of the feature vectors.
+     *
+     * @return the feature metrics.
+     */
+    public List<FeatureMetric> getFeatureMetrics() {
+        return featureMetrics;
+    }
+
+    /**
+     * Analyzes a single snippet on the calling thread.
+     *
+     * @param snippet the snippet to analyze.
+     * @return the result of the snippet.
+     */
+    public SnippetResult analyze(Snippet snippet) {
+        try {
+            SnippetContext context = new SnippetContext(snippet.code(), tokenStreamOnly);
+            double[] features = new double[featureMetrics.size()];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = featureMetrics.get(i).computeMetric(context);
+            }
+            Prediction prediction = model == null ? null : model.predict(features);
+            return SnippetResult.success(snippet.id(), features, prediction);
+        } catch (Exception e) {
+            return SnippetResult.failure(snippet.id(), e);
+        }
+    }
+
+    /**
+     * Lazily analyzes the given snippets. Closing the returned stream stops the workers and closes the source stream.
+     *
+     * @param snippets the snippets to analyze.
+     * @return the results, in the order of the snippets.
+     */
+    public Stream<SnippetResult> analyze(Stream<Snippet> snippets) {
+        return analyze(snippets.iterator()).onClose(snippets::close);
+    }
+
+    /**
+     * Lazily analyzes the given snippets. Closing the returned stream stops the workers.
+     *
+     * @param snippets the snippets to analyze.
+     * @return the results, in the order of the snippets.
+     */
+    public Stream<SnippetResult> analyze(Iterable<Snippet> snippets) {
+        return analyze(snippets.iterator());
+    }
+
+    private Stream<SnippetResult> analyze(Iterator<Snippet> snippets) {
+        OrderedParallelIterator<Snippet, SnippetResult> results =
+                new OrderedParallelIterator<>(snippets, this::analyze, threads, window);
+        Iterator<SnippetResult> closingResults = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                if (results.hasNext()) {
+                    return true;
+                }
+                results.close();
+                return false;
+            }
+
+            @Override
+            public SnippetResult next() {
+                return results.next();
+            }
+        };
+        Spliterator<SnippetResult> spliterator = Spliterators.spliteratorUnknownSize(closingResults,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(results::close);
+    }
+
+    private static List<String> identifiers(List<FeatureMetric> featureMetrics) {
+        return featureMetrics.stream().map(FeatureMetric::getIdentifier).toList();
+    }
+}
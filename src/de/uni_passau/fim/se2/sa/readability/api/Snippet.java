@@ -0,0 +1,17 @@
+package de.uni_passau.fim.se2.sa.readability.api;
+
+import java.util.Objects;
+
+/**
+ * A code snippet to analyze.
+ *
+ * @param id   an identifier chosen by the caller, which is passed on to the result of the snippet.
+ * @param code the code of the snippet.
+ */
+public record Snippet(String id, String code) {
+
+    public Snippet {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(code, "code");
+    }
+}
@@ -0,0 +1,81 @@
+package de.uni_passau.fim.se2.sa.readability.api;
+
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel.Prediction;
+
+import java.util.Optional;
+
+/**
+ * The result of analyzing a single {@link Snippet}: either its feature vector together with an optional prediction, or
+ * the failure that prevented the snippet from being measured.
+ */
+public final class SnippetResult {
+
+    private final String id;
+    private final double[] features;
+    private final Prediction prediction;
+    private final Exception failure;
+
+    private SnippetResult(String id, double[] features, Prediction prediction, Exception failure) {
+        this.id = id;
+        this.features = features;
+        this.prediction = prediction;
+        this.failure = failure;
+    }
+
+    static SnippetResult success(String id, double[] features, Prediction prediction) {
+        return new SnippetResult(id, features, prediction, null);
+    }
+
+    static SnippetResult failure(String id, Exception failure) {
+        return new SnippetResult(id, null, null, failure);
+    }
+
+    /**
+     * Returns the identifier of the analyzed snippet.
+     *
+     * @return the identifier given by the caller.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Checks whether all feature metrics could be computed on the snippet.
+     *
+     * @return {@code true} if the snippet was measured, {@code false} if it failed.
+     */
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    /**
+     * Returns the values of the feature metrics, in the order of {@link ReadabilityAnalyzer#getFeatureMetrics()}.
+     *
+     * @return a copy of the feature vector.
+     * @throws IllegalStateException if the snippet could not be measured.
+     */
+    public double[] getFeatures() {
+        if (failure != null) {
+            throw new IllegalStateException("The snippet " + id + " could not be measured.", failure);
+        }
+        return features.clone();
+    }
+
+    /**
+     * Returns the predicted readability of the snippet.
+     *
+     * @return the prediction or an empty optional if the analyzer has no model or the snippet failed.
+     */
+    public Optional<Prediction> getPrediction() {
+        return Optional.ofNullable(prediction);
+    }
+
+    /**
+     * Returns the reason why the snippet could not be measured.
+     *
+     * @return the failure or an empty optional if the snippet was measured.
+     */
+    public Optional<Exception> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+}
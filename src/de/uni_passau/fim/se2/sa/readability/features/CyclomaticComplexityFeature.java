@@ -2,9 +2,7 @@
 
 
 import com.github.javaparser.ParseException;
-import com.github.javaparser.ast.body.BodyDeclaration;
-import de.uni_passau.fim.se2.sa.readability.utils.CyclomaticComplexityVisitor;
-import de.uni_passau.fim.se2.sa.readability.utils.Parser;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetContext;
 
 public class CyclomaticComplexityFeature extends FeatureMetric {
 
@@ -15,19 +13,30 @@ public class CyclomaticComplexityFeature extends FeatureMetric {
      */
     @Override
     public double computeMetric(String codeSnippet) {
-        try {
-            BodyDeclaration<?> bodyDecl = Parser.parseJavaSnippet(codeSnippet);
-            CyclomaticComplexityVisitor visitor = new CyclomaticComplexityVisitor();
-            bodyDecl.accept(visitor, null);
-            return visitor.getComplexity();
+        return computeMetric(new SnippetContext(codeSnippet));
+    }
 
+    @Override
+    public double computeMetric(SnippetContext context) {
+        try {
+            return context.getMetricsVisitor().getComplexity();
         } catch (ParseException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public MetricInput getRequiredInput() {
+        return MetricInput.AST;
+    }
+
+    @Override
+    public int getCost() {
+        return 4;
+    }
+
     @Override
     public String getIdentifier() {
         return "CyclomaticComplexity";
     }
-}
\ No newline at end of file
+}
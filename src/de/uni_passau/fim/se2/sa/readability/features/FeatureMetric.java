@@ -1,7 +1,6 @@
 package de.uni_passau.fim.se2.sa.readability.features;
 
-import com.github.javaparser.*;
-import com.github.javaparser.ast.body.BodyDeclaration;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetContext;
 
 public abstract class FeatureMetric {
 
@@ -12,10 +11,53 @@ public abstract class FeatureMetric {
      */
     public abstract double computeMetric(String codeSnippet);
 
+    /**
+     * Computes the metric of the respective feature on an already prepared snippet.
+     * Metrics that work on the parsed snippet override this method to reuse the shared AST of the context instead of
+     * parsing the snippet again. By default, the metric is computed on the raw text of the snippet.
+     *
+     * @param context the analysis context of the snippet.
+     * @return feature metric value.
+     */
+    public double computeMetric(SnippetContext context) {
+        return computeMetric(context.getCodeSnippet());
+    }
+
     /**
      * Returns a unique identifier for the concrete FeatureMetric.
      *
      * @return unique FeatureMetric identifier.
      */
     public abstract String getIdentifier();
+
+    /**
+     * Returns the representation of a snippet this metric works on, such that snippets are only tokenized or parsed
+     * if a selected metric needs it, see {@link MetricPlan}. A metric that declares less than it uses still works, but
+     * may be computed on snippets that cannot be parsed. By default, a metric is assumed to need the AST.
+     *
+     * @return the required input.
+     */
+    public MetricInput getRequiredInput() {
+        return MetricInput.AST;
+    }
+
+    /**
+     * Returns the rough cost of computing this metric on its prepared input, where a single pass over the text of a
+     * snippet costs about 1. The cost of preparing the input is accounted by {@link MetricInput#getPreparationCost()}.
+     *
+     * @return the cost of this metric.
+     */
+    public int getCost() {
+        return 1;
+    }
+
+    /**
+     * Returns the version of the computation of this FeatureMetric. Persisted feature values are only reused if they
+     * were computed by the same version, so the version has to be increased whenever the computed values change.
+     *
+     * @return the version of the FeatureMetric.
+     */
+    public int getVersion() {
+        return 1;
+    }
 }
@@ -0,0 +1,101 @@
+package de.uni_passau.fim.se2.sa.readability.features;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Looks up the available {@link FeatureMetric} implementations by their identifiers, e.g. to restore the metrics that
+ * produced the columns of a feature csv.
+ * <p>
+ * Besides the built-in metrics, metrics of other libraries on the class path take part if they are registered as a
+ * service, i.e. listed in a {@code META-INF/services/de.uni_passau.fim.se2.sa.readability.features.FeatureMetric} file.
+ * A registered metric needs a public constructor without parameters and an identifier of its own.
+ */
+public final class FeatureMetrics {
+
+    /**
+     * The names of the built-in metrics on the command line.
+     */
+    private static final Map<String, Supplier<FeatureMetric>> NAMES = Map.of(
+            "lines", NumberLinesFeature::new,
+            "h_volume", HalsteadVolumeFeature::new,
+            "token_entropy", TokenEntropyFeature::new,
+            "cyclomatic_complexity", CyclomaticComplexityFeature::new
+    );
+
+    private FeatureMetrics() {
+    }
+
+    /**
+     * Returns a new instance of each available feature metric, the built-in metrics first.
+     *
+     * @return all available feature metrics.
+     */
+    public static List<FeatureMetric> all() {
+        return all(ServiceLoader.load(FeatureMetric.class));
+    }
+
+    /**
+     * Returns the built-in metrics and the metrics registered with the given loader. A registered metric with the
+     * identifier of a metric that comes before it is ignored.
+     */
+    static List<FeatureMetric> all(ServiceLoader<FeatureMetric> loader) {
+        List<FeatureMetric> metrics = new ArrayList<>(List.of(
+                new NumberLinesFeature(),
+                new HalsteadVolumeFeature(),
+                new TokenEntropyFeature(),
+                new CyclomaticComplexityFeature()
+        ));
+        Set<String> identifiers = new HashSet<>();
+        metrics.forEach(metric -> identifiers.add(metric.getIdentifier()));
+        for (FeatureMetric metric : loader) {
+            if (identifiers.add(metric.getIdentifier())) {
+                metrics.add(metric);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the feature metric with the given identifier.
+     *
+     * @param identifier the identifier as returned by {@link FeatureMetric#getIdentifier()}.
+     * @return the feature metric with the given identifier.
+     * @throws IllegalArgumentException if no feature metric has the given identifier.
+     */
+    public static FeatureMetric forIdentifier(String identifier) {
+        for (FeatureMetric metric : all()) {
+            if (metric.getIdentifier().equals(identifier)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("There is no feature metric with the identifier '" + identifier + "'.");
+    }
+
+    /**
+     * Returns the feature metric selected by a name on the command line: the name of a built-in metric, e.g.
+     * {@code LINES}, or the identifier of any available metric, both ignoring case.
+     *
+     * @param name the name of the metric.
+     * @return a new instance of the metric.
+     * @throws IllegalArgumentException if no feature metric has the given name.
+     */
+    public static FeatureMetric forName(String name) {
+        Supplier<FeatureMetric> builtIn = NAMES.get(name.toLowerCase(Locale.ROOT));
+        if (builtIn != null) {
+            return builtIn.get();
+        }
+        for (FeatureMetric metric : all()) {
+            if (metric.getIdentifier().equalsIgnoreCase(name)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("The metric '" + name + "' is not a valid option.");
+    }
+}
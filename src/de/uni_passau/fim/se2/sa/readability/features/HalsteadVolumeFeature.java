@@ -1,12 +1,8 @@
 package de.uni_passau.fim.se2.sa.readability.features;
 
 import com.github.javaparser.ParseException;
-import com.github.javaparser.ast.body.BodyDeclaration;
-import de.uni_passau.fim.se2.sa.readability.utils.OperandVisitor;
-import de.uni_passau.fim.se2.sa.readability.utils.OperatorVisitor;
-import de.uni_passau.fim.se2.sa.readability.utils.Parser;
-
-import java.util.Map;
+import de.uni_passau.fim.se2.sa.readability.utils.MetricsVisitor;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetContext;
 
 public class HalsteadVolumeFeature extends FeatureMetric {
 
@@ -17,23 +13,19 @@ public class HalsteadVolumeFeature extends FeatureMetric {
      */
     @Override
     public double computeMetric(String codeSnippet) {
-        try {
-            BodyDeclaration<?> bodyDecl = Parser.parseJavaSnippet(codeSnippet);
-            OperandVisitor operandVisitor = new OperandVisitor();
-            OperatorVisitor operatorVisitor = new OperatorVisitor();
-
-
-            bodyDecl.accept(operatorVisitor, null);
-            Map<OperatorVisitor.OperatorType, Integer> operatorsMap = operatorVisitor.getOperatorsPerMethod();
+        return computeMetric(new SnippetContext(codeSnippet));
+    }
 
-            int N1 = operatorsMap.values().stream().mapToInt(Integer::intValue).sum();
-            int n1 = operatorsMap.size();
+    @Override
+    public double computeMetric(SnippetContext context) {
+        try {
+            MetricsVisitor visitor = context.getMetricsVisitor();
 
-            bodyDecl.accept(operandVisitor, null);
-            Map<String, Integer> operandsMap = operandVisitor.getOperandsPerMethod();
+            int N1 = visitor.getTotalOperators();
+            int n1 = visitor.getDistinctOperators();
 
-            int N2 = operandsMap.values().stream().mapToInt(Integer::intValue).sum();
-            int n2 = operandsMap.size();
+            int N2 = visitor.getTotalOperands();
+            int n2 = visitor.getDistinctOperands();
 
             int N = N1 + N2;
             int n = n1 + n2;
@@ -44,6 +36,16 @@ public double computeMetric(String codeSnippet) {
         }
     }
 
+    @Override
+    public MetricInput getRequiredInput() {
+        return MetricInput.AST;
+    }
+
+    @Override
+    public int getCost() {
+        return 4;
+    }
+
     @Override
     public String getIdentifier() {
         return "HalsteadVolume";
@@ -0,0 +1,38 @@
+package de.uni_passau.fim.se2.sa.readability.features;
+
+/**
+ * The representation of a snippet a {@link FeatureMetric} works on. The inputs are ordered by the cost of preparing
+ * them, and each input can be prepared without the more expensive ones.
+ */
+public enum MetricInput {
+
+    /**
+     * The raw text of the snippet, which is available without any preparation.
+     */
+    TEXT(0),
+
+    /**
+     * The tokens of the snippet including whitespaces and comments, which only require the lexer.
+     */
+    TOKENS(4),
+
+    /**
+     * The AST of the snippet, which requires the parser. The tokens are available as well.
+     */
+    AST(20);
+
+    private final int preparationCost;
+
+    MetricInput(int preparationCost) {
+        this.preparationCost = preparationCost;
+    }
+
+    /**
+     * Returns the rough cost of preparing this input for a snippet, in the unit of {@link FeatureMetric#getCost()}.
+     *
+     * @return the preparation cost.
+     */
+    public int getPreparationCost() {
+        return preparationCost;
+    }
+}
@@ -0,0 +1,87 @@
+package de.uni_passau.fim.se2.sa.readability.features;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plans the stages needed to compute a set of feature metrics: the snippets are only tokenized or parsed if a metric
+ * declares that it needs the tokens or the AST, see {@link FeatureMetric#getRequiredInput()}.
+ */
+public final class MetricPlan {
+
+    private final MetricInput requiredInput;
+    private final int estimatedCost;
+
+    private MetricPlan(MetricInput requiredInput, int estimatedCost) {
+        this.requiredInput = requiredInput;
+        this.estimatedCost = estimatedCost;
+    }
+
+    /**
+     * Plans the cheapest stages for the given metrics.
+     *
+     * @param featureMetrics the metrics to compute.
+     * @return the plan.
+     */
+    public static MetricPlan of(List<FeatureMetric> featureMetrics) {
+        MetricInput requiredInput = MetricInput.TEXT;
+        int metricCost = 0;
+        for (FeatureMetric metric : featureMetrics) {
+            if (metric.getRequiredInput().compareTo(requiredInput) > 0) {
+                requiredInput = metric.getRequiredInput();
+            }
+            metricCost += metric.getCost();
+        }
+        return new MetricPlan(requiredInput, requiredInput.getPreparationCost() + metricCost);
+    }
+
+    /**
+     * Returns the most expensive input any of the metrics needs, which is prepared once per snippet and shared.
+     *
+     * @return the required input.
+     */
+    public MetricInput getRequiredInput() {
+        return requiredInput;
+    }
+
+    /**
+     * Checks whether the snippets have to be parsed. Otherwise, snippets that are not syntactically valid can be
+     * measured as well.
+     *
+     * @return {@code true} if a metric needs the AST.
+     */
+    public boolean needsParser() {
+        return requiredInput == MetricInput.AST;
+    }
+
+    /**
+     * Returns the rough cost of preparing and measuring a snippet, in the unit of {@link FeatureMetric#getCost()}.
+     *
+     * @return the estimated cost per snippet.
+     */
+    public int getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    /**
+     * Returns the stages run for each snippet.
+     *
+     * @return the names of the stages, e.g. {@code [read, lex]}.
+     */
+    public List<String> getStages() {
+        List<String> stages = new ArrayList<>();
+        stages.add("read");
+        switch (requiredInput) {
+            case TOKENS -> stages.add("lex");
+            case AST -> stages.add("parse");
+            default -> {
+            }
+        }
+        return stages;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(", ", getStages()) + " (estimated cost " + estimatedCost + " per snippet)";
+    }
+}
@@ -14,9 +14,38 @@ public double computeMetric(String codeSnippet) {
          * This line generated by (LLM).
          *
          * Reference implementation: regexNewLine.md
+         *
+         * The lines are counted like codeSnippet.split("\\r?\\n").length, but without allocating the lines:
+         * empty lines at the end of the snippet are not counted and a snippet without any line break is one line.
          */
-        String[] lines = codeSnippet.split("\\r?\\n");
-        return lines.length;
+        int lineBreaks = 0;
+        for (int i = 0; i < codeSnippet.length(); i++) {
+            if (codeSnippet.charAt(i) == '\n') {
+                lineBreaks++;
+            }
+        }
+        if (lineBreaks == 0) {
+            return 1;
+        }
+
+        int end = codeSnippet.length();
+        int trailingEmptyLines = 0;
+        while (end > 0 && codeSnippet.charAt(end - 1) == '\n') {
+            end--;
+            if (end > 0 && codeSnippet.charAt(end - 1) == '\r') {
+                end--;
+            }
+            trailingEmptyLines++;
+        }
+        if (end == 0) {
+            return 0;
+        }
+        return lineBreaks + 1 - trailingEmptyLines;
+    }
+
+    @Override
+    public MetricInput getRequiredInput() {
+        return MetricInput.TEXT;
     }
 
     @Override
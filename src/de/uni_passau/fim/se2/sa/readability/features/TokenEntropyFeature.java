@@ -1,13 +1,8 @@
 package de.uni_passau.fim.se2.sa.readability.features;
 
 import com.github.javaparser.ParseException;
-import com.github.javaparser.TokenRange;
-import com.github.javaparser.ast.body.BodyDeclaration;
-import de.uni_passau.fim.se2.sa.readability.utils.Parser;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetContext;
+import de.uni_passau.fim.se2.sa.readability.utils.TokenCounter;
 
 public class TokenEntropyFeature extends FeatureMetric {
 
@@ -19,19 +14,19 @@ public class TokenEntropyFeature extends FeatureMetric {
      */
     @Override
     public double computeMetric(String codeSnippet) {
+        return computeMetric(new SnippetContext(codeSnippet));
+    }
+
+    @Override
+    public double computeMetric(SnippetContext context) {
         try {
-            Map<String, Integer> freq = new HashMap<>();
-            BodyDeclaration<?> parser = Parser.parseJavaSnippet(codeSnippet);
-            Optional<TokenRange> tokenRange = parser.getTokenRange();
-            tokenRange.get().forEach(token -> {
-                String tokenText = token.getText();
-                freq.put(tokenText, freq.getOrDefault(tokenText, 0) + 1);
-            });
-
-            int totalTokens = freq.values().stream().mapToInt(Integer::intValue).sum();
+            TokenCounter freq = new TokenCounter();
+            context.forEachToken(freq::increment);
+
+            int totalTokens = freq.total();
             double entropy = 0.0;
 
-            for (int count : freq.values()) {
+            for (int count : freq.counts()) {
                 double p = (double) count / totalTokens;
                 entropy += p * (Math.log(p) / Math.log(2));
             }
@@ -42,6 +37,16 @@ public double computeMetric(String codeSnippet) {
         }
     }
 
+    @Override
+    public MetricInput getRequiredInput() {
+        return MetricInput.TOKENS;
+    }
+
+    @Override
+    public int getCost() {
+        return 2;
+    }
+
     @Override
     public String getIdentifier() {
         return "TokenEntropy";
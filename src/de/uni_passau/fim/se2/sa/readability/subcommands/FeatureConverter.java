@@ -0,0 +1,16 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetrics;
+import picocli.CommandLine.ITypeConverter;
+
+/**
+ * Converts supplied cli parameters to the respective {@link FeatureMetric}, including the metrics registered as a
+ * service, see {@link FeatureMetrics}.
+ */
+class FeatureConverter implements ITypeConverter<FeatureMetric> {
+    @Override
+    public FeatureMetric convert(String metric) {
+        return FeatureMetrics.forName(metric);
+    }
+}
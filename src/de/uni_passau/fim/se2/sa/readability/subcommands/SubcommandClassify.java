@@ -1,6 +1,7 @@
 package de.uni_passau.fim.se2.sa.readability.subcommands;
 
 import de.uni_passau.fim.se2.sa.readability.utils.Classify;
+import de.uni_passau.fim.se2.sa.readability.utils.RunStatistics;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
@@ -10,6 +11,7 @@
 import weka.core.Instances;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
 
 @Command(
@@ -22,6 +24,7 @@ public class SubcommandClassify implements Callable<Integer> {
     CommandSpec spec;
 
     private File data;
+    private int threads = Runtime.getRuntime().availableProcessors();
 
     @Option(
             names = {"-d", "--data"},
@@ -35,15 +38,41 @@ public void setDataFile(File dataFile) {
         data = dataFile;
     }
 
+    @Option(
+            names = {"--threads"},
+            description = "The number of threads training the cross-validation folds (default: number of available processors)"
+    )
+    public void setThreads(final int threads) {
+        if (threads < 1) {
+            throw new ParameterException(spec.commandLine(), "The number of threads must be at least 1.");
+        }
+        this.threads = threads;
+    }
+
+    @Option(
+            names = {"--metrics"},
+            description = "Writes a JSON report with the time spent in each stage of the run to this file"
+    )
+    private Path metricsFile;
+
     public Integer call() {
+        RunStatistics statistics = metricsFile == null ? null : RunStatistics.start();
         try {
+            long start = System.nanoTime();
             Instances dataset = Classify.loadDataset(data);
-            Evaluation eval = Classify.trainAndEvaluate(dataset);
+            if (statistics != null) {
+                statistics.recordStage(RunStatistics.LOAD, System.nanoTime() - start);
+            }
+            Evaluation eval = Classify.trainAndEvaluate(dataset, threads);
             printResults(eval);
             return 0;
         } catch (Exception e) {
             System.out.println(e.getMessage());
             return 1;
+        } finally {
+            if (statistics != null) {
+                statistics.stopAndReport(metricsFile);
+            }
         }
     }
 
@@ -52,7 +81,7 @@ public Integer call() {
      *
      * @param eval hosts the classification results.
      */
-    private static void printResults(final Evaluation eval) {
+    static void printResults(final Evaluation eval) {
         System.out.println(eval.toSummaryString());
         System.out.printf("%-20s%.2f%n", "Accuracy", eval.pctCorrect());
         System.out.printf("%-20s%.2f%n", "Area Under ROC", eval.areaUnderROC(0));
@@ -0,0 +1,69 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureFile;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureMatrix;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "convert",
+        description = "Converts a feature csv into a binary feature file, or a binary feature file or feature matrix into a csv"
+)
+public class SubcommandConvert implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    private File source;
+
+    @Option(
+            names = {"-s", "--source"},
+            description = "The feature csv, binary feature file or feature matrix to convert. The format is detected from the content.",
+            required = true
+    )
+    public void setSource(File source) {
+        if (!source.exists() || !source.isFile()) {
+            throw new ParameterException(spec.commandLine(), "The source file does not exist or is not a file.");
+        }
+        this.source = source;
+    }
+
+    @Option(
+            names = {"-t", "--target"},
+            description = "The converted file, a csv for a binary source or a feature matrix and a binary feature file for a csv source",
+            required = true
+    )
+    private File target;
+
+    public Integer call() {
+        try {
+            int rowCount;
+            if (FeatureFile.isFeatureFile(source)) {
+                try (BufferedWriter writer = Files.newWriter(target, Charsets.UTF_8)) {
+                    rowCount = FeatureFile.featureFileToCsv(source, writer);
+                }
+            } else if (FeatureMatrix.isFeatureMatrix(source)) {
+                try (BufferedWriter writer = Files.newWriter(target, Charsets.UTF_8)) {
+                    rowCount = FeatureMatrix.featureMatrixToCsv(source, writer);
+                }
+            } else {
+                rowCount = FeatureFile.csvToFeatureFile(source, target);
+            }
+            System.out.printf("Converted %d rows into %s%n", rowCount, target.getPath());
+            return 0;
+        } catch (IOException e) {
+            System.out.println("Could not convert the file: " + e.getMessage());
+            return 1;
+        }
+    }
+}
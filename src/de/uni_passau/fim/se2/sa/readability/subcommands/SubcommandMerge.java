@@ -0,0 +1,91 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureFile;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureMatrix;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureMerger;
+import de.uni_passau.fim.se2.sa.readability.utils.Preprocess;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "merge",
+        description = "Merges the feature csvs or binary feature files of the shards of a corpus into a single file"
+)
+public class SubcommandMerge implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    private static final String FEATURE_FILE_EXTENSION = "features";
+
+    private static final String FEATURE_MATRIX_EXTENSION = "matrix";
+
+    private File targetFile;
+
+    @Option(
+            names = {"-t", "--target"},
+            description = "The merged file, a csv for a .csv suffix, a binary feature file for a ." + FEATURE_FILE_EXTENSION
+                    + " suffix and a feature matrix for a ." + FEATURE_MATRIX_EXTENSION + " suffix",
+            required = true
+    )
+    public void setTargetFile(final File targetFile) {
+        String extension = Files.getFileExtension(targetFile.getName());
+        if (!extension.equals("csv") && !extension.equals(FEATURE_FILE_EXTENSION) && !extension.equals(FEATURE_MATRIX_EXTENSION)) {
+            throw new ParameterException(spec.commandLine(), "Target file must end with a .csv, ." + FEATURE_FILE_EXTENSION
+                    + " or ." + FEATURE_MATRIX_EXTENSION + " suffix");
+        }
+        this.targetFile = targetFile;
+    }
+
+    @Parameters(
+            paramLabel = "inputs",
+            description = "The feature csvs, binary feature files or feature matrices written by the preprocessing of each shard",
+            arity = "1..*"
+    )
+    private List<File> inputs;
+
+    public Integer call() {
+        for (File input : inputs) {
+            if (!input.isFile()) {
+                System.out.println("The input " + input + " does not exist or is not a file.");
+                return 1;
+            }
+        }
+        try (FeatureMerger merger = new FeatureMerger(inputs)) {
+            int rowCount;
+            String extension = Files.getFileExtension(targetFile.getName());
+            if (extension.equals(FEATURE_MATRIX_EXTENSION)) {
+                try (FeatureMatrix.Writer writer = new FeatureMatrix.Writer(targetFile, merger.featureIdentifiers())) {
+                    rowCount = merger.mergeInto(writer);
+                }
+            } else if (extension.equals(FEATURE_FILE_EXTENSION)) {
+                try (FeatureFile.Writer writer = new FeatureFile.Writer(new FileOutputStream(targetFile), merger.featureIdentifiers())) {
+                    rowCount = merger.mergeInto(writer);
+                }
+            } else {
+                try (BufferedWriter writer = Files.newWriter(targetFile, Charsets.UTF_8)) {
+                    Preprocess.appendCSVHeader(writer, merger.featureIdentifiers());
+                    rowCount = merger.mergeInto(row -> Preprocess.appendCSVRow(writer, row));
+                }
+            }
+            System.out.printf("Merged %d rows from %d files into %s%n", rowCount, inputs.size(), targetFile.getPath());
+            return 0;
+        } catch (IOException e) {
+            System.out.println("Could not merge the files: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetPack;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "pack",
+        description = "Packs a directory of java snippet files into a single corpus file for the preprocess subcommand"
+)
+public class SubcommandPack implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    private Path sourceDir;
+
+    @Option(
+            names = {"-s", "--source"},
+            description = "The directory containing java snippet (.jsnp) files",
+            required = true
+    )
+    public void setSourceDirectory(final File sourceDir) {
+        if (!sourceDir.exists() || !sourceDir.isDirectory()) {
+            throw new ParameterException(spec.commandLine(), "Source directory does not exist.");
+        }
+        this.sourceDir = sourceDir.toPath();
+    }
+
+    @Option(
+            names = {"-t", "--target"},
+            description = "The corpus file the snippets will be packed into",
+            required = true
+    )
+    private Path target;
+
+    public Integer call() {
+        try {
+            int count = SnippetPack.write(sourceDir, target);
+            System.out.printf("Packed %d snippets into %s%n", count, target);
+            return 0;
+        } catch (IOException e) {
+            System.out.println("Could not pack the snippets: " + e.getMessage());
+            return 1;
+        }
+    }
+}
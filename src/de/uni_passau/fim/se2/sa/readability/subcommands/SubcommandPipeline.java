@@ -0,0 +1,164 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.utils.Classify;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureSink;
+import de.uni_passau.fim.se2.sa.readability.utils.InstancesBuilder;
+import de.uni_passau.fim.se2.sa.readability.utils.Preprocess;
+import de.uni_passau.fim.se2.sa.readability.utils.PreprocessOptions;
+import de.uni_passau.fim.se2.sa.readability.utils.RunStatistics;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetPack;
+import picocli.CommandLine.*;
+import picocli.CommandLine.Model.CommandSpec;
+import weka.classifiers.Evaluation;
+import weka.core.Instances;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "pipeline",
+        description = "Preprocesses java snippet files and classifies their readability without an intermediate csv"
+)
+public class SubcommandPipeline implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    private Path sourceDir;
+    private File truth;
+    private File csvFile;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(
+            names = {"-s", "--source"},
+            description = "The directory containing java snippet (.jsnp) files, or a corpus file written by the pack subcommand",
+            required = true
+    )
+    public void setSourceDirectory(final File sourceDir) {
+        if (!sourceDir.exists()) {
+            throw new ParameterException(spec.commandLine(), "Source directory does not exist.");
+        }
+        this.sourceDir = sourceDir.toPath();
+    }
+
+    @Option(
+            names = {"-g", "--ground-truth"},
+            description = "The ground truth csv file containing the human readability ratings of the code snippets",
+            required = true
+    )
+    public void setTruth(final File truth) {
+        if (!truth.exists() || !truth.isFile()) {
+            throw new ParameterException(spec.commandLine(), "Truth file does not exist.");
+        }
+        this.truth = truth;
+    }
+
+    @Option(
+            names = {"--csv"},
+            description = "Additionally writes the features to this csv file, exactly as the preprocess subcommand does"
+    )
+    public void setCsvFile(final File csvFile) {
+        if (csvFile.getAbsoluteFile().getParentFile() == null || !csvFile.getAbsoluteFile().getParentFile().isDirectory()) {
+            throw new ParameterException(spec.commandLine(), "Csv directory does not exist.");
+        }
+        if (!Files.getFileExtension(csvFile.getName()).equals("csv")) {
+            throw new ParameterException(spec.commandLine(), "Csv file must end with a .csv suffix");
+        }
+        this.csvFile = csvFile;
+    }
+
+    @Option(
+            names = {"--threads"},
+            description = "The number of worker threads measuring the snippets and training the cross-validation folds (default: number of available processors)"
+    )
+    public void setThreads(final int threads) {
+        if (threads < 1) {
+            throw new ParameterException(spec.commandLine(), "The number of threads must be at least 1.");
+        }
+        this.threads = threads;
+    }
+
+    @Option(
+            names = {"--metrics"},
+            description = "Writes a JSON report with the time spent in each stage of the run to this file"
+    )
+    private Path metricsFile;
+
+    @Parameters(
+            paramLabel = "featureMetrics",
+            description = "The feature metrics to be used: [LINES, TOKEN_ENTROPY, H_VOLUME, CYCLOMATIC_COMPLEXITY] or the identifier of a registered metric",
+            arity = "1...",
+            converter = FeatureConverter.class
+    )
+    private List<FeatureMetric> featureMetrics;
+
+    public Integer call() {
+        RunStatistics statistics = metricsFile == null ? null : RunStatistics.start();
+        try {
+            return runPipeline();
+        } finally {
+            if (statistics != null) {
+                statistics.stopAndReport(metricsFile);
+            }
+        }
+    }
+
+    private int runPipeline() {
+        Instances dataset;
+        try {
+            dataset = collectDataset();
+        } catch (IOException e) {
+            System.out.println("Encountered error while parsing input files: " + e.getMessage());
+            return 1;
+        }
+        try {
+            Evaluation eval = Classify.trainAndEvaluate(dataset, threads);
+            SubcommandClassify.printResults(eval);
+            return 0;
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Measures the snippets into a dataset in memory and, if requested, writes the same rows to the csv.
+     *
+     * @return the dataset with the features in full precision and the truth as class attribute.
+     * @throws IOException if a snippet could not be read or the csv could not be written.
+     */
+    private Instances collectDataset() throws IOException {
+        List<String> identifiers = featureMetrics.stream().map(FeatureMetric::getIdentifier).toList();
+        InstancesBuilder builder = new InstancesBuilder(sourceDir.getFileName().toString(), identifiers);
+        if (csvFile == null) {
+            collectFeatures(builder);
+            return builder.build();
+        }
+        try (BufferedWriter writer = Files.newWriter(csvFile.getAbsoluteFile(), Charsets.UTF_8)) {
+            Preprocess.appendCSVHeader(writer, identifiers);
+            collectFeatures(row -> {
+                builder.accept(row);
+                Preprocess.appendCSVRow(writer, row);
+            });
+        }
+        return builder.build();
+    }
+
+    private void collectFeatures(FeatureSink sink) throws IOException {
+        PreprocessOptions options = PreprocessOptions.DEFAULTS.withThreads(threads);
+        if (!java.nio.file.Files.isRegularFile(sourceDir)) {
+            Preprocess.collectFeatures(sourceDir, truth, sink, featureMetrics, options);
+            return;
+        }
+        try (SnippetPack pack = SnippetPack.open(sourceDir)) {
+            Preprocess.collectFeatures(pack, truth, sink, featureMetrics, options);
+        }
+    }
+}
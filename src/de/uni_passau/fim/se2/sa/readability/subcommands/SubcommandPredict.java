@@ -0,0 +1,155 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import de.uni_passau.fim.se2.sa.readability.utils.GitChanges;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel.Prediction;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetDiscovery;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "predict",
+        description = "Predicts the readability of .jsnp Java snippets with a model saved by the train subcommand"
+)
+public class SubcommandPredict implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    private File modelFile;
+
+    @Option(
+            names = {"-m", "--model"},
+            description = "The model file written by the train subcommand.",
+            required = true
+    )
+    public void setModelFile(File modelFile) {
+        if (!modelFile.exists() || !modelFile.isFile()) {
+            throw new ParameterException(spec.commandLine(), "The model file does not exist or is not a file.");
+        }
+        this.modelFile = modelFile;
+    }
+
+    @Parameters(
+            paramLabel = "snippets",
+            description = "The java snippet (.jsnp) files to score",
+            arity = "0..*"
+    )
+    private List<File> snippets = List.of();
+
+    private Path sourceDir;
+
+    @Option(
+            names = {"-s", "--source"},
+            description = "The directory in a git repository whose changed snippets are scored with --from-revision (default: the current directory)"
+    )
+    public void setSourceDirectory(File sourceDir) {
+        if (!sourceDir.isDirectory()) {
+            throw new ParameterException(spec.commandLine(), "Source directory does not exist.");
+        }
+        this.sourceDir = sourceDir.toPath();
+    }
+
+    @Option(
+            names = {"--from-revision"},
+            description = "Scores the snippets of the source directory that were added or modified since this git revision instead of the given snippet files"
+    )
+    private String fromRevision;
+
+    @Option(
+            names = {"--to-revision"},
+            description = "The revision whose snippets are scored with --from-revision (default: ${DEFAULT-VALUE})",
+            defaultValue = "HEAD"
+    )
+    private String toRevision;
+
+    /**
+     * Prints one csv row [File,Prediction,Probability] per snippet. Snippets that cannot be scored are reported on
+     * stderr and the remaining snippets are still scored.
+     *
+     * @return 0 if all snippets were scored, 1 otherwise.
+     */
+    public Integer call() {
+        ReadabilityModel model;
+        try {
+            model = ReadabilityModel.load(modelFile);
+        } catch (Exception e) {
+            System.out.println("Could not load the model: " + e.getMessage());
+            return 1;
+        }
+
+        if (fromRevision != null) {
+            return predictChanged(model);
+        }
+        if (snippets.isEmpty()) {
+            System.out.println("Either snippet files or --from-revision must be given.");
+            return 1;
+        }
+
+        int exitCode = 0;
+        System.out.println("File,Prediction,Probability");
+        for (File snippet : snippets) {
+            try {
+                String code = Files.readString(snippet.toPath(), StandardCharsets.UTF_8);
+                Prediction prediction = model.predict(code);
+                System.out.printf(Locale.ROOT, "%s,%s,%.4f%n", snippet.getName(), prediction.label(), prediction.probability());
+            } catch (Exception e) {
+                System.err.println("Failed to score file: " + snippet + " -> " + e.getMessage());
+                exitCode = 1;
+            }
+        }
+        return exitCode;
+    }
+
+    /**
+     * Scores the snippets that were added or modified between the two revisions, read from the repository at the newer
+     * revision. Deleted snippets are listed on stderr.
+     *
+     * @return 0 if all changed snippets were scored, 1 otherwise.
+     */
+    private int predictChanged(ReadabilityModel model) {
+        GitChanges changes;
+        try {
+            changes = GitChanges.between(sourceDir == null ? Path.of("").toAbsolutePath() : sourceDir,
+                    fromRevision, toRevision);
+        } catch (IOException e) {
+            System.out.println("Could not compare the revisions: " + e.getMessage());
+            return 1;
+        }
+
+        int exitCode = 0;
+        System.out.println("File,Prediction,Probability");
+        try (GitChanges.Contents contents = changes.openContents()) {
+            for (GitChanges.Change change : changes.getChangedSnippets(SnippetDiscovery.SNIPPETS)) {
+                try {
+                    String code = new String(contents.read(change), StandardCharsets.UTF_8);
+                    Prediction prediction = model.predict(code);
+                    System.out.printf(Locale.ROOT, "%s,%s,%.4f%n", change.fileName(), prediction.label(), prediction.probability());
+                } catch (Exception e) {
+                    System.err.println("Failed to score file: " + change.relativePath() + " -> " + e.getMessage());
+                    exitCode = 1;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read the changed snippets: " + e.getMessage());
+            return 1;
+        }
+        for (GitChanges.Change change : changes.getDeletedSnippets(SnippetDiscovery.SNIPPETS)) {
+            System.err.println("Deleted snippet: " + change.relativePath());
+        }
+        return exitCode;
+    }
+}
@@ -3,15 +3,32 @@
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 import de.uni_passau.fim.se2.sa.readability.features.*;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureCache;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureFile;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureFileUpdate;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureMatrix;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureRow;
+import de.uni_passau.fim.se2.sa.readability.utils.FeatureSink;
+import de.uni_passau.fim.se2.sa.readability.utils.GitChanges;
 import de.uni_passau.fim.se2.sa.readability.utils.Preprocess;
+import de.uni_passau.fim.se2.sa.readability.utils.PreprocessOptions;
+import de.uni_passau.fim.se2.sa.readability.utils.RunStatistics;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetBudget;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetDiscovery;
+import de.uni_passau.fim.se2.sa.readability.utils.SnippetPack;
 import picocli.CommandLine.*;
 import picocli.CommandLine.Model.CommandSpec;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 @Command(
@@ -25,17 +42,58 @@ public class SubcommandPreprocess implements Callable<Integer> {
 
     private static final double TRUTH_THRESHOLD = 3.6;
 
+    private static final String FEATURE_FILE_EXTENSION = "features";
+
+    private static final String FEATURE_MATRIX_EXTENSION = "matrix";
+
     private Path sourceDir;
     private File truth;
     private File targetFile;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long cacheSize;
+    private long maxSnippetBytes;
+    private long parseTimeout;
+    private long visitTimeout;
+    private int skippedCount;
+    private SnippetDiscovery.Shard shard = SnippetDiscovery.Shard.ALL;
+    private GitChanges gitChanges;
+    private int changedCount;
+    private int deletedCount;
+
+    /**
+     * Controls what is printed to the console after the csv has been written to the target file.
+     */
+    enum ConsoleMode {
+        FULL,       // the whole csv
+        SUMMARY,    // a single line summarizing the written csv
+        QUIET,      // nothing
+    }
+
+    /**
+     * The format of the target file, given by its suffix.
+     */
+    enum OutputFormat {
+        CSV,        // a text csv with the values rounded to two decimal places
+        BINARY,     // a column-oriented feature file, see FeatureFile
+        MATRIX,     // a memory-mapped column-major matrix of doubles, see FeatureMatrix
+    }
+
+    private OutputFormat format;
+
+    @Option(
+            names = {"--console"},
+            description = "What to print after the target file has been written: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})",
+            defaultValue = "FULL"
+    )
+    private ConsoleMode consoleMode;
 
     @Option(
             names = {"-s", "--source"},
-            description = "The directory containing java snippet (.jsnp) files",
+            description = "The directory containing java snippet (.jsnp) files, or a corpus file written by the pack subcommand",
             required = true
     )
     public void setSourceDirectory(final File sourceDir) {
-        if (!sourceDir.exists() || !sourceDir.isDirectory()) {
+        if (!sourceDir.exists()) {
             throw new ParameterException(spec.commandLine(), "Source directory does not exist.");
         }
         this.sourceDir = sourceDir.toPath();
@@ -43,8 +101,8 @@ public void setSourceDirectory(final File sourceDir) {
 
     @Option(
             names = {"-g", "--ground-truth"},
-            description = "The ground truth csv file containing the human readability ratings of the code snippets",
-            required = true
+            description = "The ground truth csv file containing the human readability ratings of the code snippets,"
+                    + " required unless --methods is given"
     )
     public void setTruth(final File truth) {
         if (!truth.exists() || !truth.isFile()) {
@@ -55,22 +113,143 @@ public void setTruth(final File truth) {
 
     @Option(
             names = {"-t", "--target"},
-            description = {"The target file where the preprocessed data will be saved"},
+            description = {"The target file where the preprocessed data will be saved, a binary feature file for the ."
+                    + FEATURE_FILE_EXTENSION + " suffix, a feature matrix for the ." + FEATURE_MATRIX_EXTENSION
+                    + " suffix and a csv otherwise"},
             required = true
     )
     public void setTargetFile(final File targetFile) {
         if (!targetFile.getParentFile().isDirectory()) {
             throw new ParameterException(spec.commandLine(), "Target directory does not exist.");
         }
-        if (!Files.getFileExtension(targetFile.getName()).equals("csv")) {
-            throw new ParameterException(spec.commandLine(), "Target file must end with a .csv suffix");
+        String extension = Files.getFileExtension(targetFile.getName());
+        if (!extension.equals("csv") && !extension.equals(FEATURE_FILE_EXTENSION) && !extension.equals(FEATURE_MATRIX_EXTENSION)) {
+            throw new ParameterException(spec.commandLine(), "Target file must end with a .csv, ." + FEATURE_FILE_EXTENSION
+                    + " or ." + FEATURE_MATRIX_EXTENSION + " suffix");
         }
         this.targetFile = targetFile;
     }
 
+    @Option(
+            names = {"--threads"},
+            description = "The number of worker threads used to process the snippets (default: number of available processors)"
+    )
+    public void setThreads(final int threads) {
+        if (threads < 1) {
+            throw new ParameterException(spec.commandLine(), "The number of threads must be at least 1.");
+        }
+        this.threads = threads;
+    }
+
+    @Option(
+            names = {"--cache"},
+            description = "A directory caching the feature values across runs, such that only changed snippets are measured again"
+    )
+    private Path cacheDir;
+
+    @Option(
+            names = {"--cache-size"},
+            description = "The maximum size of the cache in MiB (default: ${DEFAULT-VALUE})",
+            defaultValue = "512"
+    )
+    public void setCacheSize(final long cacheSize) {
+        if (cacheSize < 1) {
+            throw new ParameterException(spec.commandLine(), "The cache size must be at least 1 MiB.");
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    @Option(
+            names = {"--max-snippet-bytes"},
+            description = "Skips snippets larger than this number of bytes without reading them"
+    )
+    public void setMaxSnippetBytes(final long maxSnippetBytes) {
+        if (maxSnippetBytes < 1) {
+            throw new ParameterException(spec.commandLine(), "The maximum snippet size must be at least 1 byte.");
+        }
+        this.maxSnippetBytes = maxSnippetBytes;
+    }
+
+    @Option(
+            names = {"--parse-timeout"},
+            description = "Skips snippets whose parsing takes longer than this number of milliseconds"
+    )
+    public void setParseTimeout(final long parseTimeout) {
+        if (parseTimeout < 1) {
+            throw new ParameterException(spec.commandLine(), "The parse timeout must be at least 1 ms.");
+        }
+        this.parseTimeout = parseTimeout;
+    }
+
+    @Option(
+            names = {"--visit-timeout"},
+            description = "Skips snippets whose AST traversal takes longer than this number of milliseconds"
+    )
+    public void setVisitTimeout(final long visitTimeout) {
+        if (visitTimeout < 1) {
+            throw new ParameterException(spec.commandLine(), "The visit timeout must be at least 1 ms.");
+        }
+        this.visitTimeout = visitTimeout;
+    }
+
+    @Option(
+            names = {"--skipped-report"},
+            description = "The csv listing the skipped snippets and the exceeded limits (default: <target>.skipped.csv if a limit is set)"
+    )
+    private File skippedReport;
+
+    @Option(
+            names = {"--extension"},
+            description = "The extension of the snippet files in the source directory (default: jsnp, or java with --methods)"
+    )
+    private String extension;
+
+    @Option(
+            names = {"--methods"},
+            description = "Treats the source files as whole .java files and writes a row for each method and constructor, identified by the file path and its line range"
+    )
+    private boolean methods;
+
+    @Option(
+            names = {"--glob"},
+            description = "Only processes the snippet files matching this glob, matched against the file name or, if it contains a slash, against the path relative to the source directory"
+    )
+    private String glob;
+
+    @Option(
+            names = {"--shard"},
+            description = "Only processes the i-th of n disjoint shards of the snippets, given as i/n with 1 <= i <= n, see the merge subcommand"
+    )
+    public void setShard(final String shard) {
+        try {
+            this.shard = SnippetDiscovery.Shard.parse(shard);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage());
+        }
+    }
+
+    @Option(
+            names = {"--from-revision"},
+            description = "Only analyzes the snippets that were added or modified since this revision of the git repository of the source directory, and updates the existing target file in place"
+    )
+    private String fromRevision;
+
+    @Option(
+            names = {"--to-revision"},
+            description = "The revision whose snippets are analyzed with --from-revision (default: ${DEFAULT-VALUE})",
+            defaultValue = "HEAD"
+    )
+    private String toRevision;
+
+    @Option(
+            names = {"--metrics"},
+            description = "Writes a JSON report with the time spent in each stage of the run to this file"
+    )
+    private Path metricsFile;
+
     @Parameters(
             paramLabel = "featureMetrics",
-            description = "The The feature metrics to be used: [LINES, TOKEN_ENTROPY, H_VOLUME, CYCLOMATIC_COMPLEXITY]",
+            description = "The The feature metrics to be used: [LINES, TOKEN_ENTROPY, H_VOLUME, CYCLOMATIC_COMPLEXITY] or the identifier of a registered metric",
             arity = "1...",
             converter = FeatureConverter.class
     )
@@ -78,61 +257,258 @@ public void setTargetFile(final File targetFile) {
 
 
     public Integer call() {
-        StringBuilder csv = new StringBuilder();
-        generateCSVHeader(csv, featureMetrics);
+        if (methods && truth != null) {
+            throw new ParameterException(spec.commandLine(),
+                    "--methods takes no ground truth, the Truth column of a method is always N.");
+        }
+        if (!methods && truth == null) {
+            throw new ParameterException(spec.commandLine(), "Missing required option: '--ground-truth=<truth>'");
+        }
+        String extension = Files.getFileExtension(targetFile.getName());
+        format = extension.equals(FEATURE_FILE_EXTENSION) ? OutputFormat.BINARY
+                : extension.equals(FEATURE_MATRIX_EXTENSION) ? OutputFormat.MATRIX : OutputFormat.CSV;
+        RunStatistics statistics = metricsFile == null ? null : RunStatistics.start();
         try {
-            Preprocess.collectCSVBody(sourceDir, truth, csv, featureMetrics);
+            return preprocess(statistics);
+        } finally {
+            if (statistics != null) {
+                statistics.stopAndReport(metricsFile);
+            }
+        }
+    }
+
+    private int preprocess(RunStatistics statistics) {
+        int rowCount;
+        FeatureCache cache;
+        try {
+            cache = cacheDir == null ? null : new FeatureCache(cacheDir, cacheSize * 1024 * 1024);
+        } catch (IOException e) {
+            System.out.println("Could not open the cache: " + e.getMessage());
+            return 1;
+        }
+        if (methods && (fromRevision != null || java.nio.file.Files.isRegularFile(sourceDir))) {
+            System.out.println("--methods requires a source directory and cannot be combined with --from-revision.");
+            return 1;
+        }
+        try {
+            if (fromRevision != null) {
+                rowCount = updateChanged(cache);
+            } else {
+                rowCount = switch (format) {
+                    case CSV -> writeCSV(cache);
+                    case BINARY -> writeFeatureFile(cache);
+                    case MATRIX -> writeFeatureMatrix(cache);
+                };
+            }
         } catch (IOException e) {
             System.out.println("Encountered error while parsing input files: " + e.getMessage());
             return 1;
         }
-        writeCSVToFile(csv.toString());
-        System.out.println(csv);
-        return 0;
+        if (cache != null) {
+            if (statistics != null) {
+                statistics.add("cacheHits", cache.getHits());
+                statistics.add("cacheMisses", cache.getMisses());
+            }
+            evictCache(cache);
+        }
+        return printToConsole(rowCount, cache);
+    }
+
+    private int writeCSV(FeatureCache cache) throws IOException {
+        try (BufferedWriter writer = Files.newWriter(new File(targetFile.getAbsolutePath()), Charsets.UTF_8)) {
+            generateCSVHeader(writer, featureMetrics);
+            return collectFeatures(row -> Preprocess.appendCSVRow(writer, row), cache);
+        }
+    }
+
+    private int writeFeatureFile(FeatureCache cache) throws IOException {
+        List<String> identifiers = featureMetrics.stream().map(FeatureMetric::getIdentifier).toList();
+        try (FeatureFile.Writer writer = new FeatureFile.Writer(new FileOutputStream(targetFile), identifiers)) {
+            return collectFeatures(writer, cache);
+        }
+    }
+
+    private int writeFeatureMatrix(FeatureCache cache) throws IOException {
+        List<String> identifiers = featureMetrics.stream().map(FeatureMetric::getIdentifier).toList();
+        try (FeatureMatrix.Writer writer = new FeatureMatrix.Writer(targetFile, identifiers)) {
+            return collectFeatures(writer, cache);
+        }
     }
 
     /**
-     * Generates the csv header represented by [SnippetFile, feature1, feature2, ...]
+     * Analyzes the snippets that changed between the two revisions, and replaces their rows in the existing target.
+     * The rows of deleted snippets, and of changed snippets that no longer result in a row, are removed.
      *
-     * @param csv            the builder for the csv.
-     * @param featureMetrics the list of specified features via the cli.
+     * @return the number of rows of the updated target.
      */
-    private static void generateCSVHeader(StringBuilder csv, List<FeatureMetric> featureMetrics) {
-        csv.append("File");
-        for (FeatureMetric featureMetric : featureMetrics) {
-            csv.append(String.format(",%s", featureMetric.getIdentifier()));
+    private int updateChanged(FeatureCache cache) throws IOException {
+        if (!targetFile.isFile()) {
+            throw new IOException("The target file " + targetFile + " must exist to be updated incrementally.");
+        }
+        if (java.nio.file.Files.isRegularFile(sourceDir)) {
+            throw new IOException("Only a source directory in a git repository can be updated incrementally.");
+        }
+        gitChanges = GitChanges.between(sourceDir, fromRevision, toRevision);
+        SnippetDiscovery discovery = discovery();
+        Set<String> obsoleteFiles = new HashSet<>();
+        for (GitChanges.Change change : gitChanges.getChangedSnippets(discovery)) {
+            obsoleteFiles.add(change.fileName());
+            changedCount++;
+        }
+        for (GitChanges.Change change : gitChanges.getDeletedSnippets(discovery)) {
+            obsoleteFiles.add(change.fileName());
+            deletedCount++;
+        }
+        FeatureFileUpdate update = new FeatureFileUpdate(targetFile,
+                featureMetrics.stream().map(FeatureMetric::getIdentifier).toList());
+        collectFeatures(update, cache);
+        return update.apply(obsoleteFiles);
+    }
+
+    private int collectFeatures(FeatureSink sink, FeatureCache cache) throws IOException {
+        PreprocessOptions options = PreprocessOptions.DEFAULTS.withThreads(threads).withCache(cache)
+                .withBudget(budget()).withDiscovery(discovery());
+        File report = skippedReportFile();
+        if (report == null) {
+            return collectFeatures(sink, options);
+        }
+        try (BufferedWriter writer = Files.newWriter(report.getAbsoluteFile(), Charsets.UTF_8)) {
+            writer.write("File,Reason\n");
+            return collectFeatures(reportingSkipped(sink, writer), options);
+        }
+    }
+
+    private int collectFeatures(FeatureSink sink, PreprocessOptions options) throws IOException {
+        if (gitChanges != null) {
+            return Preprocess.collectFeatures(gitChanges, truth, sink, featureMetrics, options);
+        }
+        if (methods) {
+            return Preprocess.collectMethodFeatures(sourceDir, sink, featureMetrics, options);
+        }
+        if (!java.nio.file.Files.isRegularFile(sourceDir)) {
+            return Preprocess.collectFeatures(sourceDir, truth, sink, featureMetrics, options);
+        }
+        try (SnippetPack pack = SnippetPack.open(sourceDir)) {
+            return Preprocess.collectFeatures(pack, truth, sink, featureMetrics, options);
         }
-        csv.append(",Truth");
-        csv.append(System.lineSeparator());
+    }
+
+    private SnippetDiscovery discovery() {
+        if (extension != null) {
+            return new SnippetDiscovery(extension, glob, shard);
+        }
+        return new SnippetDiscovery(methods ? "java" : SnippetDiscovery.SNIPPET_EXTENSION, glob, shard);
+    }
+
+    private SnippetBudget budget() {
+        return new SnippetBudget(maxSnippetBytes, Duration.ofMillis(parseTimeout), Duration.ofMillis(visitTimeout));
     }
 
     /**
-     * Writes the generated csv String to the target file.
+     * Returns the sidecar csv of the skipped snippets, which is written if it is requested or a limit is set.
      *
-     * @param csv the generated csv String
+     * @return the report file or {@code null} if no report is written.
      */
-    private void writeCSVToFile(String csv) {
-        try (BufferedWriter writer = Files.newWriter(new File(targetFile.getAbsolutePath()), Charsets.UTF_8)) {
-            writer.write(csv);
-        } catch (IOException e) {
-            System.out.println(e.getMessage());
+    private File skippedReportFile() {
+        if (skippedReport != null) {
+            return skippedReport;
+        }
+        if (budget().equals(SnippetBudget.UNLIMITED)) {
+            return null;
         }
+        String name = targetFile.getName();
+        return new File(targetFile.getAbsoluteFile().getParentFile(),
+                name.substring(0, name.lastIndexOf('.')) + ".skipped.csv");
     }
 
-}
+    /**
+     * Hands the rows to the given sink and writes each skipped snippet as a row [File, Reason] to the report.
+     */
+    private FeatureSink reportingSkipped(FeatureSink sink, Writer report) {
+        return new FeatureSink() {
+            @Override
+            public void accept(FeatureRow row) throws IOException {
+                sink.accept(row);
+            }
 
-/**
- * Converts supplied cli parameters to the respective {@link FeatureMetric}.
- */
-class FeatureConverter implements ITypeConverter<FeatureMetric> {
-    @Override
-    public FeatureMetric convert(String metric) {
-        return switch (metric.toLowerCase()) {
-            case "lines" -> new NumberLinesFeature();
-            case "h_volume" -> new HalsteadVolumeFeature();
-            case "token_entropy" -> new TokenEntropyFeature();
-            case "cyclomatic_complexity" -> new CyclomaticComplexityFeature();
-            default -> throw new IllegalArgumentException("The metric '" + metric + "' is not a valid option.");
+            @Override
+            public void skip(String file, String reason) throws IOException {
+                report.write(csvField(file) + "," + csvField(reason) + "\n");
+                skippedCount++;
+            }
         };
     }
+
+    /**
+     * Quotes a field of the skipped report, since file names and reasons may contain commas, quotes or line breaks.
+     */
+    private static String csvField(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static void evictCache(FeatureCache cache) {
+        try {
+            cache.evict();
+        } catch (IOException e) {
+            System.err.println("Could not evict the cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Generates the csv header represented by [SnippetFile, feature1, feature2, ...]
+     *
+     * @param csv            the destination of the csv.
+     * @param featureMetrics the list of specified features via the cli.
+     * @throws IOException if the header could not be written.
+     */
+    private static void generateCSVHeader(Appendable csv, List<FeatureMetric> featureMetrics) throws IOException {
+        Preprocess.appendCSVHeader(csv, featureMetrics.stream().map(FeatureMetric::getIdentifier).toList());
+    }
+
+    /**
+     * Reports the written csv on the console according to the selected console mode.
+     *
+     * @param rowCount the number of rows written to the target file.
+     * @param cache    the cache of feature values or {@code null} if no cache was used.
+     * @return the exit code of the command.
+     */
+    private int printToConsole(int rowCount, FeatureCache cache) {
+        switch (consoleMode) {
+            case FULL -> {
+                try {
+                    if (format == OutputFormat.BINARY) {
+                        FeatureFile.featureFileToCsv(targetFile, System.out);
+                    } else if (format == OutputFormat.MATRIX) {
+                        FeatureMatrix.featureMatrixToCsv(targetFile, System.out);
+                    } else {
+                        java.nio.file.Files.copy(targetFile.toPath(), System.out);
+                    }
+                    System.out.println();
+                } catch (IOException e) {
+                    System.out.println(e.getMessage());
+                    return 1;
+                }
+            }
+            case SUMMARY -> {
+                System.out.printf("Wrote %d rows with %d feature metrics to %s%n",
+                        rowCount, featureMetrics.size(), targetFile.getPath());
+                System.out.printf("Stages per snippet: %s%n", MetricPlan.of(featureMetrics));
+                if (gitChanges != null) {
+                    System.out.printf("Analyzed %d changed and removed %d deleted snippets between %s and %s%n",
+                            changedCount, deletedCount, fromRevision, toRevision);
+                }
+                if (cache != null) {
+                    System.out.printf("Feature cache: %d hits, %d misses%n", cache.getHits(), cache.getMisses());
+                }
+                File report = skippedReportFile();
+                if (report != null) {
+                    System.out.printf("Skipped %d snippets, listed in %s%n", skippedCount, report.getPath());
+                }
+            }
+            case QUIET -> {
+            }
+        }
+        return 0;
+    }
+
 }
@@ -0,0 +1,154 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetrics;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel;
+import de.uni_passau.fim.se2.sa.readability.utils.ScoringServer;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "serve",
+        description = "Runs a resident process answering feature extraction and scoring requests of local clients"
+)
+public class SubcommandServe implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    private File modelFile;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(
+            names = {"-m", "--model"},
+            description = "The model file written by the train subcommand. Without a model, only features are extracted."
+    )
+    public void setModelFile(File modelFile) {
+        if (!modelFile.exists() || !modelFile.isFile()) {
+            throw new ParameterException(spec.commandLine(), "The model file does not exist or is not a file.");
+        }
+        this.modelFile = modelFile;
+    }
+
+    @Option(
+            names = {"-p", "--port"},
+            description = "The TCP port to listen on at the loopback address, 0 picks a free port (default: ${DEFAULT-VALUE})",
+            defaultValue = "7411"
+    )
+    private int port;
+
+    @Option(
+            names = {"--socket"},
+            description = "A Unix domain socket file to listen on instead of the TCP port"
+    )
+    private Path socket;
+
+    @Option(
+            names = {"--threads"},
+            description = "The number of worker threads measuring the snippets (default: number of available processors)"
+    )
+    public void setThreads(final int threads) {
+        if (threads < 1) {
+            throw new ParameterException(spec.commandLine(), "The number of threads must be at least 1.");
+        }
+        this.threads = threads;
+    }
+
+    public Integer call() {
+        ReadabilityModel model = null;
+        List<FeatureMetric> featureMetrics = FeatureMetrics.all();
+        if (modelFile != null) {
+            try {
+                model = ReadabilityModel.load(modelFile);
+                featureMetrics = model.getFeatureMetrics();
+            } catch (Exception e) {
+                System.out.println("Could not load the model: " + e.getMessage());
+                return 1;
+            }
+        }
+
+        try (ScoringServer server = new ScoringServer(model, featureMetrics, threads);
+             ServerSocketChannel channel = openChannel()) {
+            server.warmUp(50);
+            System.out.println("Listening on " + channel.getLocalAddress());
+            server.serve(channel);
+            return 0;
+        } catch (IOException e) {
+            System.out.println("Could not serve: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private ServerSocketChannel openChannel() throws IOException {
+        if (socket != null) {
+            UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+            deleteStaleSocketFile(address);
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.bind(address);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            // the server usually runs until it is terminated, so the socket file is removed in a shutdown hook,
+            // which is only registered once the file is our own
+            Runtime.getRuntime().addShutdownHook(new Thread(this::deleteSocketFile));
+            return channel;
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return channel;
+    }
+
+    /**
+     * Deletes a socket file left behind by a server that did not shut down cleanly, which would make the bind fail.
+     * A socket file that still accepts connections belongs to a running server and is kept, as is any other file.
+     */
+    private void deleteStaleSocketFile(UnixDomainSocketAddress address) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(socket, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!attributes.isOther()) {
+            throw new IOException("The socket path " + socket + " exists and is not a socket file.");
+        }
+        try {
+            SocketChannel.open(address).close();
+        } catch (ConnectException e) {
+            System.out.println("Removing the stale socket file " + socket);
+            Files.deleteIfExists(socket);
+            return;
+        }
+        throw new IOException("Another server is already listening on " + socket + ".");
+    }
+
+    private void deleteSocketFile() {
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            System.err.println("Could not delete the socket file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.uni_passau.fim.se2.sa.readability.subcommands;
+
+import de.uni_passau.fim.se2.sa.readability.utils.Classify;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+import weka.core.Instances;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "train",
+        description = "Trains the readability classifier on a feature csv and saves it for the predict subcommand"
+)
+public class SubcommandTrain implements Callable<Integer> {
+
+    @Spec
+    CommandSpec spec;
+
+    private File data;
+
+    @Option(
+            names = {"-m", "--model"},
+            description = "The file the trained model will be saved to.",
+            required = true
+    )
+    private File modelFile;
+
+    @Option(
+            names = {"-d", "--data"},
+            description = "The data .csv file to train the model on.",
+            required = true
+    )
+    public void setDataFile(File dataFile) {
+        if (!dataFile.exists() || !dataFile.isFile()) {
+            throw new ParameterException(spec.commandLine(), "The data file does not exist or is not a file.");
+        }
+        data = dataFile;
+    }
+
+    public Integer call() {
+        try {
+            Instances dataset = Classify.loadDataset(data);
+            ReadabilityModel model = ReadabilityModel.train(dataset);
+            model.save(modelFile);
+            System.out.printf("Trained on %d instances with the features %s, saved to %s%n",
+                    dataset.numInstances(), model.getMetricIdentifiers(), modelFile.getPath());
+            return 0;
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+            return 1;
+        }
+    }
+}
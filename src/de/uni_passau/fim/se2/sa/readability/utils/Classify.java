@@ -1,5 +1,6 @@
 package de.uni_passau.fim.se2.sa.readability.utils;
 
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
 import weka.classifiers.functions.Logistic;
@@ -8,7 +9,10 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serial;
+import java.util.Iterator;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 /**
  * Implemented this class with help of LLM
@@ -16,14 +20,33 @@
  * */
 public class Classify {
 
+    private static final int NUM_FOLDS = 10;
+
+    /**
+     * The number of rows read at once from each column of a feature matrix.
+     */
+    static final int MATRIX_BATCH_ROWS = 8192;
+
     /**
      * Loads the {@link Instances} dataset by parsing the CSV file specified via the cli.
+     * A feature csv or binary feature file written by the preprocessing is loaded by {@link FeatureDataset}, such that
+     * the File column is not used as a feature. A feature matrix is read column by column in batches of
+     * {@value #MATRIX_BATCH_ROWS} rows, without reading the file names. Any other CSV file is loaded with its last
+     * column as class attribute.
      *
-     * @param data the CSV file to load.
+     * @param data the CSV file or feature file to load.
      * @return the {@link Instances} dataset ready to be classified.
      * @throws IOException if the CSV file specified via the cli could not be loaded.
      */
     public static Instances loadDataset(File data) throws IOException {
+        if (FeatureMatrix.isFeatureMatrix(data)) {
+            try (FeatureMatrix matrix = FeatureMatrix.open(data)) {
+                return matrix.toInstances(FeatureFile.relationName(data), MATRIX_BATCH_ROWS);
+            }
+        }
+        if (FeatureDataset.hasFeatureSchema(data)) {
+            return FeatureDataset.load(data).instances();
+        }
         CSVLoader loader = new CSVLoader();
         loader.setSource(data);
         Instances dataset = loader.getDataSet();
@@ -34,15 +57,106 @@ public static Instances loadDataset(File data) throws IOException {
     /**
      * Trains and evaluates the "logistic" classifier on the given dataset.
      * For the evaluation, we apply a 10-fold cross-validation using a start seed with a value of 1.
+     * The folds are trained on one thread per available processor.
      *
      * @param dataset The dataset to train and evaluate the logistic classifier on.
      * @return the evaluation object hosting the evaluation results.
      * @throws Exception if the classifier could not be generated successfully.
      */
     public static Evaluation trainAndEvaluate(Instances dataset) throws Exception {
+        return trainAndEvaluate(dataset, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Trains and evaluates the "logistic" classifier on the given dataset like {@link #trainAndEvaluate(Instances)},
+     * but trains the folds on the given number of threads.
+     * <p>
+     * The folds are split exactly like {@link Evaluation#crossValidateModel}: the data is randomized, stratified and
+     * split into training sets on the calling thread, such that the random number generator is used in the same order.
+     * Only the training of the classifiers runs concurrently, the folds are then evaluated in order. The resulting
+     * evaluation is therefore the same as the one of a sequential cross-validation.
+     *
+     * @param dataset The dataset to train and evaluate the logistic classifier on.
+     * @param threads the number of threads training the folds.
+     * @return the evaluation object hosting the evaluation results.
+     * @throws Exception if the classifier could not be generated successfully.
+     */
+    public static Evaluation trainAndEvaluate(Instances dataset, int threads) throws Exception {
         Classifier classifier = new Logistic();
         Evaluation evaluation = new Evaluation(dataset);
-        evaluation.crossValidateModel(classifier, dataset, 10, new Random(1));
+
+        Instances data = new Instances(dataset);
+        Random random = new Random(1);
+        data.randomize(random);
+        if (data.classAttribute().isNominal()) {
+            data.stratify(NUM_FOLDS);
+        }
+
+        Iterator<Integer> folds = IntStream.range(0, NUM_FOLDS).iterator();
+        Iterator<Instances> trainingSets = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return folds.hasNext();
+            }
+
+            @Override
+            public Instances next() {
+                return data.trainCV(NUM_FOLDS, folds.next(), random);
+            }
+        };
+
+        int fold = 0;
+        try (OrderedParallelIterator<Instances, TrainedFold> trainedFolds = new OrderedParallelIterator<>(
+                trainingSets, train -> train(classifier, train), Math.min(threads, NUM_FOLDS), NUM_FOLDS)) {
+            while (trainedFolds.hasNext()) {
+                TrainedFold trainedFold = trainedFolds.next();
+                RunStatistics statistics = RunStatistics.active();
+                long start = statistics == null ? 0 : System.nanoTime();
+                evaluation.setPriors(trainedFold.train());
+                evaluation.evaluateModel(trainedFold.model(), data.testCV(NUM_FOLDS, fold++));
+                if (statistics != null) {
+                    statistics.recordStage(RunStatistics.EVALUATE_FOLD, System.nanoTime() - start);
+                }
+            }
+        } catch (FoldTrainingException e) {
+            throw e.getCause();
+        }
         return evaluation;
     }
+
+    private static TrainedFold train(Classifier classifier, Instances train) {
+        RunStatistics statistics = RunStatistics.active();
+        long start = statistics == null ? 0 : System.nanoTime();
+        try {
+            Classifier copy = AbstractClassifier.makeCopy(classifier);
+            copy.buildClassifier(train);
+            if (statistics != null) {
+                statistics.recordStage(RunStatistics.TRAIN_FOLD, System.nanoTime() - start);
+            }
+            return new TrainedFold(train, copy);
+        } catch (Exception e) {
+            throw new FoldTrainingException(e);
+        }
+    }
+
+    private record TrainedFold(Instances train, Classifier model) {
+    }
+
+    /**
+     * Carries the checked exception of a failed fold out of the worker thread, such that it can be rethrown unchanged.
+     */
+    private static final class FoldTrainingException extends RuntimeException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        FoldTrainingException(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
 }
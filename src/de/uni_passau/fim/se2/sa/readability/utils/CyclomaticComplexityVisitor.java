@@ -1,85 +1,12 @@
 package de.uni_passau.fim.se2.sa.readability.utils;
 
-import com.github.javaparser.ast.expr.BinaryExpr;
-import com.github.javaparser.ast.expr.ConditionalExpr;
-import com.github.javaparser.ast.stmt.*;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-
-public class CyclomaticComplexityVisitor extends VoidVisitorAdapter<Void> {
-
-    private int complexity;
-
-    public CyclomaticComplexityVisitor(){
-        complexity = 1;
-    }
+/**
+ * Computes the cyclomatic complexity of a code snippet. The complexity is computed by a {@link MetricsVisitor}, which
+ * collects the operators and operands in the same traversal.
+ */
+public class CyclomaticComplexityVisitor extends MetricsVisitorView {
 
     public int getComplexity() {
-        return complexity;
-    }
-
-    /**
-     * The logic with help (LLM).
-     *
-     * Reference implementation: ComplexityVisitor
-     */
-
-    @Override
-    public void visit(IfStmt n, Void arg) {
-        complexity++;
-        super.visit(n, arg);
-    }
-
-    @Override
-    public void visit(ForStmt n, Void arg) {
-        complexity++;
-        super.visit(n, arg);
-    }
-
-    @Override
-    public void visit(ForEachStmt n, Void arg) {
-        complexity++;
-        super.visit(n, arg);
-    }
-
-    @Override
-    public void visit(WhileStmt n, Void arg) {
-        complexity++;
-        super.visit(n, arg);
+        return metrics.getComplexity();
     }
-
-    @Override
-    public void visit(DoStmt n, Void arg) {
-        complexity++;
-        super.visit(n, arg);
-    }
-
-    @Override
-    public void visit(SwitchEntry n, Void arg) {
-        if (!n.getLabels().isEmpty()) {
-            complexity++;
-        }
-        super.visit(n, arg);
-    }
-
-    @Override
-    public void visit(CatchClause n, Void arg) {
-        complexity++;
-        super.visit(n, arg);
-    }
-
-    @Override
-    public void visit(ConditionalExpr n, Void arg) {
-        complexity++;
-        super.visit(n, arg);
-    }
-
-    @Override
-    public void visit(BinaryExpr n, Void arg) {
-        if (n.getOperator() == BinaryExpr.Operator.AND || n.getOperator() == BinaryExpr.Operator.OR) {
-            complexity++;
-        }
-        super.visit(n, arg);
-    }
-
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of feature values on disk. A value is addressed by the SHA-256 hash of the snippet content, the
+ * identifier of the metric and the version of the metric, such that a snippet whose content did not change is not
+ * measured again and bumping {@link FeatureMetric#getVersion()} invalidates all values of that metric.
+ * <p>
+ * All values of a snippet are stored together in one entry file, so a snippet costs a single read however many metrics
+ * are computed. An entry is written to a temporary file first and then atomically moved into place. Readers thus
+ * either see a complete entry or none at all, which makes the cache safe to share between concurrent runs. If two runs
+ * add values of different metrics to the same entry concurrently, the values of one of them are lost and simply
+ * computed again in a later run.
+ * <p>
+ * The size of the cache is bounded by {@link #evict()}, which removes the least recently used entries.
+ */
+public class FeatureCache {
+
+    /**
+     * Eviction removes entries until the cache is this fraction of its maximum size, such that not every run evicts.
+     */
+    private static final double EVICTION_TARGET = 0.9;
+
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory the directory of the cache, created if it does not exist.
+     * @param maxBytes  the maximum size of the cache on disk.
+     * @throws IOException if the cache directory could not be created.
+     */
+    public FeatureCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The maximum size of the cache must be positive.");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The cached values of a single snippet. Values added by {@link #put(FeatureMetric, double)} are written by
+     * {@link #store(Entry)}.
+     */
+    public final class Entry {
+
+        private final String contentHash;
+        private final Map<String, Double> values;
+        private boolean modified;
+
+        private Entry(String contentHash, Map<String, Double> values) {
+            this.contentHash = contentHash;
+            this.values = values;
+        }
+
+        /**
+         * Looks up the value of a metric.
+         *
+         * @param metric the metric to look up.
+         * @return the cached value or an empty optional if the value is not cached.
+         */
+        public OptionalDouble get(FeatureMetric metric) {
+            Double value = values.get(key(metric));
+            if (value == null) {
+                misses.incrementAndGet();
+                return OptionalDouble.empty();
+            }
+            hits.incrementAndGet();
+            return OptionalDouble.of(value);
+        }
+
+        /**
+         * Adds the value of a metric to the entry.
+         *
+         * @param metric the metric the value belongs to.
+         * @param value  the value of the metric.
+         */
+        public void put(FeatureMetric metric, double value) {
+            values.put(key(metric), value);
+            modified = true;
+        }
+    }
+
+    /**
+     * Computes the content hash that addresses the values of a snippet.
+     *
+     * @param codeSnippet the code of the snippet.
+     * @return the SHA-256 hash of the snippet as a hex String.
+     */
+    public static String hash(String codeSnippet) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(codeSnippet.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Reads the cached values of the snippet with the given content hash and marks them as recently used.
+     * An entry that is missing or cannot be read is treated as empty.
+     *
+     * @param contentHash the hash of the snippet computed by {@link #hash(String)}.
+     * @return the cached values of the snippet.
+     */
+    public Entry load(String contentHash) {
+        Path path = entryPath(contentHash);
+        Map<String, Double> values = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                values.put(in.readUTF(), in.readDouble());
+            }
+            touch(path);
+        } catch (IOException e) {
+            // a missing or corrupt entry is measured again and overwritten
+            values.clear();
+        }
+        return new Entry(contentHash, values);
+    }
+
+    /**
+     * Writes an entry if values were added to it since it was loaded.
+     * Failing to store an entry is not an error, its values are simply computed again in the next run.
+     *
+     * @param entry the entry returned by {@link #load(String)}.
+     */
+    public void store(Entry entry) {
+        if (!entry.modified) {
+            return;
+        }
+        Path path = entryPath(entry.contentHash);
+        Path temp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(entry.values.size());
+                for (Map.Entry<String, Double> value : entry.values.entrySet()) {
+                    out.writeUTF(value.getKey());
+                    out.writeDouble(value.getValue());
+                }
+            }
+            Files.createDirectories(path.getParent());
+            temp = Files.createTempFile(path.getParent(), TEMP_PREFIX, null);
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            entry.modified = false;
+        } catch (IOException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // a leftover temporary file is removed by the next eviction
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the size of the entry files fits into the maximum size of the
+     * cache. Entries that are removed concurrently by another run are skipped.
+     *
+     * @return the number of removed entries.
+     * @throws IOException if the cache directory could not be traversed.
+     */
+    public int evict() throws IOException {
+        List<CacheFile> files = new ArrayList<>();
+        long size = 0;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) walk::iterator) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        files.add(new CacheFile(path, attributes.lastModifiedTime(), attributes.size()));
+                        size += attributes.size();
+                    }
+                } catch (NoSuchFileException ignored) {
+                    // removed by a concurrent run
+                }
+            }
+        }
+
+        if (size <= maxBytes) {
+            return 0;
+        }
+        files.sort(Comparator.comparing(CacheFile::lastUsed));
+        long target = (long) (maxBytes * EVICTION_TARGET);
+        int removed = 0;
+        for (CacheFile file : files) {
+            if (size <= target) {
+                break;
+            }
+            if (Files.deleteIfExists(file.path())) {
+                removed++;
+            }
+            size -= file.size();
+        }
+        return removed;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private Path entryPath(String contentHash) {
+        return directory.resolve(contentHash.substring(0, 2)).resolve(contentHash);
+    }
+
+    private static String key(FeatureMetric metric) {
+        return metric.getIdentifier() + "-v" + metric.getVersion();
+    }
+
+    /**
+     * Marks an entry as recently used for the eviction.
+     */
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // the entry is only evicted earlier than necessary
+        }
+    }
+
+    private record CacheFile(Path path, FileTime lastUsed, long size) {
+    }
+}
@@ -0,0 +1,112 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the rows of a feature csv written by the preprocessing, i.e. a csv with the header
+ * [File, feature1, feature2, ..., Truth] and numeric feature values.
+ */
+class FeatureCsvReader implements FeatureRowReader {
+
+    static final String FILE_ATTRIBUTE = "File";
+    static final String TRUTH_ATTRIBUTE = "Truth";
+
+    private final File csv;
+    private final BufferedReader reader;
+    private final int columnCount;
+    private final List<String> featureIdentifiers;
+    private int rowCount;
+
+    /**
+     * @param csv the feature csv.
+     * @throws IOException if the csv could not be read or does not have the expected header.
+     */
+    FeatureCsvReader(File csv) throws IOException {
+        this.csv = csv;
+        this.reader = Files.newBufferedReader(csv.toPath(), StandardCharsets.UTF_8);
+        try {
+            String[] columns = splitHeader(reader.readLine());
+            if (columns == null) {
+                throw new IOException(csv + " does not have the header [File, feature1, feature2, ..., Truth].");
+            }
+            this.columnCount = columns.length;
+            this.featureIdentifiers = List.copyOf(Arrays.asList(columns).subList(1, columns.length - 1));
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the first line of the given file is the header of a feature csv.
+     *
+     * @param file the file to check.
+     * @return {@code true} if the file starts with the header [File, feature1, feature2, ..., Truth].
+     * @throws IOException if the file could not be read.
+     */
+    static boolean hasFeatureHeader(File file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return splitHeader(reader.readLine()) != null;
+        }
+    }
+
+    private static String[] splitHeader(String header) {
+        String[] columns = header == null ? new String[0] : header.split(",");
+        if (columns.length < 2 || !columns[0].equals(FILE_ATTRIBUTE) || !columns[columns.length - 1].equals(TRUTH_ATTRIBUTE)) {
+            return null;
+        }
+        return columns;
+    }
+
+    @Override
+    public List<String> featureIdentifiers() {
+        return featureIdentifiers;
+    }
+
+    /**
+     * Reads the next row, empty lines are skipped.
+     *
+     * @return the next row or {@code null} if the csv has no more rows.
+     * @throws IOException if the csv could not be read or the row is malformed.
+     */
+    @Override
+    public FeatureRow next() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.isEmpty()) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        rowCount++;
+        String[] cells = line.split(",", -1);
+        if (cells.length != columnCount) {
+            throw new IOException("Row " + rowCount + " of " + csv + " has " + cells.length
+                    + " instead of " + columnCount + " columns.");
+        }
+        double[] values = new double[featureIdentifiers.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = parseValue(cells[i + 1]);
+        }
+        return new FeatureRow(cells[0], values, cells[cells.length - 1]);
+    }
+
+    private double parseValue(String cell) throws IOException {
+        try {
+            return Double.parseDouble(cell);
+        } catch (NumberFormatException e) {
+            throw new IOException("Row " + rowCount + " of " + csv + " contains the non-numeric value '" + cell + "'.");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,72 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A dataset of feature values written by the preprocessing, loaded with the knowledge of its schema.
+ * <p>
+ * The csv loader of Weka turns the File column into a nominal attribute with one value per snippet, from which a
+ * classifier learns one parameter per snippet. Here, the file names are kept apart from the dataset as the ids of its
+ * rows, only the feature metrics are numeric attributes and Truth is the nominal class attribute with its labels in the
+ * order of their first appearance.
+ *
+ * @param instances the dataset with the attributes [feature1, feature2, ..., Truth] and Truth as class attribute.
+ * @param files     the file names of the snippets, in the order of the instances.
+ */
+public record FeatureDataset(Instances instances, List<String> files) {
+
+    /**
+     * Checks whether the given file has the schema of the preprocessing, i.e. whether it is a feature file, a feature
+     * matrix or a csv with the header [File, feature1, feature2, ..., Truth].
+     *
+     * @param data the file to check.
+     * @return {@code true} if the file can be loaded by {@link #load(File)}.
+     * @throws IOException if the file could not be read.
+     */
+    public static boolean hasFeatureSchema(File data) throws IOException {
+        return FeatureFile.isFeatureFile(data) || FeatureMatrix.isFeatureMatrix(data)
+                || FeatureCsvReader.hasFeatureHeader(data);
+    }
+
+    /**
+     * Loads a feature csv, a feature file or a feature matrix written by the preprocessing. The dataset is named after the file like
+     * by the csv loader.
+     *
+     * @param data the feature csv, feature file or feature matrix.
+     * @return the loaded dataset and the file names of its rows.
+     * @throws IOException if the file could not be read or does not have the schema of the preprocessing.
+     */
+    public static FeatureDataset load(File data) throws IOException {
+        List<String> files = new ArrayList<>();
+        if (FeatureMatrix.isFeatureMatrix(data)) {
+            Instances instances;
+            try (FeatureMatrix matrix = FeatureMatrix.open(data)) {
+                instances = matrix.toInstances(FeatureFile.relationName(data), FeatureFile.ROW_GROUP_SIZE);
+            }
+            try (FeatureRowReader reader = FeatureRowReader.open(data)) {
+                for (FeatureRow row = reader.next(); row != null; row = reader.next()) {
+                    files.add(row.file());
+                }
+            }
+            return new FeatureDataset(instances, List.copyOf(files));
+        }
+        if (FeatureFile.isFeatureFile(data)) {
+            FeatureFile.Columns columns = FeatureFile.read(data);
+            return new FeatureDataset(columns.toInstances(FeatureFile.relationName(data)), List.copyOf(columns.files()));
+        }
+        InstancesBuilder builder;
+        try (FeatureCsvReader reader = new FeatureCsvReader(data)) {
+            builder = new InstancesBuilder(FeatureFile.relationName(data), reader.featureIdentifiers());
+            for (FeatureRow row = reader.next(); row != null; row = reader.next()) {
+                builder.accept(row);
+                files.add(row.file());
+            }
+        }
+        return new FeatureDataset(builder.build(), List.copyOf(files));
+    }
+}
@@ -0,0 +1,420 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A binary, column-oriented alternative to the feature csv, which is loaded without parsing text or guessing types.
+ * <p>
+ * The file starts with the magic bytes {@code RDFEAT01} and the number and names of the features. The rows follow in
+ * row groups of up to {@value #ROW_GROUP_SIZE} rows. A row group starts with its number of rows, followed by the file
+ * names of its rows, one column of doubles per feature, and the index of the truth label of each row. A row group with
+ * zero rows ends the rows and is followed by the truth labels in the order of their first appearance. Strings are
+ * written in modified UTF-8 as by {@link DataOutput#writeUTF(String)}, all numbers are big-endian.
+ * <p>
+ * A feature file is loaded as a dataset by {@link FeatureDataset#load(File)}, which keeps the file names apart from the
+ * attributes exactly as for the csv with the same rows.
+ */
+public class FeatureFile {
+
+    static final int ROW_GROUP_SIZE = 4096;
+
+    private static final byte[] MAGIC = "RDFEAT01".getBytes(StandardCharsets.US_ASCII);
+
+    private FeatureFile() {
+    }
+
+    /**
+     * Writes rows into a feature file. The values are rounded to two decimal places like in the csv, such that both
+     * formats hold the same values. The rows are buffered per row group, the file is completed when the writer is closed.
+     */
+    public static class Writer implements FeatureSink, Closeable {
+
+        private final DataOutputStream out;
+        private final int featureCount;
+        private final Map<String, Integer> labels = new LinkedHashMap<>();
+        private final String[] files = new String[ROW_GROUP_SIZE];
+        private final double[][] columns;
+        private final int[] labelIndices = new int[ROW_GROUP_SIZE];
+        private int rows;
+
+        /**
+         * @param out                the destination of the feature file.
+         * @param featureIdentifiers the names of the features.
+         * @throws IOException if the header could not be written.
+         */
+        public Writer(OutputStream out, List<String> featureIdentifiers) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            this.featureCount = featureIdentifiers.size();
+            this.columns = new double[featureCount][ROW_GROUP_SIZE];
+            this.out.write(MAGIC);
+            this.out.writeInt(featureCount);
+            for (String identifier : featureIdentifiers) {
+                this.out.writeUTF(identifier);
+            }
+        }
+
+        @Override
+        public void accept(FeatureRow row) throws IOException {
+            if (row.values().length != featureCount) {
+                throw new IllegalArgumentException("Expected " + featureCount + " feature values but got "
+                        + row.values().length + ".");
+            }
+            files[rows] = row.file();
+            for (int i = 0; i < featureCount; i++) {
+                columns[i][rows] = Preprocess.roundTwoDecimals(row.values()[i]);
+            }
+            labelIndices[rows] = labels.computeIfAbsent(row.truth(), label -> labels.size());
+            rows++;
+            if (rows == ROW_GROUP_SIZE) {
+                flushRowGroup();
+            }
+        }
+
+        private void flushRowGroup() throws IOException {
+            out.writeInt(rows);
+            for (int i = 0; i < rows; i++) {
+                out.writeUTF(files[i]);
+            }
+            for (double[] column : columns) {
+                for (int i = 0; i < rows; i++) {
+                    out.writeDouble(column[i]);
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeInt(labelIndices[i]);
+            }
+            rows = 0;
+        }
+
+        /**
+         * Writes the remaining rows and the truth labels, and closes the destination.
+         *
+         * @throws IOException if the file could not be completed.
+         */
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                if (rows > 0) {
+                    flushRowGroup();
+                }
+                out.writeInt(0);
+                out.writeInt(labels.size());
+                for (String label : labels.keySet()) {
+                    out.writeUTF(label);
+                }
+            }
+        }
+    }
+
+    /**
+     * The content of a feature file, stored column by column.
+     */
+    record Columns(List<String> featureIdentifiers, List<String> files, double[][] values, int[] labelIndices,
+                           List<String> labels) {
+
+        int rowCount() {
+            return files.size();
+        }
+
+        /**
+         * Creates a dataset straight from the columns, without a {@link FeatureRow} per row. The labels are ordered by
+         * their first appearance, like in a dataset loaded from the csv.
+         *
+         * @param relationName the name of the dataset.
+         * @return the dataset with the attributes [feature1, feature2, ..., Truth] and Truth as class attribute.
+         */
+        Instances toInstances(String relationName) {
+            int featureCount = featureIdentifiers.size();
+            int[] classValues = new int[labels.size()];
+            Arrays.fill(classValues, -1);
+            ArrayList<String> classLabels = new ArrayList<>();
+            for (int row = 0; row < rowCount(); row++) {
+                int label = labelIndices[row];
+                if (classValues[label] < 0) {
+                    classValues[label] = classLabels.size();
+                    classLabels.add(labels.get(label));
+                }
+            }
+            ArrayList<Attribute> attributes = new ArrayList<>();
+            for (String identifier : featureIdentifiers) {
+                attributes.add(new Attribute(identifier));
+            }
+            attributes.add(new Attribute(FeatureCsvReader.TRUTH_ATTRIBUTE, classLabels));
+
+            Instances dataset = new Instances(relationName, attributes, rowCount());
+            dataset.setClassIndex(featureCount);
+            for (int row = 0; row < rowCount(); row++) {
+                double[] instance = new double[featureCount + 1];
+                for (int feature = 0; feature < featureCount; feature++) {
+                    instance[feature] = values[feature][row];
+                }
+                instance[featureCount] = classValues[labelIndices[row]];
+                dataset.add(new DenseInstance(1.0, instance));
+            }
+            return dataset;
+        }
+    }
+
+    /**
+     * Reads the rows of a feature file one row group at a time. Since the truth labels follow the rows, the file is
+     * read twice: the first pass only skips over the row groups to reach the labels.
+     */
+    static class RowReader implements FeatureRowReader {
+
+        private final File file;
+        private final DataInputStream in;
+        private final List<String> featureIdentifiers;
+        private final List<String> labels;
+        private final String[] files = new String[ROW_GROUP_SIZE];
+        private final double[][] columns;
+        private final int[] labelIndices = new int[ROW_GROUP_SIZE];
+        private int rows;
+        private int position;
+        private boolean finished;
+
+        /**
+         * @param file the feature file.
+         * @throws IOException if the file could not be read or is not a feature file.
+         */
+        RowReader(File file) throws IOException {
+            this.file = file;
+            List<String> identifiers = new ArrayList<>();
+            try (DataInputStream labelPass = openAtRows(file, identifiers)) {
+                long columnBytes = (long) identifiers.size() * Double.BYTES + Integer.BYTES;
+                for (int rows = labelPass.readInt(); rows > 0; rows = labelPass.readInt()) {
+                    for (int row = 0; row < rows; row++) {
+                        labelPass.skipNBytes(labelPass.readUnsignedShort());
+                    }
+                    labelPass.skipNBytes(rows * columnBytes);
+                }
+                this.labels = readLabels(labelPass);
+            } catch (EOFException e) {
+                throw new IOException(file + " is truncated.", e);
+            }
+            this.featureIdentifiers = List.copyOf(identifiers);
+            this.columns = new double[identifiers.size()][ROW_GROUP_SIZE];
+            this.in = openAtRows(file, new ArrayList<>());
+        }
+
+        @Override
+        public List<String> featureIdentifiers() {
+            return featureIdentifiers;
+        }
+
+        @Override
+        public FeatureRow next() throws IOException {
+            if (position == rows && !finished) {
+                readRowGroup();
+            }
+            if (position == rows) {
+                return null;
+            }
+            double[] values = new double[columns.length];
+            for (int feature = 0; feature < values.length; feature++) {
+                values[feature] = columns[feature][position];
+            }
+            FeatureRow row = new FeatureRow(files[position], values, labels.get(labelIndices[position]));
+            position++;
+            return row;
+        }
+
+        private void readRowGroup() throws IOException {
+            try {
+                rows = in.readInt();
+                position = 0;
+                if (rows == 0) {
+                    finished = true;
+                    return;
+                }
+                if (rows < 0 || rows > ROW_GROUP_SIZE) {
+                    throw new IOException(file + " has a corrupt row group of " + rows + " rows.");
+                }
+                for (int row = 0; row < rows; row++) {
+                    files[row] = in.readUTF();
+                }
+                for (double[] column : columns) {
+                    for (int row = 0; row < rows; row++) {
+                        column[row] = in.readDouble();
+                    }
+                }
+                for (int row = 0; row < rows; row++) {
+                    labelIndices[row] = in.readInt();
+                    if (labelIndices[row] < 0 || labelIndices[row] >= labels.size()) {
+                        throw new IOException(file + " has a corrupt truth label.");
+                    }
+                }
+            } catch (EOFException e) {
+                throw new IOException(file + " is truncated.", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Checks whether the given file starts with the magic bytes of a feature file.
+     *
+     * @param file the file to check.
+     * @return {@code true} if the file is a feature file, {@code false} e.g. for a csv.
+     * @throws IOException if the file could not be read.
+     */
+    public static boolean isFeatureFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * Names a dataset after its file without the extension, like the csv loader does.
+     */
+    static String relationName(File file) {
+        String name = file.getName();
+        int extension = name.lastIndexOf('.');
+        return extension > 0 ? name.substring(0, extension) : name;
+    }
+
+    /**
+     * Reads the content of a feature file column by column.
+     *
+     * @param file the feature file.
+     * @return the columns of the file.
+     * @throws IOException if the file could not be read or is not a feature file.
+     */
+    static Columns read(File file) throws IOException {
+        List<String> featureIdentifiers = new ArrayList<>();
+        try (DataInputStream in = openAtRows(file, featureIdentifiers)) {
+            int featureCount = featureIdentifiers.size();
+            List<String> files = new ArrayList<>();
+            double[][] values = new double[featureCount][ROW_GROUP_SIZE];
+            int[] labelIndices = new int[ROW_GROUP_SIZE];
+            for (int rows = in.readInt(); rows > 0; rows = in.readInt()) {
+                if (rows > ROW_GROUP_SIZE) {
+                    throw new IOException(file + " has a corrupt row group of " + rows + " rows.");
+                }
+                int start = files.size();
+                int end = start + rows;
+                if (end > labelIndices.length) {
+                    int capacity = Math.max(end, labelIndices.length * 2);
+                    for (int feature = 0; feature < featureCount; feature++) {
+                        values[feature] = Arrays.copyOf(values[feature], capacity);
+                    }
+                    labelIndices = Arrays.copyOf(labelIndices, capacity);
+                }
+                for (int row = 0; row < rows; row++) {
+                    files.add(in.readUTF());
+                }
+                for (int feature = 0; feature < featureCount; feature++) {
+                    double[] column = values[feature];
+                    for (int row = start; row < end; row++) {
+                        column[row] = in.readDouble();
+                    }
+                }
+                for (int row = start; row < end; row++) {
+                    labelIndices[row] = in.readInt();
+                }
+            }
+
+            List<String> labels = readLabels(in);
+            int labelCount = labels.size();
+            for (int row = 0; row < files.size(); row++) {
+                if (labelIndices[row] < 0 || labelIndices[row] >= labelCount) {
+                    throw new IOException(file + " has a corrupt truth label in row " + row + ".");
+                }
+            }
+            return new Columns(featureIdentifiers, files, values, labelIndices, labels);
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated.", e);
+        }
+    }
+
+    /**
+     * Opens a feature file and reads its header up to the first row group.
+     *
+     * @param file               the feature file.
+     * @param featureIdentifiers receives the names of the features.
+     * @return the stream positioned at the first row group.
+     * @throws IOException if the file could not be read or is not a feature file.
+     */
+    private static DataInputStream openAtRows(File file, List<String> featureIdentifiers) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a feature file.");
+            }
+            int featureCount = in.readInt();
+            for (int i = 0; i < featureCount; i++) {
+                featureIdentifiers.add(in.readUTF());
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e instanceof EOFException ? new IOException(file + " is truncated.", e) : e;
+        }
+    }
+
+    private static List<String> readLabels(DataInputStream in) throws IOException {
+        int labelCount = in.readInt();
+        List<String> labels = new ArrayList<>(labelCount);
+        for (int i = 0; i < labelCount; i++) {
+            labels.add(in.readUTF());
+        }
+        return labels;
+    }
+
+    /**
+     * Converts a feature csv written by the preprocessing into a feature file.
+     *
+     * @param csv    the csv with the header [File, feature1, feature2, ..., Truth].
+     * @param target the feature file to write.
+     * @return the number of converted rows.
+     * @throws IOException if the csv could not be read, does not have the expected header, or the target could not
+     *                     be written.
+     */
+    public static int csvToFeatureFile(File csv, File target) throws IOException {
+        try (FeatureCsvReader reader = new FeatureCsvReader(csv);
+             Writer writer = new Writer(new FileOutputStream(target), reader.featureIdentifiers())) {
+            int rowCount = 0;
+            for (FeatureRow row = reader.next(); row != null; row = reader.next()) {
+                writer.accept(row);
+                rowCount++;
+            }
+            return rowCount;
+        }
+    }
+
+    /**
+     * Writes the content of a feature file as a feature csv, exactly as the preprocessing writes it.
+     *
+     * @param featureFile the feature file.
+     * @param csv         the destination of the csv.
+     * @return the number of converted rows.
+     * @throws IOException if the feature file could not be read or the csv could not be written.
+     */
+    public static int featureFileToCsv(File featureFile, Appendable csv) throws IOException {
+        Columns columns = read(featureFile);
+        Preprocess.appendCSVHeader(csv, columns.featureIdentifiers());
+        double[] values = new double[columns.featureIdentifiers().size()];
+        for (int row = 0; row < columns.rowCount(); row++) {
+            for (int feature = 0; feature < values.length; feature++) {
+                values[feature] = columns.values()[feature][row];
+            }
+            String label = columns.labels().get(columns.labelIndices()[row]);
+            Preprocess.appendCSVRow(csv, new FeatureRow(columns.files().get(row), values, label));
+        }
+        return columns.rowCount();
+    }
+}
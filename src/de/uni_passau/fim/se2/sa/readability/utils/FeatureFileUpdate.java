@@ -0,0 +1,142 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Updates an existing feature csv, feature file or feature matrix with the rows of the snippets that changed since it was written,
+ * see {@link GitChanges}. The rows of changed and deleted snippets are dropped, the new rows are merged in the order of
+ * the preprocessing. The existing file is streamed into a temporary file next to it, which then replaces it, so the
+ * file is never left half-written.
+ */
+public class FeatureFileUpdate implements FeatureSink {
+
+    private final File target;
+    private final List<String> featureIdentifiers;
+    private final List<FeatureRow> rows = new ArrayList<>();
+
+    /**
+     * @param target             the feature csv, feature file or feature matrix to update.
+     * @param featureIdentifiers the names of the features of the new rows.
+     */
+    public FeatureFileUpdate(File target, List<String> featureIdentifiers) {
+        this.target = target;
+        this.featureIdentifiers = List.copyOf(featureIdentifiers);
+    }
+
+    /**
+     * Collects a new row, which replaces the existing row of the same snippet.
+     *
+     * @param row the feature values of a changed snippet.
+     */
+    @Override
+    public void accept(FeatureRow row) {
+        if (row.values().length != featureIdentifiers.size()) {
+            throw new IllegalArgumentException("Expected " + featureIdentifiers.size() + " feature values but got "
+                    + row.values().length + ".");
+        }
+        rows.add(row);
+    }
+
+    /**
+     * Rewrites the target with the collected rows.
+     *
+     * @param obsoleteFiles the file names of all snippets whose existing rows are dropped, i.e. the changed and the
+     *                      deleted ones. Changed snippets that did not result in a new row are thereby removed as well.
+     * @return the number of rows of the updated target.
+     * @throws IOException if the target could not be read, was written with other features or in another order, or
+     *                     could not be replaced.
+     */
+    public int apply(Set<String> obsoleteFiles) throws IOException {
+        Path targetPath = target.toPath();
+        Path temporary = targetPath.resolveSibling(target.getName() + ".tmp");
+        boolean binary = FeatureFile.isFeatureFile(target);
+        boolean matrix = FeatureMatrix.isFeatureMatrix(target);
+        List<FeatureRow> sorted = new ArrayList<>(rows);
+        sorted.sort((first, second) -> SnippetDiscovery.compareNames(first.file(), second.file()));
+
+        int rowCount;
+        FeatureRowReader existing = FeatureRowReader.open(target);
+        try (FeatureMerger merger = new FeatureMerger(List.of(target.toString(), "the changed snippets"),
+                List.of(without(existing, obsoleteFiles), of(featureIdentifiers, sorted.iterator())))) {
+            if (matrix) {
+                try (FeatureMatrix.Writer writer = new FeatureMatrix.Writer(temporary.toFile(),
+                        merger.featureIdentifiers())) {
+                    rowCount = merger.mergeInto(writer);
+                }
+            } else if (binary) {
+                try (FeatureFile.Writer writer = new FeatureFile.Writer(new FileOutputStream(temporary.toFile()),
+                        merger.featureIdentifiers())) {
+                    rowCount = merger.mergeInto(writer);
+                }
+            } else {
+                try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    Preprocess.appendCSVHeader(writer, merger.featureIdentifiers());
+                    rowCount = merger.mergeInto(row -> Preprocess.appendCSVRow(writer, row));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rowCount;
+    }
+
+    /**
+     * Skips the rows of the given snippets.
+     */
+    private static FeatureRowReader without(FeatureRowReader reader, Set<String> files) {
+        return new FeatureRowReader() {
+            @Override
+            public List<String> featureIdentifiers() {
+                return reader.featureIdentifiers();
+            }
+
+            @Override
+            public FeatureRow next() throws IOException {
+                FeatureRow row = reader.next();
+                while (row != null && files.contains(row.file())) {
+                    row = reader.next();
+                }
+                return row;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * Reads rows held in memory.
+     */
+    private static FeatureRowReader of(List<String> featureIdentifiers, Iterator<FeatureRow> rows) {
+        return new FeatureRowReader() {
+            @Override
+            public List<String> featureIdentifiers() {
+                return featureIdentifiers;
+            }
+
+            @Override
+            public FeatureRow next() {
+                return rows.hasNext() ? rows.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
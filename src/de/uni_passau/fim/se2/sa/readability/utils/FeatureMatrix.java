@@ -0,0 +1,463 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.google.common.io.CountingInputStream;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A matrix of feature values in a memory-mapped file, for datasets with too many rows to hold them as objects on the
+ * heap. The values are stored as primitive doubles column by column, and are only paged in by the operating system as
+ * they are read.
+ * <p>
+ * The file starts with a header: the magic bytes {@code RDMATX01}, the length of the header, the number of features,
+ * the number of rows, the names of the features and the truth labels in the order of their first appearance, padded to
+ * a multiple of eight bytes. It is followed by one column of doubles per feature, one column with the index of the
+ * truth label of each row as int, and the file names of the rows. Strings are written in modified UTF-8 as by
+ * {@link DataOutput#writeUTF(String)}, all numbers are big-endian.
+ * <p>
+ * An opened matrix takes 8 bytes per row and feature and 4 bytes per row for the labels, all outside the heap. The file
+ * names are only read by {@link #openRows(File)}.
+ */
+public class FeatureMatrix implements Closeable {
+
+    /**
+     * The number of rows a column of a single mapping can hold.
+     */
+    static final int MAX_ROWS = Integer.MAX_VALUE / Double.BYTES;
+
+    private static final byte[] MAGIC = "RDMATX01".getBytes(StandardCharsets.US_ASCII);
+
+    private final File file;
+    private final FileChannel channel;
+    private final List<String> featureIdentifiers;
+    private final List<String> labels;
+    private final int rowCount;
+    private final DoubleBuffer[] columns;
+    private final IntBuffer labelIndices;
+    private final long filesOffset;
+
+    private FeatureMatrix(File file, FileChannel channel, List<String> featureIdentifiers, List<String> labels,
+                          int rowCount, long dataOffset) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.featureIdentifiers = List.copyOf(featureIdentifiers);
+        this.labels = List.copyOf(labels);
+        this.rowCount = rowCount;
+        long columnBytes = (long) rowCount * Double.BYTES;
+        this.columns = new DoubleBuffer[featureIdentifiers.size()];
+        for (int feature = 0; feature < columns.length; feature++) {
+            columns[feature] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + feature * columnBytes, columnBytes)
+                    .asDoubleBuffer();
+        }
+        long labelsOffset = dataOffset + columns.length * columnBytes;
+        this.labelIndices = channel.map(FileChannel.MapMode.READ_ONLY, labelsOffset, (long) rowCount * Integer.BYTES)
+                .asIntBuffer();
+        this.filesOffset = labelsOffset + (long) rowCount * Integer.BYTES;
+    }
+
+    /**
+     * Writes rows into a feature matrix. The values are rounded to two decimal places like in the csv, such that all
+     * formats hold the same values.
+     * <p>
+     * Each column is streamed into a temporary file next to the target, so the writer only holds a buffer per column.
+     * The columns are joined into the target when the writer is closed.
+     */
+    public static class Writer implements FeatureSink, Closeable {
+
+        private final File target;
+        private final List<String> featureIdentifiers;
+        private final List<Path> parts = new ArrayList<>();
+        private final DataOutputStream[] columns;
+        private final DataOutputStream labelIndices;
+        private final DataOutputStream files;
+        private final Map<String, Integer> labels = new LinkedHashMap<>();
+        private int rows;
+
+        /**
+         * @param target             the feature matrix to write.
+         * @param featureIdentifiers the names of the features.
+         * @throws IOException if the temporary files could not be created.
+         */
+        public Writer(File target, List<String> featureIdentifiers) throws IOException {
+            this.target = target;
+            this.featureIdentifiers = List.copyOf(featureIdentifiers);
+            this.columns = new DataOutputStream[featureIdentifiers.size()];
+            try {
+                for (int feature = 0; feature < columns.length; feature++) {
+                    columns[feature] = openPart();
+                }
+                this.labelIndices = openPart();
+                this.files = openPart();
+            } catch (IOException e) {
+                deleteParts();
+                throw e;
+            }
+        }
+
+        private DataOutputStream openPart() throws IOException {
+            Path directory = target.getAbsoluteFile().toPath().getParent();
+            Path part = Files.createTempFile(directory, target.getName(), ".part");
+            parts.add(part);
+            return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part), 1 << 16));
+        }
+
+        @Override
+        public void accept(FeatureRow row) throws IOException {
+            if (row.values().length != columns.length) {
+                throw new IllegalArgumentException("Expected " + columns.length + " feature values but got "
+                        + row.values().length + ".");
+            }
+            if (rows == MAX_ROWS) {
+                throw new IOException("A feature matrix cannot hold more than " + MAX_ROWS + " rows.");
+            }
+            for (int feature = 0; feature < columns.length; feature++) {
+                columns[feature].writeDouble(Preprocess.roundTwoDecimals(row.values()[feature]));
+            }
+            labelIndices.writeInt(labels.computeIfAbsent(row.truth(), label -> labels.size()));
+            files.writeUTF(row.file());
+            rows++;
+        }
+
+        /**
+         * Writes the header and joins the columns into the target.
+         *
+         * @throws IOException if the target could not be written.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                for (DataOutputStream column : columns) {
+                    column.close();
+                }
+                labelIndices.close();
+                files.close();
+                try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.wrap(header());
+                    while (header.hasRemaining()) {
+                        out.write(header);
+                    }
+                    for (Path part : parts) {
+                        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                            long size = in.size();
+                            for (long position = 0; position < size; ) {
+                                position += in.transferTo(position, size - position, out);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                deleteParts();
+            }
+        }
+
+        private byte[] header() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.write(MAGIC);
+            header.writeInt(0);
+            header.writeInt(featureIdentifiers.size());
+            header.writeLong(rows);
+            for (String identifier : featureIdentifiers) {
+                header.writeUTF(identifier);
+            }
+            header.writeInt(labels.size());
+            for (String label : labels.keySet()) {
+                header.writeUTF(label);
+            }
+            while (header.size() % Double.BYTES != 0) {
+                header.writeByte(0);
+            }
+            header.flush();
+            ByteBuffer result = ByteBuffer.wrap(bytes.toByteArray());
+            result.putInt(MAGIC.length, result.capacity());
+            return result.array();
+        }
+
+        private void deleteParts() throws IOException {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given file starts with the magic bytes of a feature matrix.
+     *
+     * @param file the file to check.
+     * @return {@code true} if the file is a feature matrix.
+     * @throws IOException if the file could not be read.
+     */
+    public static boolean isFeatureMatrix(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * Opens a feature matrix and maps its columns into memory.
+     *
+     * @param file the feature matrix.
+     * @return the opened matrix, which must be closed.
+     * @throws IOException if the file could not be read or is not a complete feature matrix.
+     */
+    public static FeatureMatrix open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            CountingInputStream header = new CountingInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel)));
+            DataInputStream in = new DataInputStream(header);
+            if (!Arrays.equals(in.readNBytes(MAGIC.length), MAGIC)) {
+                throw new IOException(file + " is not a feature matrix.");
+            }
+            int headerLength = in.readInt();
+            int featureCount = in.readInt();
+            long rowCount = in.readLong();
+            if (featureCount < 0 || rowCount < 0 || rowCount > MAX_ROWS) {
+                throw new IOException(file + " has a corrupt header.");
+            }
+            List<String> featureIdentifiers = new ArrayList<>(featureCount);
+            for (int i = 0; i < featureCount; i++) {
+                featureIdentifiers.add(in.readUTF());
+            }
+            int labelCount = in.readInt();
+            List<String> labels = new ArrayList<>(labelCount);
+            for (int i = 0; i < labelCount; i++) {
+                labels.add(in.readUTF());
+            }
+            if (headerLength < header.getCount()) {
+                throw new IOException(file + " has a corrupt header.");
+            }
+            long dataBytes = rowCount * ((long) featureCount * Double.BYTES + Integer.BYTES);
+            if (channel.size() < headerLength + dataBytes) {
+                throw new IOException(file + " is truncated.");
+            }
+            return new FeatureMatrix(file, channel, featureIdentifiers, labels, (int) rowCount, headerLength);
+        } catch (EOFException e) {
+            channel.close();
+            throw new IOException(file + " is truncated.", e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the names of the features in the order of the columns.
+     *
+     * @return the feature identifiers.
+     */
+    public List<String> featureIdentifiers() {
+        return featureIdentifiers;
+    }
+
+    /**
+     * Returns the truth labels, which the label indices of the rows refer to.
+     *
+     * @return the labels in the order of their first appearance.
+     */
+    public List<String> labels() {
+        return labels;
+    }
+
+    /**
+     * @return the number of rows.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns a single value.
+     *
+     * @param row     the index of the row.
+     * @param feature the index of the feature.
+     * @return the value of the feature in the row.
+     */
+    public double value(int row, int feature) {
+        return columns[feature].get(row);
+    }
+
+    /**
+     * Returns the truth label of a row.
+     *
+     * @param row the index of the row.
+     * @return the index of the label in {@link #labels()}.
+     */
+    public int labelIndex(int row) {
+        return labelIndices.get(row);
+    }
+
+    /**
+     * Copies consecutive values of a feature, which is much faster than reading them one by one. May be called
+     * concurrently.
+     *
+     * @param feature the index of the feature.
+     * @param fromRow the index of the first row to copy.
+     * @param target  the destination of the values.
+     * @param offset  the index in the destination of the first value.
+     * @param length  the number of values to copy.
+     */
+    public void readColumn(int feature, int fromRow, double[] target, int offset, int length) {
+        columns[feature].get(fromRow, target, offset, length);
+    }
+
+    /**
+     * Copies consecutive label indices like {@link #readColumn(int, int, double[], int, int)}.
+     *
+     * @param fromRow the index of the first row to copy.
+     * @param target  the destination of the label indices.
+     * @param offset  the index in the destination of the first label index.
+     * @param length  the number of label indices to copy.
+     */
+    public void readLabelIndices(int fromRow, int[] target, int offset, int length) {
+        labelIndices.get(fromRow, target, offset, length);
+    }
+
+    /**
+     * Creates the dataset of the matrix like {@link FeatureDataset#load(File)}, reading the columns in batches of the
+     * given number of rows. Weka holds the instances on the heap, but no other object is created per row.
+     *
+     * @param relationName the name of the dataset.
+     * @param batchSize    the number of rows read from each column at once.
+     * @return the dataset with the attributes [feature1, feature2, ..., Truth] and Truth as class attribute.
+     */
+    public Instances toInstances(String relationName, int batchSize) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (String identifier : featureIdentifiers) {
+            attributes.add(new Attribute(identifier));
+        }
+        attributes.add(new Attribute(FeatureCsvReader.TRUTH_ATTRIBUTE, new ArrayList<>(labels)));
+
+        Instances dataset = new Instances(relationName, attributes, rowCount);
+        dataset.setClassIndex(columns.length);
+        double[][] batch = new double[columns.length][batchSize];
+        int[] batchLabels = new int[batchSize];
+        for (int start = 0; start < rowCount; start += batchSize) {
+            int rows = Math.min(batchSize, rowCount - start);
+            for (int feature = 0; feature < columns.length; feature++) {
+                readColumn(feature, start, batch[feature], 0, rows);
+            }
+            readLabelIndices(start, batchLabels, 0, rows);
+            for (int row = 0; row < rows; row++) {
+                double[] values = new double[columns.length + 1];
+                for (int feature = 0; feature < columns.length; feature++) {
+                    values[feature] = batch[feature][row];
+                }
+                values[columns.length] = batchLabels[row];
+                dataset.add(new DenseInstance(1.0, values));
+            }
+        }
+        return dataset;
+    }
+
+    /**
+     * Opens a feature matrix to read its rows one after another, together with their file names.
+     *
+     * @param file the feature matrix.
+     * @return the reader of the rows, which closes the matrix.
+     * @throws IOException if the file could not be read or is not a complete feature matrix.
+     */
+    static FeatureRowReader openRows(File file) throws IOException {
+        FeatureMatrix matrix = open(file);
+        try {
+            return matrix.rowReader();
+        } catch (IOException e) {
+            matrix.close();
+            throw e;
+        }
+    }
+
+    private FeatureRowReader rowReader() throws IOException {
+        DataInputStream files = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ).position(filesOffset)),
+                1 << 16));
+        return new FeatureRowReader() {
+            private int row;
+
+            @Override
+            public List<String> featureIdentifiers() {
+                return featureIdentifiers;
+            }
+
+            @Override
+            public FeatureRow next() throws IOException {
+                if (row == rowCount) {
+                    return null;
+                }
+                double[] values = new double[columns.length];
+                for (int feature = 0; feature < values.length; feature++) {
+                    values[feature] = value(row, feature);
+                }
+                int label = labelIndex(row);
+                if (label < 0 || label >= labels.size()) {
+                    throw new IOException(file + " has a corrupt truth label in row " + row + ".");
+                }
+                String name;
+                try {
+                    name = files.readUTF();
+                } catch (EOFException e) {
+                    throw new IOException(file + " is truncated.", e);
+                }
+                row++;
+                return new FeatureRow(name, values, labels.get(label));
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    files.close();
+                } finally {
+                    FeatureMatrix.this.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the content of a feature matrix as a feature csv, exactly as the preprocessing writes it.
+     *
+     * @param matrix the feature matrix.
+     * @param csv    the destination of the csv.
+     * @return the number of converted rows.
+     * @throws IOException if the matrix could not be read or the csv could not be written.
+     */
+    public static int featureMatrixToCsv(File matrix, Appendable csv) throws IOException {
+        try (FeatureRowReader reader = FeatureRowReader.open(matrix)) {
+            Preprocess.appendCSVHeader(csv, reader.featureIdentifiers());
+            int rowCount = 0;
+            for (FeatureRow row = reader.next(); row != null; row = reader.next()) {
+                Preprocess.appendCSVRow(csv, row);
+                rowCount++;
+            }
+            return rowCount;
+        }
+    }
+
+    /**
+     * Closes the file, the mapped columns are released once they are no longer reachable.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,152 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the feature files or csvs of several shards of a corpus into the rows of the whole corpus, in the order the
+ * preprocessing writes them, see {@link SnippetDiscovery#ORDER}.
+ * <p>
+ * Each input must already be in this order, as written by the preprocessing of a shard. The inputs are merged row by
+ * row, so only the current row of each input is held in memory. The inputs may be a mix of csvs and binary feature
+ * files, but must all have the same features.
+ */
+public final class FeatureMerger implements Closeable {
+
+    private final List<FeatureRowReader> readers;
+    private final List<String> inputs;
+    private final List<String> featureIdentifiers;
+
+    /**
+     * A row of an input together with the input it was read from.
+     */
+    private record Head(FeatureRow row, int input) {
+    }
+
+    /**
+     * Opens all inputs and checks that they have the same features.
+     *
+     * @param inputs the feature files or csvs to merge.
+     * @throws IOException if an input could not be read, or the inputs have different features.
+     */
+    public FeatureMerger(List<File> inputs) throws IOException {
+        this(inputs.stream().map(File::toString).toList(), open(inputs));
+    }
+
+    /**
+     * Merges already opened inputs, which are closed with this merger.
+     *
+     * @param inputs  the names of the inputs, used in error messages.
+     * @param readers the readers of the inputs.
+     * @throws IOException if the inputs have different features.
+     */
+    FeatureMerger(List<String> inputs, List<FeatureRowReader> readers) throws IOException {
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("At least one input is required.");
+        }
+        this.inputs = List.copyOf(inputs);
+        this.readers = List.copyOf(readers);
+        this.featureIdentifiers = readers.get(0).featureIdentifiers();
+        for (int i = 1; i < readers.size(); i++) {
+            if (!readers.get(i).featureIdentifiers().equals(featureIdentifiers)) {
+                close();
+                throw new IOException(inputs.get(i) + " has the features " + readers.get(i).featureIdentifiers()
+                        + " instead of " + featureIdentifiers + " like " + inputs.get(0) + ".");
+            }
+        }
+    }
+
+    private static List<FeatureRowReader> open(List<File> inputs) throws IOException {
+        List<FeatureRowReader> readers = new ArrayList<>();
+        try {
+            for (File input : inputs) {
+                readers.add(FeatureRowReader.open(input));
+            }
+        } catch (IOException e) {
+            for (FeatureRowReader reader : readers) {
+                reader.close();
+            }
+            throw e;
+        }
+        return readers;
+    }
+
+    /**
+     * Returns the names of the features of the inputs.
+     *
+     * @return the feature identifiers.
+     */
+    public List<String> featureIdentifiers() {
+        return featureIdentifiers;
+    }
+
+    /**
+     * Hands the rows of all inputs to the given sink in the order of the preprocessing.
+     *
+     * @param sink the destination of the merged rows.
+     * @return the number of merged rows.
+     * @throws IOException if an input could not be read or is not in the order of the preprocessing, a snippet appears
+     *                     in more than one input, or the sink could not write a row.
+     */
+    public int mergeInto(FeatureSink sink) throws IOException {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing((Head head) -> head.row().file(),
+                SnippetDiscovery::compareRows).thenComparingInt(Head::input));
+        for (int input = 0; input < readers.size(); input++) {
+            advance(heads, input, null);
+        }
+        int rowCount = 0;
+        Head previous = null;
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            String file = head.row().file();
+            if (previous != null && previous.input() != head.input()
+                    && SnippetDiscovery.compareRows(previous.row().file(), file) == 0) {
+                throw new IOException("The snippet " + file + " appears in more than one input.");
+            }
+            sink.accept(head.row());
+            rowCount++;
+            previous = head;
+            advance(heads, head.input(), file);
+        }
+        return rowCount;
+    }
+
+    private void advance(PriorityQueue<Head> heads, int input, String previous) throws IOException {
+        FeatureRow row = readers.get(input).next();
+        if (row == null) {
+            return;
+        }
+        int order = previous == null ? -1 : SnippetDiscovery.compareRows(previous, row.file());
+        // several declarations of a file may start on the same line
+        if (order > 0 || order == 0 && !SnippetDiscovery.isMethodRow(row.file())) {
+            throw new IOException(inputs.get(input) + " is not in the order of the preprocessing: " + row.file()
+                    + " follows " + previous + ".");
+        }
+        heads.add(new Head(row, input));
+    }
+
+    /**
+     * Closes all inputs.
+     *
+     * @throws IOException if an input could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FeatureRowReader reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
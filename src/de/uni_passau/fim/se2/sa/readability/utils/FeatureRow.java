@@ -0,0 +1,11 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+/**
+ * The feature values of a single snippet as produced by the preprocessing.
+ *
+ * @param file   the file name of the snippet.
+ * @param values the feature values in full precision, in the order of the feature metrics.
+ * @param truth  the truth label of the snippet, i.e. "Y" or "N".
+ */
+public record FeatureRow(String file, double[] values, String truth) {
+}
@@ -0,0 +1,46 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the rows of a feature csv, a binary feature file or a feature matrix one after another, without loading the
+ * whole file.
+ */
+interface FeatureRowReader extends Closeable {
+
+    /**
+     * Opens a feature csv, a binary feature file or a feature matrix, the format is detected from the content.
+     *
+     * @param file the file to read.
+     * @return the reader of the rows of the file.
+     * @throws IOException if the file could not be read or is neither a feature file, a feature matrix nor a feature
+     *                     csv.
+     */
+    static FeatureRowReader open(File file) throws IOException {
+        if (FeatureFile.isFeatureFile(file)) {
+            return new FeatureFile.RowReader(file);
+        }
+        if (FeatureMatrix.isFeatureMatrix(file)) {
+            return FeatureMatrix.openRows(file);
+        }
+        return new FeatureCsvReader(file);
+    }
+
+    /**
+     * Returns the names of the features in the order of the values of the rows.
+     *
+     * @return the feature identifiers.
+     */
+    List<String> featureIdentifiers();
+
+    /**
+     * Reads the next row.
+     *
+     * @return the next row or {@code null} if there are no more rows.
+     * @throws IOException if the file could not be read or the row is malformed.
+     */
+    FeatureRow next() throws IOException;
+}
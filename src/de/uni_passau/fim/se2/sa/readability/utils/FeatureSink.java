@@ -0,0 +1,29 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows computed by the preprocessing, in the order of the snippets.
+ */
+@FunctionalInterface
+public interface FeatureSink {
+
+    /**
+     * Consumes the next row.
+     *
+     * @param row the feature values of a snippet.
+     * @throws IOException if the row could not be written.
+     */
+    void accept(FeatureRow row) throws IOException;
+
+    /**
+     * Is notified of a snippet that was skipped because it exceeded its {@link SnippetBudget}, in the order of the
+     * snippets like the rows. Skipped snippets are ignored by default.
+     *
+     * @param file   the file name of the snippet.
+     * @param reason the exceeded limit.
+     * @throws IOException if the skipped snippet could not be reported.
+     */
+    default void skip(String file, String reason) throws IOException {
+    }
+}
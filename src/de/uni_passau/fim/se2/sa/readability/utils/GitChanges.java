@@ -0,0 +1,233 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The snippet files that were added, modified or deleted between two revisions of a local git repository, such that
+ * only the changed snippets have to be analyzed again. The revisions are compared with the {@code git} executable,
+ * which only reads the local repository and never contacts a remote.
+ */
+public class GitChanges {
+
+    /**
+     * How a file changed between the two revisions.
+     */
+    public enum Status {
+        ADDED,
+        MODIFIED,
+        DELETED,
+    }
+
+    /**
+     * A changed file.
+     *
+     * @param status       how the file changed.
+     * @param relativePath the path of the file relative to the analyzed directory.
+     */
+    public record Change(Status status, Path relativePath) {
+
+        /**
+         * @return the file name, which identifies the snippet in the rows.
+         */
+        public String fileName() {
+            return relativePath.getFileName().toString();
+        }
+    }
+
+    private final Path directory;
+    private final String prefix;
+    private final String toRevision;
+    private final List<Change> changes;
+
+    private GitChanges(Path directory, String prefix, String toRevision, List<Change> changes) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.toRevision = toRevision;
+        this.changes = changes;
+    }
+
+    /**
+     * Lists the files below the given directory that changed between two revisions. A renamed file is reported as
+     * deleted under its old and added under its new path.
+     *
+     * @param directory    a directory within the working tree of a git repository.
+     * @param fromRevision the revision the snippets were analyzed at, e.g. a commit hash or {@code HEAD~1}.
+     * @param toRevision   the revision to analyze, e.g. {@code HEAD}.
+     * @return the changed files.
+     * @throws IOException if git could not be run, the directory is not in a repository or a revision is unknown.
+     */
+    public static GitChanges between(Path directory, String fromRevision, String toRevision) throws IOException {
+        String prefix = new String(git(directory, "rev-parse", "--show-prefix"), StandardCharsets.UTF_8).trim();
+        byte[] diff = git(directory, "diff", "--name-status", "-z", "--no-renames", "--relative",
+                fromRevision, toRevision, "--");
+
+        // -z separates the status and the path of each file by NUL bytes
+        String[] fields = new String(diff, StandardCharsets.UTF_8).split("\0");
+        List<Change> changes = new ArrayList<>();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            Status status = switch (fields[i].charAt(0)) {
+                case 'A' -> Status.ADDED;
+                case 'D' -> Status.DELETED;
+                default -> Status.MODIFIED;
+            };
+            changes.add(new Change(status, Path.of(fields[i + 1])));
+        }
+        return new GitChanges(directory, prefix, toRevision, List.copyOf(changes));
+    }
+
+    /**
+     * @return all changed files in the order git reports them.
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the added and modified files the given discovery takes, in the order of the preprocessing.
+     *
+     * @param discovery selects the snippet files.
+     * @return the files to analyze again.
+     */
+    public List<Change> getChangedSnippets(SnippetDiscovery discovery) {
+        return changes.stream()
+                .filter(change -> change.status() != Status.DELETED && discovery.accepts(change.relativePath()))
+                .sorted((first, second) -> SnippetDiscovery.compareNames(first.fileName(), second.fileName()))
+                .toList();
+    }
+
+    /**
+     * Returns the deleted files the given discovery takes.
+     *
+     * @param discovery selects the snippet files.
+     * @return the files whose rows are obsolete.
+     */
+    public List<Change> getDeletedSnippets(SnippetDiscovery discovery) {
+        return changes.stream()
+                .filter(change -> change.status() == Status.DELETED && discovery.accepts(change.relativePath()))
+                .toList();
+    }
+
+    /**
+     * Opens a reader of the files at the analyzed revision. The files are read from the object database of the
+     * repository, not from the working tree, so the working tree does not have to be checked out at that revision.
+     *
+     * @return the reader, which must be closed.
+     * @throws IOException if git could not be started.
+     */
+    public Contents openContents() throws IOException {
+        return new Contents();
+    }
+
+    /**
+     * Reads files at the analyzed revision through a single {@code git cat-file --batch} process. Reads are
+     * serialized, so the reader can be shared by several threads.
+     */
+    public class Contents implements Closeable {
+
+        private final Process process;
+        private final OutputStream requests;
+        private final InputStream responses;
+
+        private Contents() throws IOException {
+            process = new ProcessBuilder("git", "cat-file", "--batch")
+                    .directory(directory.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            requests = process.getOutputStream();
+            responses = new BufferedInputStream(process.getInputStream(), 1 << 16);
+        }
+
+        /**
+         * Reads a changed file.
+         *
+         * @param change the file to read.
+         * @return the content of the file at the analyzed revision.
+         * @throws IOException if the file does not exist at the revision or git failed.
+         */
+        public synchronized byte[] read(Change change) throws IOException {
+            String object = toRevision + ":" + prefix + change.relativePath().toString().replace('\\', '/');
+            requests.write((object + "\n").getBytes(StandardCharsets.UTF_8));
+            requests.flush();
+
+            // the header is "<hash> blob <size>" or "<object> missing"
+            String header = readLine();
+            String[] parts = header.split(" ");
+            if (parts.length != 3 || !parts[1].equals("blob")) {
+                throw new IOException("Could not read " + object + " from git: " + header);
+            }
+            int size = Integer.parseInt(parts[2]);
+            byte[] content = responses.readNBytes(size);
+            if (content.length != size || responses.read() != '\n') {
+                throw new IOException("Could not read " + object + " from git: the output ended early.");
+            }
+            return content;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            for (int b = responses.read(); b != '\n'; b = responses.read()) {
+                if (b == -1) {
+                    throw new IOException("git cat-file exited unexpectedly.");
+                }
+                line.write(b);
+            }
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            requests.close();
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Runs git in the given directory and returns its output.
+     *
+     * @throws IOException if git could not be started or failed.
+     */
+    private static byte[] git(Path directory, String... arguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).directory(directory.toFile()).start();
+        process.getOutputStream().close();
+        CompletableFuture<byte[]> error = CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = process.getErrorStream()) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                return new byte[0];
+            }
+        });
+        byte[] output;
+        try (InputStream in = process.getInputStream()) {
+            output = in.readAllBytes();
+        }
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("git " + arguments[0] + " failed: "
+                        + new String(error.join(), StandardCharsets.UTF_8).trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Interrupted while waiting for git.", e);
+        }
+        return output;
+    }
+}
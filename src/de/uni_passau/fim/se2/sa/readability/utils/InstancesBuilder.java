@@ -0,0 +1,70 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the rows of the preprocessing into a dataset in memory, such that a classifier can be evaluated on the
+ * features without writing and parsing a csv in between.
+ * <p>
+ * The feature values are kept in full precision. The file names are not part of the dataset, since they only identify
+ * the snippets and must not be used as a feature. The truth is a nominal class attribute with its labels in the order
+ * of their first appearance, like in a dataset loaded from the csv.
+ */
+public class InstancesBuilder implements FeatureSink {
+
+    private static final String TRUTH_ATTRIBUTE = "Truth";
+
+    private final String relationName;
+    private final List<String> featureIdentifiers;
+    private final List<double[]> instances = new ArrayList<>();
+    private final Map<String, Integer> labels = new LinkedHashMap<>();
+
+    /**
+     * @param relationName       the name of the dataset.
+     * @param featureIdentifiers the names of the features, in the order of the values of the rows.
+     */
+    public InstancesBuilder(String relationName, List<String> featureIdentifiers) {
+        this.relationName = relationName;
+        this.featureIdentifiers = List.copyOf(featureIdentifiers);
+    }
+
+    @Override
+    public void accept(FeatureRow row) {
+        if (row.values().length != featureIdentifiers.size()) {
+            throw new IllegalArgumentException("Expected " + featureIdentifiers.size() + " feature values but got "
+                    + row.values().length + ".");
+        }
+        double[] instance = Arrays.copyOf(row.values(), featureIdentifiers.size() + 1);
+        instance[featureIdentifiers.size()] = labels.computeIfAbsent(row.truth(), label -> labels.size());
+        instances.add(instance);
+    }
+
+    /**
+     * Creates the dataset of all rows received so far. The instances hold the value arrays of the builder, which is
+     * meant to be built once.
+     *
+     * @return the dataset with the attributes [feature1, feature2, ..., Truth] and the truth as class attribute.
+     */
+    public Instances build() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (String identifier : featureIdentifiers) {
+            attributes.add(new Attribute(identifier));
+        }
+        attributes.add(new Attribute(TRUTH_ATTRIBUTE, new ArrayList<>(labels.keySet())));
+
+        Instances dataset = new Instances(relationName, attributes, instances.size());
+        dataset.setClassIndex(featureIdentifiers.size());
+        for (double[] instance : instances) {
+            dataset.add(new DenseInstance(1.0, instance));
+        }
+        return dataset;
+    }
+}
@@ -0,0 +1,73 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Tokenizes java snippets with the lexer of the JavaParser library without building an AST.
+ */
+public class Lexer {
+
+    /**
+     * Passes the text of each token of the given code snippet to the given action. The tokens are the same as the
+     * ones in the token range of the snippet parsed by {@link Parser#parseJavaSnippet(String)}: whitespaces and comments
+     * are included, except for the ones before the first and after the last regular token.
+     * <p>
+     * Unlike parsing, tokenizing does not check whether the snippet is syntactically valid java code.
+     *
+     * @param codeSnippet the code of the snippet.
+     * @param action      the action receiving the token texts in order.
+     * @throws ParseException if the code snippet contains characters that do not form a java token.
+     */
+    public static void forEachToken(String codeSnippet, Consumer<String> action) throws ParseException {
+        forEachToken(codeSnippet, action, SnippetBudget.Deadline.NONE);
+    }
+
+    /**
+     * Passes the text of each token to the given action like {@link #forEachToken(String, Consumer)}, but abandons the
+     * tokenizing once the given deadline has passed.
+     *
+     * @param codeSnippet the code of the snippet.
+     * @param action      the action receiving the token texts in order.
+     * @param deadline    the deadline of the tokenizing, checked every few tokens.
+     * @throws ParseException                 if the code snippet contains characters that do not form a java token.
+     * @throws SnippetBudgetExceededException if the deadline passed before the snippet was tokenized.
+     */
+    static void forEachToken(String codeSnippet, Consumer<String> action, SnippetBudget.Deadline deadline)
+            throws ParseException {
+        GeneratedJavaParserTokenManager tokenManager =
+                new GeneratedJavaParserTokenManager(new SimpleCharStream(new StringProvider(codeSnippet)));
+        Deque<String> specialTokens = new ArrayDeque<>();
+        boolean first = true;
+        try {
+            for (Token token = tokenManager.getNextToken(); token.kind != GeneratedJavaParserConstants.EOF;
+                 token = tokenManager.getNextToken()) {
+                deadline.check();
+                if (!first) {
+                    // whitespaces and comments are chained backwards to the regular token following them
+                    for (Token special = token.specialToken; special != null; special = special.specialToken) {
+                        specialTokens.push(special.image);
+                    }
+                    while (!specialTokens.isEmpty()) {
+                        action.accept(specialTokens.pop());
+                    }
+                }
+                first = false;
+                action.accept(tokenText(token));
+            }
+        } catch (TokenMgrException e) {
+            throw new ParseException("Could not tokenize " + codeSnippet + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The lexer matches shift operators as a single greater-than token that keeps the text of the whole operator, the
+     * parser then treats them as a sequence of greater-than tokens.
+     */
+    private static String tokenText(Token token) {
+        return token.kind == GeneratedJavaParserConstants.GT ? ">" : token.image;
+    }
+}
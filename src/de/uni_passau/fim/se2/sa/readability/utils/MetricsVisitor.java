@@ -0,0 +1,301 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import de.uni_passau.fim.se2.sa.readability.utils.OperatorVisitor.OperatorType;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Collects the operators, the operands and the cyclomatic complexity of a code snippet in a single traversal of its AST.
+ * {@link OperatorVisitor}, {@link OperandVisitor} and {@link CyclomaticComplexityVisitor} each expose a part of its
+ * results.
+ */
+public class MetricsVisitor extends VoidVisitorAdapter<Void> {
+
+    private static final OperatorType[] OPERATOR_TYPES = OperatorType.values();
+
+    /**
+     * Counts the occurrences of each operator type in the given code snippet, indexed by the ordinal of the type.
+     */
+    private final int[] operatorCounts;
+
+    /**
+     * Counts the occurrences of each operand name in the given code snippet.
+     */
+    private final TokenCounter operandCounts;
+
+    private int complexity;
+
+    private SnippetBudget.Deadline deadline = SnippetBudget.Deadline.NONE;
+
+    public MetricsVisitor() {
+        operatorCounts = new int[OPERATOR_TYPES.length];
+        operandCounts = new TokenCounter();
+        complexity = 1;
+    }
+
+    /**
+     * Resets all results, such that the visitor can be reused for another code snippet.
+     */
+    public void reset() {
+        Arrays.fill(operatorCounts, 0);
+        operandCounts.clear();
+        complexity = 1;
+        deadline = SnippetBudget.Deadline.NONE;
+    }
+
+    /**
+     * Abandons the traversal once the given deadline has passed. The deadline is checked every few visited nodes and
+     * is cleared by {@link #reset()}.
+     *
+     * @param deadline the deadline of the traversal.
+     */
+    void setDeadline(SnippetBudget.Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Maps operator types to the number of their occurrences in the given code snippet.
+     * Operator types that do not occur are not contained in the map.
+     *
+     * @return a new map holding the operator counts.
+     */
+    public Map<OperatorType, Integer> getOperatorsPerMethod() {
+        Map<OperatorType, Integer> operatorsPerMethod = new EnumMap<>(OperatorType.class);
+        for (OperatorType type : OPERATOR_TYPES) {
+            if (operatorCounts[type.ordinal()] > 0) {
+                operatorsPerMethod.put(type, operatorCounts[type.ordinal()]);
+            }
+        }
+        return operatorsPerMethod;
+    }
+
+    /**
+     * Maps operand names to the number of their occurrences in the given code snippet.
+     *
+     * @return a new map holding the operand counts.
+     */
+    public Map<String, Integer> getOperandsPerMethod() {
+        return operandCounts.toMap();
+    }
+
+    /**
+     * @return the total number of operators (N1).
+     */
+    public int getTotalOperators() {
+        int total = 0;
+        for (int count : operatorCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of distinct operator types (n1).
+     */
+    public int getDistinctOperators() {
+        int distinct = 0;
+        for (int count : operatorCounts) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * @return the total number of operands (N2).
+     */
+    public int getTotalOperands() {
+        return operandCounts.total();
+    }
+
+    /**
+     * @return the number of distinct operands (n2).
+     */
+    public int getDistinctOperands() {
+        return operandCounts.size();
+    }
+
+    public int getComplexity() {
+        return complexity;
+    }
+
+    private void countOperators(OperatorType type) {
+        operatorCounts[type.ordinal()]++;
+    }
+
+    private void countOperand(String name) {
+        operandCounts.increment(name);
+    }
+
+    @Override
+    public void visit(VariableDeclarator n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperators(OperatorType.ASSIGNMENT);
+    }
+
+    @Override
+    public void visit(AssignExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperators(OperatorType.ASSIGNMENT);
+    }
+
+    @Override
+    public void visit(BinaryExpr n, Void arg) {
+        deadline.check();
+        if (n.getOperator() == BinaryExpr.Operator.AND || n.getOperator() == BinaryExpr.Operator.OR) {
+            complexity++;
+        }
+        super.visit(n, arg);
+        countOperators(OperatorType.BINARY);
+    }
+
+    @Override
+    public void visit(UnaryExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperators(OperatorType.UNARY);
+    }
+
+    @Override
+    public void visit(ConditionalExpr n, Void arg) {
+        deadline.check();
+        complexity++;
+        super.visit(n, arg);
+        countOperators(OperatorType.CONDITIONAL);
+    }
+
+    @Override
+    public void visit(InstanceOfExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperators(OperatorType.TYPE_COMPARISON);
+    }
+
+    /**
+     * Operands: the logic with help (LLM).
+     *
+     * Reference implementation: OperandVisitorImpl
+     */
+
+    @Override
+    public void visit(SimpleName n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand(n.getIdentifier());
+    }
+
+    @Override
+    public void visit(StringLiteralExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand(n.getValue());
+    }
+
+    @Override
+    public void visit(IntegerLiteralExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand(n.getValue());
+    }
+
+    @Override
+    public void visit(DoubleLiteralExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand(n.getValue());
+    }
+
+    @Override
+    public void visit(CharLiteralExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand(n.getValue());
+    }
+
+    @Override
+    public void visit(BooleanLiteralExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand(String.valueOf(n.getValue()));
+    }
+
+    @Override
+    public void visit(NullLiteralExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand("NULL");
+    }
+
+    @Override
+    public void visit(LongLiteralExpr n, Void arg) {
+        deadline.check();
+        super.visit(n, arg);
+        countOperand(n.getValue());
+    }
+
+    /**
+     * Cyclomatic complexity: the logic with help (LLM).
+     *
+     * Reference implementation: ComplexityVisitor
+     */
+
+    @Override
+    public void visit(IfStmt n, Void arg) {
+        deadline.check();
+        complexity++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ForStmt n, Void arg) {
+        deadline.check();
+        complexity++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(ForEachStmt n, Void arg) {
+        deadline.check();
+        complexity++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(WhileStmt n, Void arg) {
+        deadline.check();
+        complexity++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(DoStmt n, Void arg) {
+        deadline.check();
+        complexity++;
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(SwitchEntry n, Void arg) {
+        deadline.check();
+        if (!n.getLabels().isEmpty()) {
+            complexity++;
+        }
+        super.visit(n, arg);
+    }
+
+    @Override
+    public void visit(CatchClause n, Void arg) {
+        deadline.check();
+        complexity++;
+        super.visit(n, arg);
+    }
+}
@@ -0,0 +1,32 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.visitor.VoidVisitorWithDefaults;
+
+/**
+ * Exposes a part of the results of a {@link MetricsVisitor}. Every visited node is handed to the underlying visitor,
+ * so the counting rules exist only in {@link MetricsVisitor}.
+ */
+abstract class MetricsVisitorView extends VoidVisitorWithDefaults<Void> {
+
+    protected final MetricsVisitor metrics = new MetricsVisitor();
+
+    /**
+     * Resets the results, such that the visitor can be reused for another code snippet.
+     */
+    public void reset() {
+        metrics.reset();
+    }
+
+    @Override
+    public void defaultAction(Node n, Void arg) {
+        n.accept(metrics, arg);
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"}) // the raw NodeList is dictated by VoidVisitorWithDefaults
+    public void defaultAction(NodeList n, Void arg) {
+        n.accept(metrics, arg);
+    }
+}
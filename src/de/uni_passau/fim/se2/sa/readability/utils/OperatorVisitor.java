@@ -1,13 +1,12 @@
 package de.uni_passau.fim.se2.sa.readability.utils;
 
-import com.github.javaparser.ast.body.VariableDeclarator;
-import com.github.javaparser.ast.expr.*;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-
-import java.util.HashMap;
 import java.util.Map;
 
-public class OperatorVisitor extends VoidVisitorAdapter<Void> {
+/**
+ * Counts the operators of a code snippet. The operators are counted by a {@link MetricsVisitor}, which collects the
+ * operands and the cyclomatic complexity in the same traversal.
+ */
+public class OperatorVisitor extends MetricsVisitorView {
 
     public enum OperatorType {
         ASSIGNMENT,         // x=y
@@ -19,55 +18,11 @@ public enum OperatorType {
 
     /**
      * Maps operator types to the number of their occurrences in the given code snippet.
+     * Operator types that do not occur are not contained in the map.
+     *
+     * @return a new map holding the operator counts.
      */
-    private final Map<OperatorType, Integer> operatorsPerMethod;
-
-    public OperatorVisitor() {
-        operatorsPerMethod = new HashMap<>();
-    }
-
     public Map<OperatorType, Integer> getOperatorsPerMethod() {
-        return operatorsPerMethod;
-    }
-
-    private void countOperators(OperatorType type) {
-        operatorsPerMethod.put(type, operatorsPerMethod.getOrDefault(type, 0) + 1);
-    }
-
-    @Override
-    public void visit(VariableDeclarator n, Void arg) {
-        super.visit(n, arg);
-        countOperators(OperatorType.ASSIGNMENT);
-    }
-
-    @Override
-    public void visit(AssignExpr n, Void arg) {
-        super.visit(n, arg);
-        countOperators(OperatorType.ASSIGNMENT);
+        return metrics.getOperatorsPerMethod();
     }
-
-    @Override
-    public void visit(BinaryExpr n, Void arg) {
-        super.visit(n, arg);
-        countOperators(OperatorType.BINARY);
-    }
-
-    @Override
-    public void visit(UnaryExpr n, Void arg) {
-        super.visit(n, arg);
-        countOperators(OperatorType.UNARY);
-    }
-
-    @Override
-    public void visit(ConditionalExpr n, Void arg) {
-        super.visit(n, arg);
-        countOperators(OperatorType.CONDITIONAL);
-    }
-
-    @Override
-    public void visit(InstanceOfExpr n, Void arg) {
-        super.visit(n, arg);
-        countOperators(OperatorType.TYPE_COMPARISON);
-    }
-
 }
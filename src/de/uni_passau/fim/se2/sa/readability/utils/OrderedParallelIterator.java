@@ -0,0 +1,125 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Applies a function to the elements of a source iterator on a pool of worker threads and returns the results in the
+ * order of the source. At most {@code window} elements are in flight at any time, so the source is only consumed as fast
+ * as the results are taken from this iterator.
+ * <p>
+ * With a single thread, the function is applied on the calling thread and no pool is created.
+ *
+ * @param <T> the type of the source elements.
+ * @param <R> the type of the results.
+ */
+public class OrderedParallelIterator<T, R> implements Iterator<R>, AutoCloseable {
+
+    private final Iterator<T> source;
+    private final Function<T, R> function;
+    private final ExecutorService executor;
+    private final int window;
+    private final Deque<Future<R>> inFlight = new ArrayDeque<>();
+
+    /**
+     * Creates an iterator that keeps four elements per thread in flight.
+     *
+     * @param source   the elements to process.
+     * @param function the function to apply to each element.
+     * @param threads  the number of worker threads.
+     */
+    public OrderedParallelIterator(Iterator<T> source, Function<T, R> function, int threads) {
+        this(source, function, threads, threads * 4);
+    }
+
+    /**
+     * @param source   the elements to process.
+     * @param function the function to apply to each element.
+     * @param threads  the number of worker threads.
+     * @param window   the maximum number of elements in flight.
+     */
+    public OrderedParallelIterator(Iterator<T> source, Function<T, R> function, int threads, int window) {
+        if (threads < 1 || window < 1) {
+            throw new IllegalArgumentException("The number of threads and the window size must be positive.");
+        }
+        this.source = source;
+        this.function = function;
+        this.window = window;
+        this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "readability-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (executor == null) {
+            return source.hasNext();
+        }
+        fill();
+        return !inFlight.isEmpty();
+    }
+
+    @Override
+    public R next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (executor == null) {
+            return function.apply(source.next());
+        }
+        return await(inFlight.removeFirst());
+    }
+
+    /**
+     * Waits for the result of a worker and rethrows what the worker threw.
+     *
+     * @param future the pending result.
+     * @param <R>    the type of the result.
+     * @return the result.
+     */
+    static <R> R await(Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a worker.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void fill() {
+        while (inFlight.size() < window && source.hasNext()) {
+            T element = source.next();
+            inFlight.addLast(executor.submit(() -> function.apply(element)));
+        }
+    }
+
+    /**
+     * Cancels all pending work and shuts the worker threads down.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            inFlight.forEach(future -> future.cancel(true));
+            inFlight.clear();
+            executor.shutdownNow();
+        }
+    }
+}
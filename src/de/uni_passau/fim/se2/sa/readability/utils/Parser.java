@@ -1,10 +1,35 @@
 package de.uni_passau.fim.se2.sa.readability.utils;
 
 import com.github.javaparser.*;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.BodyDeclaration;
 
+import java.io.IOException;
+
 public class Parser {
 
+    /**
+     * Each thread reuses its own parser, since a {@link JavaParser} keeps its generated parser between calls but is not
+     * thread-safe.
+     */
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(() -> new JavaParser(leanConfiguration()));
+
+    /**
+     * Creates the parser configuration used for all snippets. The metrics only need the tokens and the AST, so comment
+     * attribution, the language level validators and the detection of the original line separator are disabled.
+     *
+     * @return the parser configuration.
+     */
+    static ParserConfiguration leanConfiguration() {
+        return new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.RAW)
+                .setAttributeComments(false)
+                .setDetectOriginalLineSeparator(false)
+                .setLexicalPreservationEnabled(false)
+                .setStoreTokens(true);
+    }
+
     /**
      * Parses the code of a java snippet .jsnp file using the JavaParser library such that it can accept JavaParser visitors.
      *
@@ -13,12 +38,88 @@ public class Parser {
      * @throws ParseException if the code snippet could not be parsed by the JavaParser library.
      */
     public static BodyDeclaration<?> parseJavaSnippet(String codeSnippet) throws ParseException {
-        ParseResult<BodyDeclaration<?>> parseResult = new JavaParser().parse(ParseStart.CLASS_BODY, new StringProvider(codeSnippet));
+        return parseJavaSnippet(codeSnippet, SnippetBudget.Deadline.NONE);
+    }
+
+    /**
+     * Parses the code of a java snippet like {@link #parseJavaSnippet(String)}, but abandons the parsing once the given
+     * deadline has passed. The deadline is checked whenever the parser reads the next block of characters.
+     *
+     * @param codeSnippet The code of the respective .jsnp as a String
+     * @param deadline    the deadline of the parsing.
+     * @return The parsed code snippet ready to accept JavaParser visitors.
+     * @throws ParseException                 if the code snippet could not be parsed by the JavaParser library.
+     * @throws SnippetBudgetExceededException if the deadline passed before the snippet was parsed.
+     */
+    static BodyDeclaration<?> parseJavaSnippet(String codeSnippet, SnippetBudget.Deadline deadline) throws ParseException {
+        return parse(ParseStart.CLASS_BODY, codeSnippet, deadline);
+    }
+
+    /**
+     * Parses the code of a whole .java file, such that its methods and constructors can be measured on the subtrees of
+     * a single AST.
+     *
+     * @param code     the code of the .java file.
+     * @param deadline the deadline of the parsing.
+     * @return the parsed compilation unit.
+     * @throws ParseException                 if the code could not be parsed by the JavaParser library.
+     * @throws SnippetBudgetExceededException if the deadline passed before the code was parsed.
+     */
+    static CompilationUnit parseCompilationUnit(String code, SnippetBudget.Deadline deadline) throws ParseException {
+        return parse(ParseStart.COMPILATION_UNIT, code, deadline);
+    }
 
+    private static <N extends Node> N parse(ParseStart<N> start, String code, SnippetBudget.Deadline deadline)
+            throws ParseException {
+        DeadlineProvider provider = new DeadlineProvider(code, deadline);
+        ParseResult<N> parseResult = PARSER.get().parse(start, provider);
+
+        if (provider.hasExpired()) {
+            throw deadline.exceeded();
+        }
         if (!parseResult.isSuccessful() || parseResult.getResult().isEmpty()) {
-            throw new ParseException("Could not parse " + codeSnippet);
+            throw new ParseException("Could not parse " + code);
         }
 
         return parseResult.getResult().get();
     }
+
+    /**
+     * Hands the snippet to the parser in small blocks and checks the deadline before each block. Once the deadline has
+     * passed, the input ends early, since the parser does not recover from exceptions of its input. The parser then
+     * fails quickly on the truncated snippet.
+     */
+    private static final class DeadlineProvider implements Provider {
+
+        private static final int BLOCK_SIZE = 256;
+
+        private final StringProvider provider;
+        private final SnippetBudget.Deadline deadline;
+        private final int blockSize;
+        private boolean expired;
+
+        DeadlineProvider(String codeSnippet, SnippetBudget.Deadline deadline) {
+            this.provider = new StringProvider(codeSnippet);
+            this.deadline = deadline;
+            this.blockSize = deadline == SnippetBudget.Deadline.NONE ? Integer.MAX_VALUE : BLOCK_SIZE;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (expired || deadline.hasPassed()) {
+                expired = true;
+                return -1;
+            }
+            return provider.read(buffer, offset, Math.min(length, blockSize));
+        }
+
+        boolean hasExpired() {
+            return expired;
+        }
+
+        @Override
+        public void close() {
+            provider.close();
+        }
+    }
 }
@@ -1,15 +1,29 @@
 package de.uni_passau.fim.se2.sa.readability.utils;
 
+import com.github.javaparser.ParseException;
+import com.github.javaparser.Range;
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
 import de.uni_passau.fim.se2.sa.readability.features.*;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Implemented this class with help of LLM
@@ -22,6 +36,31 @@ public class Preprocess {
      */
     private static final double TRUTH_THRESHOLD = 3.6;
 
+    /**
+     * Up to this magnitude, a value scaled by 100 is precise enough to decide its rounding without the formatter.
+     */
+    private static final double FAST_FORMAT_LIMIT = 1e7;
+
+    /**
+     * Each worker thread reuses one visitor for all of its snippets.
+     */
+    private static final ThreadLocal<MetricsVisitor> VISITORS = ThreadLocal.withInitial(MetricsVisitor::new);
+
+    /**
+     * The number of snippets per thread that are measured while the source directory is still listed.
+     */
+    static final int PREFETCH_PER_THREAD = 16;
+
+    /**
+     * The number of snippets per thread that are read ahead of the row that is written next.
+     */
+    static final int READ_AHEAD_PER_THREAD = 16;
+
+    /**
+     * The number of read snippets per thread that may wait for a worker.
+     */
+    static final int QUEUE_PER_THREAD = 2;
+
     /**
      * Traverses through each java snippet in the specified source directory and computes the specified list of feature metrics.
      * Each snippet is then saved together with its extracted feature values and the truth score as one row in the csv, resulting
@@ -34,42 +73,566 @@ public class Preprocess {
      *
      * @param sourceDir      the directory containing java snippet (.jsnp) files.
      * @param truth          the ground truth csv file containing the human readability ratings of the code snippets.                       `
-     * @param csv            the builder for the csv.
+     * @param csv            the destination of the csv rows, e.g. a builder or a writer.
+     * @param featureMetrics the list of specified features via the cli.
+     * @return the number of rows written to the csv.
+     * @throws IOException if the source directory or the truth file does not exist, or the csv could not be written.
+     */
+    public static int collectCSVBody(Path sourceDir, File truth, Appendable csv, List<FeatureMetric> featureMetrics) throws IOException {
+        return collectCSVBody(sourceDir, truth, csv, featureMetrics, PreprocessOptions.DEFAULTS);
+    }
+
+    /**
+     * Computes the csv body like {@link #collectCSVBody(Path, File, Appendable, List)} with the given options.
+     * With several threads, the snippets are read, parsed and measured concurrently, but the rows are still appended in
+     * the order of the snippet numbers, such that the csv is identical to the one of a sequential run. Each row is
+     * handed to the csv as soon as it is available, such that a writer receives the rows in a streaming fashion without
+     * the whole csv ever being held in memory.
+     *
+     * @param sourceDir      the directory containing java snippet (.jsnp) files.
+     * @param truth          the ground truth csv file containing the human readability ratings of the code snippets.
+     * @param csv            the destination of the csv rows, e.g. a builder or a writer.
      * @param featureMetrics the list of specified features via the cli.
-     * @throws IOException if the source directory or the truth file does not exist.
+     * @param options        the threads, cache, budget and discovery of the run.
+     * @return the number of rows written to the csv.
+     * @throws IOException if the source directory or the truth file does not exist, or the csv could not be written.
+     */
+    public static int collectCSVBody(Path sourceDir, File truth, Appendable csv, List<FeatureMetric> featureMetrics,
+                                     PreprocessOptions options) throws IOException {
+        return collectFeatures(sourceDir, truth, row -> appendCSVRow(csv, row), featureMetrics, options);
+    }
+
+    /**
+     * Computes the csv body like {@link #collectCSVBody(Path, File, Appendable, List, PreprocessOptions)}, but reads
+     * the snippets from a pack written by {@link SnippetPack#write(Path, Path)}. The snippets are visited in the order
+     * of the pack, so the directory does not have to be walked and sorted, and no snippet file is opened.
+     *
+     * @param pack           the packed snippets.
+     * @param truth          the ground truth csv file containing the human readability ratings of the code snippets.
+     * @param csv            the destination of the csv rows, e.g. a builder or a writer.
+     * @param featureMetrics the list of specified features via the cli.
+     * @param options        the threads, cache, budget and discovery of the run.
+     * @return the number of rows written to the csv.
+     * @throws IOException if the csv could not be written.
+     */
+    public static int collectCSVBody(SnippetPack pack, File truth, Appendable csv, List<FeatureMetric> featureMetrics,
+                                     PreprocessOptions options) throws IOException {
+        return collectFeatures(pack, truth, row -> appendCSVRow(csv, row), featureMetrics, options);
+    }
+
+    /**
+     * Computes the rows like {@link #collectCSVBody(Path, File, Appendable, List, PreprocessOptions)}, but hands them
+     * to the given sink instead of formatting them as csv. A snippet that exceeds the budget of the options does not
+     * result in a row, it is reported to {@link FeatureSink#skip(String, String)} instead.
+     * <p>
+     * The snippets are measured while the directory is still listed, up to {@value #PREFETCH_PER_THREAD} snippets per
+     * thread. Their rows are kept until the listing is complete and the order of the rows is known.
+     *
+     * @param sourceDir      the directory containing the snippet files.
+     * @param truth          the ground truth csv file containing the human readability ratings of the code snippets.
+     * @param sink           the destination of the rows and skipped snippets, in the order of the snippets.
+     * @param featureMetrics the list of specified features via the cli.
+     * @param options        the threads, cache, budget and discovery of the run.
+     * @return the number of rows handed to the sink.
+     * @throws IOException if the truth file does not exist, or the sink could not write a row.
+     */
+    public static int collectFeatures(Path sourceDir, File truth, FeatureSink sink, List<FeatureMetric> featureMetrics,
+                                      PreprocessOptions options) throws IOException {
+        Map<String, Double> truthMap = loadTruthMap(truth);
+        boolean tokenStreamOnly = isTokenStreamSufficient(featureMetrics);
+        SnippetDiscovery discovery = options.discovery() == null ? SnippetDiscovery.SNIPPETS : options.discovery();
+        return collectFiles(sourceDir, discovery, options.threads(), options.budget(), sink, (file, read) -> computeRow(
+                file.path().toString(), file.name(), read, truthMap, featureMetrics, options.cache(), tokenStreamOnly,
+                options.budget()));
+    }
+
+    /**
+     * Computes a row for each method and constructor of the .java files in the given directory. Each file is parsed
+     * once as a compilation unit, and the metrics of each declaration are computed on its subtree and its source text,
+     * from its first to its last token. The files are processed on the worker threads, the rows are handed to the sink
+     * in the order of the files and, within a file, in the order of the declarations.
+     * <p>
+     * The File column of a row identifies the declaration by the path of its file relative to the source directory
+     * and its line range, e.g. {@code util/Strings.java:12-40}. There are no human ratings of single methods, so the
+     * Truth column is always {@code N}. Abstract and interface methods without a body are skipped. A file that cannot
+     * be parsed or exceeds the budget does not result in any row.
+     *
+     * @param sourceDir      the directory containing the .java files.
+     * @param sink           the destination of the rows and skipped files.
+     * @param featureMetrics the list of specified features via the cli.
+     * @param options        the threads, cache, budget and discovery of the run.
+     * @return the number of rows handed to the sink.
+     * @throws IOException if the sink could not write a row.
+     */
+    public static int collectMethodFeatures(Path sourceDir, FeatureSink sink, List<FeatureMetric> featureMetrics,
+                                            PreprocessOptions options) throws IOException {
+        SnippetDiscovery discovery = options.discovery() == null
+                ? new SnippetDiscovery("java", null, SnippetDiscovery.Shard.ALL) : options.discovery();
+        return collectFiles(sourceDir, discovery, options.threads(), options.budget(), sink, (file, read) -> {
+            String fileId = sourceDir.relativize(file.path()).toString().replace('\\', '/');
+            return computeMethodRows(file.path().toString(), fileId.isEmpty() ? file.name() : fileId, read,
+                    featureMetrics, options.cache(), options.budget());
+        });
+    }
+
+    /**
+     * Discovers the snippet files and computes their outcomes. With several threads, the files are read on virtual
+     * threads and measured on the worker threads, see {@link StagedPipeline}. The snippets are already read and
+     * measured while the directory is still listed, up to {@value #PREFETCH_PER_THREAD} snippets per thread, and their
+     * outcomes are kept until the listing is complete and the order of the rows is known.
+     */
+    private static int collectFiles(Path sourceDir, SnippetDiscovery discovery, int threads, SnippetBudget budget,
+                                    FeatureSink sink,
+                                    BiFunction<SnippetDiscovery.SnippetFile, ReadResult, SnippetOutcome> computeRows)
+            throws IOException {
+        Function<SnippetDiscovery.SnippetFile, ReadResult> readFile =
+                file -> read(() -> readSnippet(file.path(), budget));
+        if (threads == 1) {
+            List<SnippetDiscovery.SnippetFile> files;
+            try {
+                files = discovery.discover(sourceDir);
+            } catch (IOException e) {
+                System.err.println("Failed to read file: " + e.getMessage());
+                return 0;
+            }
+            return collectRows(files.iterator(), file -> computeRows.apply(file, readFile.apply(file)), sink, 1);
+        }
+
+        try (StagedPipeline<SnippetDiscovery.SnippetFile, ReadResult, SnippetOutcome> pipeline =
+                     new StagedPipeline<>(readFile, computeRows, threads, threads * QUEUE_PER_THREAD)) {
+            List<SnippetDiscovery.SnippetFile> files;
+            Map<Path, Future<SnippetOutcome>> prefetched = new ConcurrentHashMap<>();
+            try {
+                files = discovery.discover(sourceDir, threads, file -> {
+                    if (prefetched.size() < threads * PREFETCH_PER_THREAD) {
+                        prefetched.put(file.path(), pipeline.submit(file));
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("Failed to read file: " + e.getMessage());
+                return 0;
+            }
+            return writeRows(pipeline.inOrder(files.iterator(), threads * READ_AHEAD_PER_THREAD, file -> {
+                Future<SnippetOutcome> outcome = prefetched.remove(file.path());
+                return outcome == null ? pipeline.submit(file) : outcome;
+            }), sink);
+        }
+    }
+
+    /**
+     * Computes the rows like {@link #collectCSVBody(SnippetPack, File, Appendable, List, PreprocessOptions)}, but hands
+     * them to the given sink instead of formatting them as csv. A skipped snippet is reported to
+     * {@link FeatureSink#skip(String, String)} instead of resulting in a row.
+     *
+     * @param pack           the packed snippets.
+     * @param truth          the ground truth csv file containing the human readability ratings of the code snippets.
+     * @param sink           the destination of the rows and skipped snippets, in the order of the snippets.
+     * @param featureMetrics the list of specified features via the cli.
+     * @param options        the threads, cache, budget and discovery of the run. The discovery only selects packed
+     *                       snippets by their names, they stay in the order of the pack.
+     * @return the number of rows handed to the sink.
+     * @throws IOException if the sink could not write a row.
+     */
+    public static int collectFeatures(SnippetPack pack, File truth, FeatureSink sink,
+                                      List<FeatureMetric> featureMetrics, PreprocessOptions options)
+            throws IOException {
+        Map<String, Double> truthMap = loadTruthMap(truth);
+        boolean tokenStreamOnly = isTokenStreamSufficient(featureMetrics);
+        SnippetDiscovery discovery = options.discovery();
+        SnippetBudget budget = options.budget();
+        List<SnippetPack.Entry> entries = discovery == null ? pack.getEntries() : pack.getEntries().stream()
+                .filter(entry -> discovery.accepts(Path.of(entry.name())))
+                .toList();
+        return collectRows(entries.iterator(), entry -> computeRow(entry.name(), entry.name(),
+                read(() -> readSnippet(pack, entry, budget)), truthMap, featureMetrics, options.cache(),
+                tokenStreamOnly, budget), sink, options.threads());
+    }
+
+    /**
+     * Computes the rows like {@link #collectFeatures(Path, File, FeatureSink, List, PreprocessOptions)}, but only of
+     * the added and modified snippets between two revisions of a git repository. The snippets are read at the newer
+     * revision from the repository.
+     *
+     * @param changes        the changed files between the two revisions.
+     * @param truth          the ground truth csv file containing the human readability ratings of the code snippets.
+     * @param sink           the destination of the rows and skipped snippets, in the order of the snippets.
+     * @param featureMetrics the list of specified features via the cli.
+     * @param options        the threads, cache, budget and discovery of the run. The discovery selects the snippet
+     *                       files among the changed files.
+     * @return the number of rows handed to the sink.
+     * @throws IOException if git could not be started, or the sink could not write a row.
+     */
+    public static int collectFeatures(GitChanges changes, File truth, FeatureSink sink,
+                                      List<FeatureMetric> featureMetrics, PreprocessOptions options)
+            throws IOException {
+        Map<String, Double> truthMap = loadTruthMap(truth);
+        boolean tokenStreamOnly = isTokenStreamSufficient(featureMetrics);
+        SnippetDiscovery discovery = options.discovery() == null ? SnippetDiscovery.SNIPPETS : options.discovery();
+        SnippetBudget budget = options.budget();
+        try (GitChanges.Contents contents = changes.openContents()) {
+            return collectRows(changes.getChangedSnippets(discovery).iterator(), change -> computeRow(
+                    change.relativePath().toString(), change.fileName(),
+                    read(() -> readSnippet(contents, change, budget)), truthMap, featureMetrics, options.cache(),
+                    tokenStreamOnly, budget), sink, options.threads());
+        }
+    }
+
+    private static String readSnippet(Path path, SnippetBudget budget) throws IOException {
+        if (budget.maxBytes() > 0) {
+            budget.checkSize(Files.size(path));
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        RunStatistics statistics = RunStatistics.active();
+        if (statistics != null) {
+            statistics.addBytesRead(bytes.length);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readSnippet(GitChanges.Contents contents, GitChanges.Change change, SnippetBudget budget)
+            throws IOException {
+        byte[] bytes = contents.read(change);
+        budget.checkSize(bytes.length);
+        RunStatistics statistics = RunStatistics.active();
+        if (statistics != null) {
+            statistics.addBytesRead(bytes.length);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readSnippet(SnippetPack pack, SnippetPack.Entry entry, SnippetBudget budget) {
+        budget.checkSize(entry.length());
+        RunStatistics statistics = RunStatistics.active();
+        if (statistics != null) {
+            statistics.addBytesRead(entry.length());
+        }
+        return pack.read(entry);
+    }
+
+    /**
+     * The result of a single snippet file: its rows, or the reason why it was skipped, or neither if it failed.
+     */
+    private record SnippetOutcome(String file, List<FeatureRow> rows, String skipReason) {
+    }
+
+    private static <T> int collectRows(Iterator<T> snippets, Function<T, SnippetOutcome> computeRow, FeatureSink sink,
+                                       int threads) throws IOException {
+        try (OrderedParallelIterator<T, SnippetOutcome> outcomes =
+                     new OrderedParallelIterator<>(snippets, computeRow, threads)) {
+            return writeRows(outcomes, sink);
+        }
+    }
+
+    private static int writeRows(Iterator<SnippetOutcome> outcomes, FeatureSink sink) throws IOException {
+        int rowCount = 0;
+        while (outcomes.hasNext()) {
+            SnippetOutcome outcome = outcomes.next();
+            if (outcome.skipReason() != null) {
+                sink.skip(outcome.file(), outcome.skipReason());
+            }
+            for (FeatureRow row : outcome.rows()) {
+                RunStatistics statistics = RunStatistics.active();
+                long start = statistics == null ? 0 : System.nanoTime();
+                sink.accept(row);
+                if (statistics != null) {
+                    statistics.recordStage(RunStatistics.WRITE, System.nanoTime() - start);
+                }
+                rowCount++;
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * Appends the csv header [File, feature1, feature2, ..., Truth].
+     *
+     * @param csv                the destination of the csv.
+     * @param featureIdentifiers the identifiers of the feature metrics.
+     * @throws IOException if the header could not be written.
      */
-    public static void collectCSVBody(Path sourceDir, File truth, StringBuilder csv, List<FeatureMetric> featureMetrics) throws IOException {
+    public static void appendCSVHeader(Appendable csv, List<String> featureIdentifiers) throws IOException {
+        csv.append("File");
+        for (String identifier : featureIdentifiers) {
+            csv.append(",").append(identifier);
+        }
+        csv.append(",Truth");
+        csv.append(System.lineSeparator());
+    }
+
+    /**
+     * Appends a row to the csv with the feature values rounded to two decimal places.
+     *
+     * @param csv the destination of the csv.
+     * @param row the row to append.
+     * @throws IOException if the row could not be written.
+     */
+    public static void appendCSVRow(Appendable csv, FeatureRow row) throws IOException {
+        StringBuilder line = new StringBuilder(row.file().length() + 12 * row.values().length + 4);
+        line.append(row.file());
+        for (double value : row.values()) {
+            line.append(",");
+            appendTwoDecimals(line, value);
+        }
+        line.append(",").append(row.truth()).append("\n");
+        csv.append(line);
+    }
+
+    /**
+     * Measures the code of a snippet file.
+     */
+    @FunctionalInterface
+    private interface Measurement {
+
+        /**
+         * @param code       the code of the snippet file.
+         * @param statistics the statistics of the run or {@code null}.
+         * @return the rows of the snippet file.
+         */
+        List<FeatureRow> measure(String code, RunStatistics statistics) throws Exception;
+    }
+
+    /**
+     * Reads a single snippet and computes its row.
+     *
+     * @param location the location of the snippet reported if it fails.
+     * @param fileName the file name of the snippet.
+     * @param read     the code of the snippet, or why it could not be read.
+     * @return the row of the snippet, or the reason why it exceeded its budget, or neither if the snippet could not
+     * be read or measured.
+     */
+    private static SnippetOutcome computeRow(String location, String fileName, ReadResult read,
+                                             Map<String, Double> truthMap, List<FeatureMetric> featureMetrics,
+                                             FeatureCache cache, boolean tokenStreamOnly, SnippetBudget budget) {
+        return computeOutcome(location, fileName, read, (codeString, statistics) -> {
+            SnippetContext context = new SnippetContext(codeString, tokenStreamOnly, VISITORS.get(), budget);
+            double[] values = measure(context, codeString, featureMetrics, cache, statistics);
+            return List.of(new FeatureRow(fileName, values, truthLabel(truthMap.get(fileName))));
+        });
+    }
+
+    /**
+     * Reads a whole .java file, parses it once and computes a row for each method and constructor with a body. The
+     * metrics of each declaration are computed on its subtree of the compilation unit and on its source text, from its
+     * first to its last token.
+     *
+     * @param location the location of the file reported if it fails.
+     * @param fileId   the identifier of the file, which is extended by the line range of each declaration.
+     * @param read     the code of the file, or why it could not be read.
+     * @return the rows of the declarations in the order of the file, or the reason why the file exceeded its budget,
+     * or no rows if the file could not be read or parsed.
+     */
+    private static SnippetOutcome computeMethodRows(String location, String fileId, ReadResult read,
+                                                    List<FeatureMetric> featureMetrics, FeatureCache cache,
+                                                    SnippetBudget budget) {
+        return computeOutcome(location, fileId, read, (source, statistics) -> {
+            CompilationUnit unit = parseCompilationUnit(source, budget, statistics);
+            List<FeatureRow> rows = new ArrayList<>();
+            for (CallableDeclaration<?> callable : unit.findAll(CallableDeclaration.class)) {
+                if (callable instanceof MethodDeclaration method && method.getBody().isEmpty()) {
+                    continue;
+                }
+                Range range = callable.getRange().orElse(null);
+                TokenRange tokens = callable.getTokenRange().orElse(null);
+                if (range == null || tokens == null) {
+                    continue;
+                }
+                String text = tokens.toString();
+                SnippetContext context = new SnippetContext(callable, text, VISITORS.get(), budget);
+                String id = fileId + ":" + range.begin.line + "-" + range.end.line;
+                double[] values = measure(context, text, featureMetrics, cache, statistics);
+                rows.add(new FeatureRow(id, values, "N"));
+            }
+            return rows;
+        });
+    }
+
+    private static CompilationUnit parseCompilationUnit(String source, SnippetBudget budget, RunStatistics statistics)
+            throws ParseException {
+        long start = statistics == null ? 0 : System.nanoTime();
         try {
-            Map<String, Double> truthMap = loadTruthMap(truth);
-
-            Files.walk(sourceDir)
-                    .filter(Files::isRegularFile)
-                    .sorted(Comparator.comparingInt(path -> extractNumber(path.getFileName().toString())))
-                    .forEach(path -> {
-                        try {
-                            String codeString = Files.readString(path, StandardCharsets.UTF_8);
-
-                            StringBuilder line = new StringBuilder();
-                            String fileName = path.getFileName().toString();
-                            line.append(fileName);
-                            for (FeatureMetric metric : featureMetrics) {
-                                double metricValue = metric.computeMetric(codeString);
-                                line.append(",").append(String.format("%.2f", metricValue));
-                            }
-                            Double truthValue = truthMap.get(fileName);
-                            String truthLabel = (truthValue != null && truthValue >= TRUTH_THRESHOLD) ? "Y" : "N";
-                            line.append(",").append(truthLabel);
-                            csv.append(line);
-                            csv.append("\n");
-                        } catch (Exception e) {
-                            System.err.println("Failed to read file: " + path + " -> " + e.getMessage());
-                        }
-                    });
-        } catch (IOException e) {
-            System.err.println("Failed to read file: " + e.getMessage());
+            return Parser.parseCompilationUnit(source, budget.parseDeadline());
+        } catch (StackOverflowError e) {
+            throw new SnippetBudgetExceededException("nesting is too deep for the stack of the parser");
+        } finally {
+            if (statistics != null) {
+                statistics.recordStage(RunStatistics.PARSE, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static double[] measure(SnippetContext context, String code, List<FeatureMetric> featureMetrics,
+                                    FeatureCache cache, RunStatistics statistics) {
+        FeatureCache.Entry cached = cache == null ? null : cache.load(FeatureCache.hash(code));
+        double[] values = new double[featureMetrics.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = computeMetric(featureMetrics.get(i), context, cached, statistics);
+        }
+        if (cached != null) {
+            cache.store(cached);
+        }
+        return values;
+    }
+
+    private static String truthLabel(Double truthValue) {
+        return (truthValue != null && truthValue >= TRUTH_THRESHOLD) ? "Y" : "N";
+    }
+
+    /**
+     * The code of a snippet file, or the exception that prevented reading it.
+     *
+     * @param code    the code or {@code null} if it could not be read.
+     * @param failure the exception or {@code null} if the code was read.
+     * @param nanos   the time spent reading while statistics were recorded.
+     */
+    private record ReadResult(String code, Exception failure, long nanos) {
+    }
+
+    /**
+     * Reads the code of a snippet file, which may happen on another thread than its measurement.
+     */
+    private static ReadResult read(Callable<String> code) {
+        RunStatistics statistics = RunStatistics.active();
+        long start = statistics == null ? 0 : System.nanoTime();
+        try {
+            String codeString = code.call();
+            long nanos = 0;
+            if (statistics != null) {
+                nanos = System.nanoTime() - start;
+                statistics.recordStage(RunStatistics.READ, nanos);
+            }
+            return new ReadResult(codeString, null, nanos);
+        } catch (Exception e) {
+            return new ReadResult(null, e, statistics == null ? 0 : System.nanoTime() - start);
         }
     }
 
+    /**
+     * Measures a read snippet file, a snippet that exceeds its budget or fails is reported on stderr. The latency of
+     * the snippet includes the time it took to read it.
+     */
+    private static SnippetOutcome computeOutcome(String location, String fileName, ReadResult read,
+                                                 Measurement measurement) {
+        RunStatistics statistics = RunStatistics.active();
+        long start = statistics == null ? 0 : System.nanoTime() - read.nanos();
+        try {
+            if (read.failure() != null) {
+                throw read.failure();
+            }
+            List<FeatureRow> rows = measurement.measure(read.code(), statistics);
+            if (statistics != null) {
+                statistics.recordSnippet(fileName, System.nanoTime() - start, true);
+            }
+            return new SnippetOutcome(fileName, rows, null);
+        } catch (SnippetBudgetExceededException e) {
+            System.err.println("Skipped file: " + location + " -> " + e.getMessage());
+            if (statistics != null) {
+                statistics.recordSnippet(fileName, System.nanoTime() - start, false);
+                statistics.add("skippedSnippets", 1);
+            }
+            return new SnippetOutcome(fileName, List.of(), e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Failed to read file: " + location + " -> " + e.getMessage());
+            if (statistics != null) {
+                statistics.recordSnippet(fileName, System.nanoTime() - start, false);
+            }
+            return new SnippetOutcome(fileName, List.of(), null);
+        }
+    }
+
+    /**
+     * Checks whether all metrics can be computed on the raw text and the token stream of a snippet, as declared by
+     * {@link FeatureMetric#getRequiredInput()}, such that the snippets do not have to be parsed. In this case, snippets
+     * that are not syntactically valid are measured as well instead of being skipped.
+     *
+     * @param featureMetrics the metrics to compute.
+     * @return {@code true} if none of the metrics needs the AST of a snippet.
+     */
+    public static boolean isTokenStreamSufficient(List<FeatureMetric> featureMetrics) {
+        return !MetricPlan.of(featureMetrics).needsParser();
+    }
+
+    private static double computeMetric(FeatureMetric metric, SnippetContext context, FeatureCache.Entry cached,
+                                        RunStatistics statistics) {
+        if (cached != null) {
+            OptionalDouble value = cached.get(metric);
+            if (value.isPresent()) {
+                return value.getAsDouble();
+            }
+        }
+        double value = statistics == null ? metric.computeMetric(context) : computeTimed(metric, context, statistics);
+        if (cached != null) {
+            cached.put(metric, value);
+        }
+        return value;
+    }
+
+    /**
+     * Computes the metric and records its time without the parsing or tokenizing it triggered, which is recorded as
+     * a stage of its own.
+     */
+    private static double computeTimed(FeatureMetric metric, SnippetContext context, RunStatistics statistics) {
+        long preparation = context.getPreparationNanos();
+        long start = System.nanoTime();
+        double value = metric.computeMetric(context);
+        long nanos = System.nanoTime() - start - (context.getPreparationNanos() - preparation);
+        statistics.recordStage(RunStatistics.METRIC_PREFIX + metric.getIdentifier(), nanos);
+        return value;
+    }
+
+    /**
+     * Appends the given value rounded half-up to two decimal places, e.g. {@code 1.235} as {@code 1.24}.
+     * The output is identical to {@code String.format(Locale.ROOT, "%.2f", value)}, but avoids the formatter for all
+     * values whose rounding is unambiguous and does not depend on the default locale.
+     *
+     * @param line  the builder to append the value to.
+     * @param value the value to append.
+     */
+    public static void appendTwoDecimals(StringBuilder line, double value) {
+        double abs = Math.abs(value);
+        if (!(abs < FAST_FORMAT_LIMIT)) {
+            line.append(String.format(Locale.ROOT, "%.2f", value));
+            return;
+        }
+        double scaled = abs * 100;
+        double fraction = scaled - Math.floor(scaled);
+        if (Math.abs(fraction - 0.5) < 1e-6) {
+            // the product may have been rounded across the half-way point, so the formatter decides on the exact value
+            line.append(String.format(Locale.ROOT, "%.2f", value));
+            return;
+        }
+        long cents = (long) (scaled + 0.5);
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            line.append('-');
+        }
+        line.append(cents / 100).append('.');
+        long remainder = cents % 100;
+        if (remainder < 10) {
+            line.append('0');
+        }
+        line.append(remainder);
+    }
+
+    /**
+     * Rounds the given value half-up to two decimal places, such that the result is the value of the text written by
+     * {@link #appendTwoDecimals(StringBuilder, double)}, e.g. {@code 1.235} to {@code 1.24}.
+     *
+     * @param value the value to round.
+     * @return the rounded value.
+     */
+    public static double roundTwoDecimals(double value) {
+        double abs = Math.abs(value);
+        if (abs < FAST_FORMAT_LIMIT) {
+            double scaled = abs * 100;
+            double fraction = scaled - Math.floor(scaled);
+            if (Math.abs(fraction - 0.5) >= 1e-6) {
+                // the quotient of two exact integers is the double closest to the decimal text
+                double rounded = (long) (scaled + 0.5) / 100.0;
+                return value < 0 || (value == 0 && 1 / value < 0) ? -rounded : rounded;
+            }
+        }
+        return Double.parseDouble(String.format(Locale.ROOT, "%.2f", value));
+    }
+
     public static Map<String, Double> loadTruthMap(File truthFile) {
         Map<String, Double> truthMap = new HashMap<>();
 
@@ -99,9 +662,26 @@ public static Map<String, Double> loadTruthMap(File truthFile) {
         return truthMap;
     }
 
+    /**
+     * Returns the number formed by all digits of a file name, e.g. 12 for "snippet1_2.jsnp", or 0 if there are none.
+     * This is the key by which the snippets are ordered.
+     *
+     * @param filename the file name.
+     * @return the number in the file name.
+     * @throws NumberFormatException if the digits do not fit into an int.
+     */
     public static int extractNumber(String filename) {
-        String number = filename.replaceAll("\\D+", "");
-        return number.isEmpty() ? 0 : Integer.parseInt(number);
+        int number = 0;
+        for (int i = 0; i < filename.length(); i++) {
+            char c = filename.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (number > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                    throw new NumberFormatException("The digits of " + filename + " do not fit into an int.");
+                }
+                number = number * 10 + (c - '0');
+            }
+        }
+        return number;
     }
 
 
@@ -0,0 +1,48 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+/**
+ * The settings of a preprocessing run besides its source, truth, sink and feature metrics. Starting from
+ * {@link #DEFAULTS}, each setting is changed by its {@code with} method:
+ * <pre>{@code
+ * PreprocessOptions options = PreprocessOptions.DEFAULTS.withThreads(4).withCache(cache);
+ * }</pre>
+ *
+ * @param threads   the number of worker threads.
+ * @param cache     the cache of feature values, or {@code null} to compute all values.
+ * @param budget    the limits for each snippet, a snippet exceeding them is skipped.
+ * @param discovery selects and orders the snippet files, e.g. of a single shard, or {@code null} to take the snippet
+ *                  files of the source: the .jsnp files of a directory or of the changed files, all entries of a pack
+ *                  and the .java files when collecting methods.
+ */
+public record PreprocessOptions(int threads, FeatureCache cache, SnippetBudget budget, SnippetDiscovery discovery) {
+
+    /**
+     * A sequential run without cache, budget limits or shard.
+     */
+    public static final PreprocessOptions DEFAULTS = new PreprocessOptions(1, null, SnippetBudget.UNLIMITED, null);
+
+    public PreprocessOptions {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+        if (budget == null) {
+            throw new IllegalArgumentException("The budget must not be null, use SnippetBudget.UNLIMITED instead.");
+        }
+    }
+
+    public PreprocessOptions withThreads(int threads) {
+        return new PreprocessOptions(threads, cache, budget, discovery);
+    }
+
+    public PreprocessOptions withCache(FeatureCache cache) {
+        return new PreprocessOptions(threads, cache, budget, discovery);
+    }
+
+    public PreprocessOptions withBudget(SnippetBudget budget) {
+        return new PreprocessOptions(threads, cache, budget, discovery);
+    }
+
+    public PreprocessOptions withDiscovery(SnippetDiscovery discovery) {
+        return new PreprocessOptions(threads, cache, budget, discovery);
+    }
+}
@@ -0,0 +1,187 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetrics;
+import weka.classifiers.functions.Logistic;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+
+import java.io.File;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A classifier trained on a feature csv together with the schema of its features, such that new snippets can be scored
+ * with the same feature metrics without training the classifier again.
+ * <p>
+ * A model can be shared between threads. The feature metrics run concurrently, but the classifier passes each instance
+ * through filters that keep state between calls, so the classification itself is done by one thread at a time.
+ */
+public class ReadabilityModel implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    private static final String FILE_ATTRIBUTE = "File";
+
+    private final Logistic classifier;
+    private final Instances header;
+    private final String[] metricIdentifiers;
+
+    private transient List<FeatureMetric> featureMetrics;
+    private transient boolean tokenStreamOnly;
+
+    private ReadabilityModel(Logistic classifier, Instances header, String[] metricIdentifiers) {
+        this.classifier = classifier;
+        this.header = header;
+        this.metricIdentifiers = metricIdentifiers;
+        resolveFeatureMetrics();
+    }
+
+    /**
+     * The predicted readability class of a snippet.
+     *
+     * @param label       the predicted class label, i.e. "Y" or "N".
+     * @param probability the probability the classifier assigns to the predicted label.
+     */
+    public record Prediction(String label, double probability) {
+    }
+
+    /**
+     * Trains the "logistic" classifier on the whole dataset. The File column is not used as a feature, all other
+     * attributes except for the class must be named after the identifier of a {@link FeatureMetric}.
+     *
+     * @param dataset the dataset as loaded by {@link Classify#loadDataset(File)}.
+     * @return the trained model.
+     * @throws IllegalArgumentException if an attribute does not belong to a known feature metric.
+     * @throws Exception                if the classifier could not be generated successfully.
+     */
+    public static ReadabilityModel train(Instances dataset) throws Exception {
+        Instances data = new Instances(dataset);
+        if (data.attribute(FILE_ATTRIBUTE) != null) {
+            data.deleteAttributeAt(data.attribute(FILE_ATTRIBUTE).index());
+        }
+
+        List<String> metricIdentifiers = new ArrayList<>();
+        for (int i = 0; i < data.numAttributes(); i++) {
+            if (i != data.classIndex()) {
+                String identifier = data.attribute(i).name();
+                FeatureMetrics.forIdentifier(identifier);
+                metricIdentifiers.add(identifier);
+            }
+        }
+
+        Logistic classifier = new Logistic();
+        classifier.buildClassifier(data);
+        return new ReadabilityModel(classifier, new Instances(data, 0), metricIdentifiers.toArray(String[]::new));
+    }
+
+    /**
+     * Loads a model written by {@link #save(File)}.
+     *
+     * @param file the model file.
+     * @return the loaded model.
+     * @throws Exception if the file could not be read or does not contain a model.
+     */
+    public static ReadabilityModel load(File file) throws Exception {
+        Object model = SerializationHelper.read(file.getPath());
+        if (!(model instanceof ReadabilityModel readabilityModel)) {
+            throw new IllegalArgumentException("The file " + file + " does not contain a readability model.");
+        }
+        readabilityModel.resolveFeatureMetrics();
+        return readabilityModel;
+    }
+
+    /**
+     * Writes the model to the given file.
+     *
+     * @param file the model file.
+     * @throws Exception if the file could not be written.
+     */
+    public void save(File file) throws Exception {
+        SerializationHelper.write(file.getPath(), this);
+    }
+
+    /**
+     * Computes the feature metrics of the model on the given snippet and classifies it.
+     * The feature values are rounded to two decimal places like in the csv the model was trained on.
+     *
+     * @param codeSnippet the code of the snippet.
+     * @return the predicted class of the snippet.
+     * @throws Exception if the snippet could not be parsed or classified.
+     */
+    public Prediction predict(String codeSnippet) throws Exception {
+        SnippetContext context = new SnippetContext(codeSnippet, tokenStreamOnly);
+        double[] features = new double[featureMetrics.size()];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = featureMetrics.get(i).computeMetric(context);
+        }
+        return predict(features);
+    }
+
+    /**
+     * Classifies a snippet by the already computed values of the feature metrics of the model.
+     * The feature values are rounded to two decimal places like in the csv the model was trained on.
+     *
+     * @param features the values of the feature metrics, in the order of {@link #getFeatureMetrics()}.
+     * @return the predicted class of the snippet.
+     * @throws IllegalArgumentException if the number of values does not match the number of feature metrics.
+     * @throws Exception                if the snippet could not be classified.
+     */
+    public Prediction predict(double[] features) throws Exception {
+        if (features.length != featureMetrics.size()) {
+            throw new IllegalArgumentException("Expected " + featureMetrics.size() + " feature values but got "
+                    + features.length + ".");
+        }
+        double[] values = new double[header.numAttributes()];
+        int feature = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i != header.classIndex()) {
+                values[i] = Preprocess.roundTwoDecimals(features[feature++]);
+            }
+        }
+        Instance instance = new DenseInstance(1.0, values);
+        instance.setDataset(header);
+        instance.setClassMissing();
+
+        double[] distribution;
+        synchronized (classifier) {
+            distribution = classifier.distributionForInstance(instance);
+        }
+        int best = 0;
+        for (int i = 1; i < distribution.length; i++) {
+            if (distribution[i] > distribution[best]) {
+                best = i;
+            }
+        }
+        return new Prediction(header.classAttribute().value(best), distribution[best]);
+    }
+
+    /**
+     * Returns the identifiers of the feature metrics the model was trained on, in the order of the features.
+     *
+     * @return the identifiers of the feature metrics.
+     */
+    public List<String> getMetricIdentifiers() {
+        return List.of(metricIdentifiers);
+    }
+
+    /**
+     * Returns the feature metrics the model was trained on, in the order of the features.
+     *
+     * @return the feature metrics.
+     */
+    public List<FeatureMetric> getFeatureMetrics() {
+        return featureMetrics;
+    }
+
+    private void resolveFeatureMetrics() {
+        featureMetrics = Arrays.stream(metricIdentifiers).map(FeatureMetrics::forIdentifier).toList();
+        tokenStreamOnly = Preprocess.isTokenStreamSufficient(featureMetrics);
+    }
+}
@@ -0,0 +1,382 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times the stages of a run, such as reading, parsing and measuring the snippets, writing the rows and
+ * training the classifiers, samples the depths of the queues between the stages, and writes the results as a JSON
+ * report.
+ * <p>
+ * Recording is switched on for a run by {@link #start()}. Until then, {@link #active()} returns {@code null} and the
+ * instrumented code skips the clock entirely, so a run without a report only pays a single volatile read per stage.
+ * All methods may be called concurrently by the worker threads.
+ */
+public class RunStatistics {
+
+    /**
+     * The number of slowest snippets listed in the report.
+     */
+    static final int SLOWEST_SNIPPETS = 10;
+
+    public static final String READ = "read";
+    public static final String PARSE = "parse";
+    public static final String LEX = "lex";
+    public static final String LOAD = "load";
+    public static final String METRIC_PREFIX = "metric:";
+    public static final String WRITE = "write";
+    public static final String TRAIN_FOLD = "classify:train";
+    public static final String EVALUATE_FOLD = "classify:evaluate";
+    public static final String READ_STALL = "stall:read";
+    public static final String COMPUTE_STALL = "stall:compute";
+    public static final String ORDER_STALL = "stall:order";
+    public static final String READ_QUEUE = "read";
+    public static final String COMPUTE_QUEUE = "compute";
+
+    private static volatile RunStatistics active;
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, LatencyHistogram> stages = new ConcurrentSkipListMap<>();
+    private final LatencyHistogram snippetLatency = new LatencyHistogram();
+    private final LongAdder snippets = new LongAdder();
+    private final LongAdder failedSnippets = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> queues = new ConcurrentSkipListMap<>();
+    private final PriorityQueue<SlowSnippet> slowest = new PriorityQueue<>(Comparator.comparingLong(SlowSnippet::nanos));
+    private volatile long slowestThreshold;
+
+    /**
+     * A snippet together with the time it took to measure it.
+     *
+     * @param file  the file name of the snippet.
+     * @param nanos the time from reading the snippet until all of its values were computed.
+     */
+    record SlowSnippet(String file, long nanos) {
+    }
+
+    /**
+     * Starts recording the statistics of a new run.
+     *
+     * @return the statistics of the run, which are recorded until {@link #stop()} is called.
+     */
+    public static RunStatistics start() {
+        RunStatistics statistics = new RunStatistics();
+        active = statistics;
+        return statistics;
+    }
+
+    /**
+     * Returns the statistics of the current run.
+     *
+     * @return the statistics or {@code null} if nothing is recorded.
+     */
+    public static RunStatistics active() {
+        return active;
+    }
+
+    /**
+     * Stops recording, later stages are no longer added to these statistics.
+     */
+    public void stop() {
+        if (active == this) {
+            active = null;
+        }
+    }
+
+    /**
+     * Records one execution of a stage.
+     *
+     * @param stage the name of the stage, e.g. {@link #PARSE}.
+     * @param nanos the duration of the execution.
+     */
+    public void recordStage(String stage, long nanos) {
+        stages.computeIfAbsent(stage, name -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Records a snippet whose values were computed, or could not be computed.
+     *
+     * @param file       the file name of the snippet.
+     * @param nanos      the time from reading the snippet until all of its values were computed.
+     * @param successful whether the snippet resulted in a row.
+     */
+    public void recordSnippet(String file, long nanos, boolean successful) {
+        snippets.increment();
+        if (!successful) {
+            failedSnippets.increment();
+        }
+        snippetLatency.record(nanos);
+        if (nanos > slowestThreshold) {
+            synchronized (slowest) {
+                slowest.add(new SlowSnippet(file, nanos));
+                if (slowest.size() > SLOWEST_SNIPPETS) {
+                    slowest.poll();
+                    slowestThreshold = slowest.peek().nanos();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the number of bytes read from the snippet files or the pack.
+     *
+     * @param bytes the number of bytes.
+     */
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Adds to a named counter, e.g. the hits of the feature cache.
+     *
+     * @param counter the name of the counter.
+     * @param amount  the amount to add.
+     */
+    public void add(String counter, long amount) {
+        counters.computeIfAbsent(counter, name -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Records the number of elements in a queue of a pipeline, sampled whenever an element is added.
+     *
+     * @param queue the name of the queue, e.g. {@link #COMPUTE_QUEUE}.
+     * @param depth the number of elements in the queue.
+     */
+    public void recordQueueDepth(String queue, long depth) {
+        queues.computeIfAbsent(queue, name -> new LatencyHistogram()).record(depth);
+    }
+
+    long getSnippets() {
+        return snippets.sum();
+    }
+
+    long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    LatencyHistogram getStage(String stage) {
+        return stages.get(stage);
+    }
+
+    LatencyHistogram getQueue(String queue) {
+        return queues.get(queue);
+    }
+
+    List<SlowSnippet> getSlowestSnippets() {
+        synchronized (slowest) {
+            List<SlowSnippet> snippets = new ArrayList<>(slowest);
+            snippets.sort(Comparator.comparingLong(SlowSnippet::nanos).reversed());
+            return snippets;
+        }
+    }
+
+    /**
+     * Stops recording and writes the report, a failure to write the report is only printed.
+     *
+     * @param file the destination of the JSON report.
+     */
+    public void stopAndReport(Path file) {
+        stop();
+        try {
+            writeReport(file);
+        } catch (IOException e) {
+            System.err.println("Could not write the metrics report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the report of the recorded statistics. Durations are reported in milliseconds, each stage with its
+     * number of executions, total time and the 50th and 99th percentile and maximum of a single execution.
+     *
+     * @param file the destination of the JSON report.
+     * @throws IOException if the report could not be written.
+     */
+    public void writeReport(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeReport(writer);
+        }
+    }
+
+    void writeReport(Appendable json) throws IOException {
+        json.append("{\n");
+        json.append("  \"wallMillis\": ").append(millis(System.nanoTime() - startNanos)).append(",\n");
+        json.append("  \"snippets\": ").append(Long.toString(snippets.sum())).append(",\n");
+        json.append("  \"failedSnippets\": ").append(Long.toString(failedSnippets.sum())).append(",\n");
+        json.append("  \"bytesRead\": ").append(Long.toString(bytesRead.sum())).append(",\n");
+        json.append("  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, LongAdder> counter : new ConcurrentSkipListMap<>(counters).entrySet()) {
+            json.append(separator).append("    ").append(quote(counter.getKey())).append(": ")
+                    .append(Long.toString(counter.getValue().sum()));
+            separator = ",\n";
+        }
+        json.append(counters.isEmpty() ? "},\n" : "\n  },\n");
+        json.append("  \"snippetLatency\": ");
+        appendHistogram(json, snippetLatency);
+        json.append(",\n  \"stages\": {");
+        separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> stage : stages.entrySet()) {
+            json.append(separator).append("    ").append(quote(stage.getKey())).append(": ");
+            appendHistogram(json, stage.getValue());
+            separator = ",\n";
+        }
+        json.append(stages.isEmpty() ? "},\n" : "\n  },\n");
+        json.append("  \"queues\": {");
+        separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> queue : queues.entrySet()) {
+            LatencyHistogram depths = queue.getValue();
+            json.append(separator).append("    ").append(quote(queue.getKey()))
+                    .append(": {\"samples\": ").append(Long.toString(depths.getCount()))
+                    .append(", \"p50\": ").append(Long.toString(depths.getPercentile(0.5)))
+                    .append(", \"p99\": ").append(Long.toString(depths.getPercentile(0.99)))
+                    .append(", \"max\": ").append(Long.toString(depths.getMax())).append("}");
+            separator = ",\n";
+        }
+        json.append(queues.isEmpty() ? "},\n" : "\n  },\n");
+        json.append("  \"slowestSnippets\": [");
+        separator = "\n";
+        List<SlowSnippet> slowestSnippets = getSlowestSnippets();
+        for (SlowSnippet snippet : slowestSnippets) {
+            json.append(separator).append("    {\"file\": ").append(quote(snippet.file()))
+                    .append(", \"millis\": ").append(millis(snippet.nanos())).append("}");
+            separator = ",\n";
+        }
+        json.append(slowestSnippets.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+    }
+
+    private static void appendHistogram(Appendable json, LatencyHistogram histogram) throws IOException {
+        json.append("{\"count\": ").append(Long.toString(histogram.getCount()))
+                .append(", \"totalMillis\": ").append(millis(histogram.getTotal()))
+                .append(", \"p50Millis\": ").append(millis(histogram.getPercentile(0.5)))
+                .append(", \"p99Millis\": ").append(millis(histogram.getPercentile(0.99)))
+                .append(", \"maxMillis\": ").append(millis(histogram.getMax())).append("}");
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * A lock-free histogram of durations, or of queue depths. Each power of two is split into {@value #SUB_BUCKETS} buckets, such that a
+     * percentile is reported with a relative error of at most 1/{@value #SUB_BUCKETS} at a fixed size of a few KiB.
+     */
+    static final class LatencyHistogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        /**
+         * The values up to {@value #SUB_BUCKETS} have a bucket each, every larger power of two up to 2^62 has
+         * {@value #SUB_BUCKETS} buckets.
+         */
+        static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Returns the largest value that falls into the given bucket.
+         */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS);
+            return lowerBound + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getTotal() {
+            return total.sum();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns an upper bound of the given percentile, which is never larger than the maximum.
+         *
+         * @param percentile the percentile between 0 and 1, e.g. 0.99.
+         * @return the duration below which the given share of all recorded durations lies.
+         */
+        long getPercentile(double percentile) {
+            long recorded = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                recorded += buckets.get(i);
+            }
+            if (recorded == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * recorded));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), getMax());
+                }
+            }
+            return getMax();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers feature extraction and scoring requests of local clients in a resident process, such that the clients do not
+ * pay the startup of the JVM, the loading of the classifier and the warm-up of the parsers for every call.
+ * <p>
+ * Each connection is served by its own virtual thread and may send any number of requests. A request is a single line
+ * with a command, optionally followed by a batch of snippets. Each snippet is sent as a line with its length in UTF-8
+ * bytes followed by exactly that many bytes. The snippets of a batch are measured concurrently on a shared pool of
+ * worker threads and answered with one line per snippet, in the order of the batch.
+ * <pre>
+ * HEALTH            -&gt; OK features=NumberLines,HalsteadVolume,... model=true
+ * STATS             -&gt; OK requests=12 snippets=40 errors=1 uptimeMillis=5321
+ * FEATURES &lt;n&gt;      -&gt; n lines "OK 16.00,55.35,..." with the values in the order reported by HEALTH
+ * PREDICT &lt;n&gt;       -&gt; n lines "OK Y,0.8331" with the label and its probability
+ * </pre>
+ * A snippet that cannot be measured is answered with "ERROR &lt;message&gt;", a malformed request closes the connection.
+ */
+public class ScoringServer implements AutoCloseable {
+
+    /**
+     * Requests with larger snippets are rejected instead of allocating the announced number of bytes.
+     */
+    static final int MAX_SNIPPET_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Requests with larger batches are rejected.
+     */
+    static final int MAX_BATCH_SIZE = 100_000;
+
+    /**
+     * Requests whose snippets take more bytes in total are rejected, since a batch is read completely before it is
+     * answered.
+     */
+    static final int MAX_BATCH_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Longer command and length lines are rejected instead of buffering them until the line feed arrives.
+     */
+    static final int MAX_LINE_BYTES = 1024;
+
+    private static final String WARM_UP_SNIPPET = """
+            public int warmUp(int[] values) {
+                int sum = 0;
+                for (int value : values) {
+                    if (value > 0 && value % 2 == 0) {
+                        sum += value;
+                    }
+                }
+                return sum > 10 ? sum : -sum;
+            }""";
+
+    private final ReadabilityModel model;
+    private final List<FeatureMetric> featureMetrics;
+    private final boolean tokenStreamOnly;
+    private final int threads;
+    private final ExecutorService workers;
+    private final long startTime = System.currentTimeMillis();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder snippets = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param model          the model answering PREDICT requests or {@code null} if only features are extracted.
+     * @param featureMetrics the metrics answering FEATURES requests.
+     * @param threads        the number of worker threads measuring the snippets.
+     */
+    public ScoringServer(ReadabilityModel model, List<FeatureMetric> featureMetrics, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+        this.model = model;
+        this.featureMetrics = List.copyOf(featureMetrics);
+        this.tokenStreamOnly = Preprocess.isTokenStreamSufficient(featureMetrics);
+        this.threads = threads;
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "readability-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the metrics and the model on a small snippet on every worker thread, such that each worker has created its
+     * parser and the hot code paths are compiled before the first client request arrives.
+     *
+     * @param iterations the number of times each worker measures the snippet.
+     */
+    public void warmUp(int iterations) {
+        List<Future<?>> runs = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            runs.add(workers.submit(() -> {
+                for (int j = 0; j < iterations; j++) {
+                    try {
+                        features(WARM_UP_SNIPPET);
+                        if (model != null) {
+                            model.predict(WARM_UP_SNIPPET);
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException("The warm-up snippet could not be measured.", e);
+                    }
+                }
+            }));
+        }
+        for (Future<?> run : runs) {
+            await(run);
+        }
+    }
+
+    /**
+     * Accepts connections on the given channel until it is closed and serves each connection on a virtual thread.
+     *
+     * @param serverChannel a bound server channel, either a TCP or a Unix domain socket.
+     * @throws IOException if a connection could not be accepted.
+     */
+    public void serve(ServerSocketChannel serverChannel) throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            Thread.ofVirtual().name("readability-connection").start(() -> {
+                try (channel) {
+                    handle(Channels.newInputStream(channel), Channels.newOutputStream(channel));
+                } catch (IOException e) {
+                    System.err.println("Connection failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Answers the requests read from the given stream until the stream ends.
+     *
+     * @param in  the requests of a client.
+     * @param out the destination of the responses.
+     * @throws IOException if a request is malformed or the streams fail.
+     */
+    public void handle(InputStream in, OutputStream out) throws IOException {
+        InputStream input = new BufferedInputStream(in);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (String request = readLine(input); request != null; request = readLine(input)) {
+            requests.increment();
+            String[] parts = request.trim().split(" ");
+            switch (parts[0]) {
+                case "HEALTH" -> writer.write("OK features=" + String.join(",", featureIdentifiers())
+                        + " model=" + (model != null) + "\n");
+                case "STATS" -> writer.write("OK requests=" + requests.sum() + " snippets=" + snippets.sum()
+                        + " errors=" + errors.sum() + " uptimeMillis=" + (System.currentTimeMillis() - startTime) + "\n");
+                case "FEATURES", "PREDICT" -> {
+                    boolean predict = parts[0].equals("PREDICT");
+                    List<String> batch = readBatch(input, parts);
+                    if (predict && model == null) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            writer.write("ERROR no model loaded\n");
+                        }
+                        errors.add(batch.size());
+                    } else {
+                        answerBatch(batch, predict, writer);
+                    }
+                }
+                default -> {
+                    writer.write("ERROR unknown command " + parts[0] + "\n");
+                    writer.flush();
+                    throw new IOException("Unknown command " + parts[0]);
+                }
+            }
+            writer.flush();
+        }
+    }
+
+    private List<String> featureIdentifiers() {
+        return featureMetrics.stream().map(FeatureMetric::getIdentifier).toList();
+    }
+
+    private void answerBatch(List<String> batch, boolean predict, Writer writer) throws IOException {
+        List<Future<String>> answers = new ArrayList<>(batch.size());
+        for (String snippet : batch) {
+            answers.add(workers.submit(() -> answer(snippet, predict)));
+        }
+        for (Future<String> answer : answers) {
+            writer.write(await(answer));
+            writer.write('\n');
+        }
+        snippets.add(batch.size());
+    }
+
+    private String answer(String snippet, boolean predict) {
+        try {
+            if (predict) {
+                ReadabilityModel.Prediction prediction = model.predict(snippet);
+                return "OK " + prediction.label() + "," + String.format(Locale.ROOT, "%.4f", prediction.probability());
+            }
+            return "OK " + features(snippet);
+        } catch (Exception e) {
+            errors.increment();
+            return "ERROR " + String.valueOf(e.getMessage()).replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    private String features(String snippet) {
+        SnippetContext context = new SnippetContext(snippet, tokenStreamOnly);
+        StringBuilder line = new StringBuilder();
+        for (FeatureMetric metric : featureMetrics) {
+            if (!line.isEmpty()) {
+                line.append(",");
+            }
+            Preprocess.appendTwoDecimals(line, metric.computeMetric(context));
+        }
+        return line.toString();
+    }
+
+    private static List<String> readBatch(InputStream input, String[] request) throws IOException {
+        if (request.length != 2) {
+            throw new IOException("Expected the batch size after " + request[0]);
+        }
+        int size = parseLength(request[1], MAX_BATCH_SIZE);
+        List<String> batch = new ArrayList<>(size);
+        long remainingBytes = MAX_BATCH_BYTES;
+        for (int i = 0; i < size; i++) {
+            String lengthLine = readLine(input);
+            if (lengthLine == null) {
+                throw new EOFException("The batch ended after " + i + " of " + size + " snippets.");
+            }
+            int length = parseLength(lengthLine.trim(), MAX_SNIPPET_BYTES);
+            if (length > remainingBytes) {
+                throw new IOException("The snippets of a batch must not take more than " + MAX_BATCH_BYTES
+                        + " bytes.");
+            }
+            remainingBytes -= length;
+            byte[] bytes = input.readNBytes(length);
+            if (bytes.length < length) {
+                throw new EOFException("Snippet " + (i + 1) + " of " + size + " ended after " + bytes.length + " of "
+                        + length + " bytes.");
+            }
+            batch.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return batch;
+    }
+
+    private static int parseLength(String text, int max) throws IOException {
+        try {
+            int length = Integer.parseInt(text);
+            if (length < 0 || length > max) {
+                throw new IOException("The length " + length + " is not between 0 and " + max + ".");
+            }
+            return length;
+        } catch (NumberFormatException e) {
+            throw new IOException("Expected a length but got '" + text + "'.");
+        }
+    }
+
+    /**
+     * Reads a line terminated by a line feed, the terminator and a preceding carriage return are not included.
+     *
+     * @return the line or {@code null} if the stream ended before any character of the line was read.
+     * @throws IOException if the line is longer than {@link #MAX_LINE_BYTES} or the stream fails.
+     */
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(32);
+        int next = input.read();
+        if (next == -1) {
+            return null;
+        }
+        while (next != -1 && next != '\n') {
+            if (line.size() == MAX_LINE_BYTES) {
+                throw new IOException("A request line must not be longer than " + MAX_LINE_BYTES + " bytes.");
+            }
+            line.write(next);
+            next = input.read();
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a worker.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getSnippets() {
+        return snippets.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Shuts the worker threads down.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,115 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.time.Duration;
+
+/**
+ * Limits the work spent on a single snippet, such that a pathological snippet, e.g. a generated one with thousands of
+ * nested expressions, is skipped instead of stalling the whole run.
+ * <p>
+ * The size is checked before a snippet is read. The time limits are checked cooperatively: the parser checks its
+ * deadline whenever it reads the next block of characters, the lexer every few tokens and the traversal of the AST
+ * every few nodes. A snippet exceeding a limit is abandoned with a {@link SnippetBudgetExceededException}. Since the
+ * parser does not recover from exceptions of its input, the input is cut off at the deadline instead and the parser
+ * fails quickly on the rest of the snippet.
+ *
+ * @param maxBytes  the maximum size of a snippet in UTF-8 bytes, or 0 for no limit.
+ * @param parseTime the maximum time to parse or tokenize a snippet, or {@link Duration#ZERO} for no limit.
+ * @param visitTime the maximum time to traverse the AST of a snippet, or {@link Duration#ZERO} for no limit.
+ */
+public record SnippetBudget(long maxBytes, Duration parseTime, Duration visitTime) {
+
+    /**
+     * A budget without any limits.
+     */
+    public static final SnippetBudget UNLIMITED = new SnippetBudget(0, Duration.ZERO, Duration.ZERO);
+
+    public SnippetBudget {
+        if (maxBytes < 0 || parseTime.isNegative() || visitTime.isNegative()) {
+            throw new IllegalArgumentException("The limits of a snippet budget must not be negative.");
+        }
+    }
+
+    /**
+     * Checks the size of a snippet before it is read.
+     *
+     * @param bytes the size of the snippet in bytes.
+     * @throws SnippetBudgetExceededException if the snippet is larger than allowed.
+     */
+    void checkSize(long bytes) {
+        if (maxBytes > 0 && bytes > maxBytes) {
+            throw new SnippetBudgetExceededException("size of " + bytes + " bytes exceeds the limit of " + maxBytes + " bytes");
+        }
+    }
+
+    Deadline parseDeadline() {
+        return Deadline.after(parseTime, "parse");
+    }
+
+    Deadline visitDeadline() {
+        return Deadline.after(visitTime, "visit");
+    }
+
+    /**
+     * The point in time at which a stage of the work on a snippet is abandoned. A deadline belongs to the thread
+     * working on the snippet.
+     */
+    static final class Deadline {
+
+        /**
+         * The clock is only read on every n-th check, which keeps checks on every AST node cheap.
+         */
+        private static final int CHECK_INTERVAL = 64;
+
+        static final Deadline NONE = new Deadline(0, 0, null);
+
+        private final long deadlineNanos;
+        private final long limitNanos;
+        private final String stage;
+        private int checks;
+
+        private Deadline(long deadlineNanos, long limitNanos, String stage) {
+            this.deadlineNanos = deadlineNanos;
+            this.limitNanos = limitNanos;
+            this.stage = stage;
+        }
+
+        static Deadline after(Duration limit, String stage) {
+            if (limit.isZero()) {
+                return NONE;
+            }
+            long limitNanos = limit.toNanos();
+            return new Deadline(System.nanoTime() + limitNanos, limitNanos, stage);
+        }
+
+        /**
+         * Checks the deadline on every {@value #CHECK_INTERVAL}th call.
+         *
+         * @throws SnippetBudgetExceededException if the deadline has passed.
+         */
+        void check() {
+            if (this != NONE && ++checks % CHECK_INTERVAL == 0) {
+                checkNow();
+            }
+        }
+
+        /**
+         * Checks the deadline on every call.
+         *
+         * @throws SnippetBudgetExceededException if the deadline has passed.
+         */
+        void checkNow() {
+            if (hasPassed()) {
+                throw exceeded();
+            }
+        }
+
+        boolean hasPassed() {
+            return this != NONE && System.nanoTime() - deadlineNanos > 0;
+        }
+
+        SnippetBudgetExceededException exceeded() {
+            return new SnippetBudgetExceededException(stage + " time exceeds the limit of "
+                    + Duration.ofNanos(limitNanos).toMillis() + " ms");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.Serial;
+
+/**
+ * Abandons the work on a snippet that exceeds a limit of its {@link SnippetBudget}.
+ */
+public class SnippetBudgetExceededException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param reason the exceeded limit, reported as the reason for skipping the snippet.
+     */
+    public SnippetBudgetExceededException(String reason) {
+        super(reason);
+    }
+}
@@ -0,0 +1,209 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseException;
+import com.github.javaparser.TokenRange;
+import com.github.javaparser.ast.body.BodyDeclaration;
+
+import java.util.function.Consumer;
+
+/**
+ * Holds everything the feature metrics need to know about a single java snippet: the raw text, the token range and the
+ * parsed {@link BodyDeclaration}. The snippet is parsed lazily on first access and the result is shared by every metric
+ * that is computed on this context, such that a snippet is parsed at most once.
+ * <p>
+ * The same holds for the single {@link MetricsVisitor} traversal that the AST-based metrics share.
+ * <p>
+ * A context belongs to one snippet and is not meant to be shared between threads.
+ */
+public class SnippetContext {
+
+    private final String codeSnippet;
+
+    private final boolean tokenStreamOnly;
+
+    private BodyDeclaration<?> bodyDeclaration;
+
+    private ParseException parseException;
+
+    private final MetricsVisitor reusableVisitor;
+
+    private final SnippetBudget budget;
+
+    private MetricsVisitor metricsVisitor;
+
+    private long preparationNanos;
+
+    public SnippetContext(String codeSnippet) {
+        this(codeSnippet, false);
+    }
+
+    /**
+     * @param codeSnippet     the code of the snippet.
+     * @param tokenStreamOnly whether {@link #forEachToken(Consumer)} should only run the lexer instead of parsing the
+     *                        snippet, which is cheaper if no metric needs the AST but does not reject snippets that
+     *                        are not syntactically valid.
+     */
+    public SnippetContext(String codeSnippet, boolean tokenStreamOnly) {
+        this(codeSnippet, tokenStreamOnly, null);
+    }
+
+    /**
+     * Creates a context that traverses the AST with the given visitor instead of a new one, such that a worker can
+     * reuse one visitor for all of its snippets. The visitor is reset before the traversal, so the caller must not
+     * use the results of a previous context that shared the same visitor afterwards.
+     *
+     * @param codeSnippet     the code of the snippet.
+     * @param tokenStreamOnly whether {@link #forEachToken(Consumer)} should only run the lexer.
+     * @param reusableVisitor the visitor to reuse or {@code null} to create a new one.
+     */
+    public SnippetContext(String codeSnippet, boolean tokenStreamOnly, MetricsVisitor reusableVisitor) {
+        this(codeSnippet, tokenStreamOnly, reusableVisitor, SnippetBudget.UNLIMITED);
+    }
+
+    /**
+     * Creates a context that abandons parsing, tokenizing and traversing the snippet once the time limits of the given
+     * budget are exceeded, by throwing a {@link SnippetBudgetExceededException}. Regardless of the budget, a snippet
+     * that is nested too deeply for the stack of the parser or the visitor is abandoned the same way.
+     *
+     * @param codeSnippet     the code of the snippet.
+     * @param tokenStreamOnly whether {@link #forEachToken(Consumer)} should only run the lexer.
+     * @param reusableVisitor the visitor to reuse or {@code null} to create a new one.
+     * @param budget          the time limits for the snippet.
+     */
+    public SnippetContext(String codeSnippet, boolean tokenStreamOnly, MetricsVisitor reusableVisitor,
+                          SnippetBudget budget) {
+        this.codeSnippet = codeSnippet;
+        this.tokenStreamOnly = tokenStreamOnly;
+        this.reusableVisitor = reusableVisitor;
+        this.budget = budget;
+    }
+
+    /**
+     * Creates a context for a declaration that is already parsed as part of a larger AST, e.g. a method of a whole
+     * .java file. The metrics work on the given subtree and its tokens, the declaration is not parsed again.
+     *
+     * @param declaration     the parsed declaration, whose tokens must have been stored by the parser.
+     * @param code            the source text of the declaration, used by the text-based metrics.
+     * @param reusableVisitor the visitor to reuse or {@code null} to create a new one.
+     * @param budget          the time limits for traversing the declaration.
+     */
+    public SnippetContext(BodyDeclaration<?> declaration, String code, MetricsVisitor reusableVisitor,
+                          SnippetBudget budget) {
+        this(code, false, reusableVisitor, budget);
+        this.bodyDeclaration = declaration;
+    }
+
+    /**
+     * Returns the raw text of the snippet.
+     *
+     * @return the code of the snippet as a String.
+     */
+    public String getCodeSnippet() {
+        return codeSnippet;
+    }
+
+    /**
+     * Returns the parsed snippet. The snippet is only parsed on the first call, subsequent calls return the same
+     * {@link BodyDeclaration} or rethrow the same {@link ParseException}.
+     *
+     * @return the parsed code snippet ready to accept JavaParser visitors.
+     * @throws ParseException if the code snippet could not be parsed by the JavaParser library.
+     */
+    public BodyDeclaration<?> getBodyDeclaration() throws ParseException {
+        if (bodyDeclaration == null) {
+            if (parseException != null) {
+                throw parseException;
+            }
+            RunStatistics statistics = RunStatistics.active();
+            long start = statistics == null ? 0 : System.nanoTime();
+            try {
+                bodyDeclaration = Parser.parseJavaSnippet(codeSnippet, budget.parseDeadline());
+            } catch (ParseException e) {
+                parseException = e;
+                throw e;
+            } catch (StackOverflowError e) {
+                throw new SnippetBudgetExceededException("nesting is too deep for the stack of the parser");
+            } finally {
+                if (statistics != null) {
+                    long nanos = System.nanoTime() - start;
+                    statistics.recordStage(RunStatistics.PARSE, nanos);
+                    preparationNanos += nanos;
+                }
+            }
+        }
+        return bodyDeclaration;
+    }
+
+    /**
+     * Returns the tokens of the parsed snippet.
+     *
+     * @return the token range of the parsed code snippet.
+     * @throws ParseException if the code snippet could not be parsed by the JavaParser library.
+     */
+    public TokenRange getTokenRange() throws ParseException {
+        return getBodyDeclaration().getTokenRange()
+                .orElseThrow(() -> new ParseException("No tokens available for " + codeSnippet));
+    }
+
+    /**
+     * Passes the text of each token of the snippet to the given action, including whitespaces and comments.
+     * The tokens are taken from the parsed snippet, unless the context is in token stream mode and the snippet has not
+     * been parsed yet, in which case only the lexer is run.
+     *
+     * @param action the action receiving the token texts in order.
+     * @throws ParseException if the code snippet could not be parsed or tokenized.
+     */
+    public void forEachToken(Consumer<String> action) throws ParseException {
+        if (tokenStreamOnly && bodyDeclaration == null) {
+            RunStatistics statistics = RunStatistics.active();
+            long start = statistics == null ? 0 : System.nanoTime();
+            try {
+                Lexer.forEachToken(codeSnippet, action, budget.parseDeadline());
+            } finally {
+                if (statistics != null) {
+                    long nanos = System.nanoTime() - start;
+                    statistics.recordStage(RunStatistics.LEX, nanos);
+                    preparationNanos += nanos;
+                }
+            }
+            return;
+        }
+        for (JavaToken token : getTokenRange()) {
+            action.accept(token.getText());
+        }
+    }
+
+    /**
+     * Returns how long this context spent parsing or tokenizing the snippet while statistics were recorded, such that
+     * the time of a metric that triggered the parsing can be told apart from the parsing itself.
+     *
+     * @return the time spent in the parser and the lexer in nanoseconds.
+     */
+    public long getPreparationNanos() {
+        return preparationNanos;
+    }
+
+    /**
+     * Returns the operators, operands and cyclomatic complexity of the snippet. The AST is only traversed on the first
+     * call, subsequent calls return the same visitor.
+     *
+     * @return the visitor holding the results of the traversal.
+     * @throws ParseException if the code snippet could not be parsed by the JavaParser library.
+     */
+    public MetricsVisitor getMetricsVisitor() throws ParseException {
+        if (metricsVisitor == null) {
+            BodyDeclaration<?> bodyDecl = getBodyDeclaration();
+            MetricsVisitor visitor = reusableVisitor == null ? new MetricsVisitor() : reusableVisitor;
+            visitor.reset();
+            visitor.setDeadline(budget.visitDeadline());
+            try {
+                bodyDecl.accept(visitor, null);
+            } catch (StackOverflowError e) {
+                throw new SnippetBudgetExceededException("nesting is too deep for the stack of the visitor");
+            }
+            metricsVisitor = visitor;
+        }
+        return metricsVisitor;
+    }
+}
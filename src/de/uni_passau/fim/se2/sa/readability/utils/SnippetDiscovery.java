@@ -0,0 +1,326 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the snippet files of a corpus directory and orders them like the preprocessing writes them: by the number in
+ * their file name as computed by {@link Preprocess#extractNumber(String)}, and by the file name for equal numbers.
+ * <p>
+ * The sort key of each file is computed once when the file is found. Subdirectories are listed concurrently on a
+ * fork/join pool, and each file is announced as soon as it is found, such that its snippet can be measured while the
+ * rest of the tree is still listed.
+ */
+public class SnippetDiscovery {
+
+    /**
+     * The extension of java snippet files.
+     */
+    public static final String SNIPPET_EXTENSION = "jsnp";
+
+    /**
+     * The discovery used by default: all .jsnp files of all shards.
+     */
+    public static final SnippetDiscovery SNIPPETS = new SnippetDiscovery(SNIPPET_EXTENSION, null, Shard.ALL);
+
+    private final String suffix;
+    private final String glob;
+    private final PathMatcher matcher;
+    private final boolean matchFileName;
+    private final Shard shard;
+
+    /**
+     * @param extension the extension of the snippet files without the dot, or {@code null} or an empty string to
+     *                  accept all files.
+     * @param glob      a glob pattern the snippet files must match, or {@code null} to accept all files. A pattern
+     *                  without a slash is matched against the file name, otherwise against the path relative to the
+     *                  corpus directory.
+     * @param shard     the shard of the corpus to take.
+     */
+    public SnippetDiscovery(String extension, String glob, Shard shard) {
+        this.suffix = extension == null || extension.isEmpty() ? null : "." + extension;
+        this.glob = glob;
+        this.matcher = glob == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        this.matchFileName = glob != null && !glob.contains("/");
+        this.shard = shard;
+    }
+
+    /**
+     * A snippet file together with its precomputed sort key.
+     *
+     * @param path    the path of the file.
+     * @param name    the file name.
+     * @param sortKey the number in the file name.
+     */
+    public record SnippetFile(Path path, String name, int sortKey) {
+    }
+
+    /**
+     * Orders files by their number and then by their name, which is the order of the rows of the preprocessing. Files
+     * with the same name in different directories are ordered by their path.
+     */
+    public static final Comparator<SnippetFile> ORDER = Comparator.comparingInt(SnippetFile::sortKey)
+            .thenComparing(SnippetFile::name)
+            .thenComparing(SnippetFile::path);
+
+    /**
+     * The File column of a method row, the path of the .java file relative to the source directory and the line range
+     * of the declaration.
+     */
+    private static final Pattern METHOD_ROW = Pattern.compile("(.+):(\\d+)-(\\d+)");
+
+    /**
+     * Compares two file names like {@link #ORDER}.
+     *
+     * @param first  a file name.
+     * @param second another file name.
+     * @return a negative number, zero or a positive number if the first name comes before, with or after the second.
+     */
+    public static int compareNames(String first, String second) {
+        int byNumber = Integer.compare(Preprocess.extractNumber(first), Preprocess.extractNumber(second));
+        return byNumber != 0 ? byNumber : first.compareTo(second);
+    }
+
+    /**
+     * Compares the File columns of two rows in the order of the preprocessing. Snippets are compared by their names
+     * like {@link #compareNames(String, String)}. The rows of methods, e.g. {@code util/Strings.java:12-40}, are
+     * compared by their files like {@link #ORDER} and then by the first line of the declaration, so declarations that
+     * start on the same line of a file are equal.
+     *
+     * @param first  the File column of a row.
+     * @param second the File column of another row.
+     * @return a negative number, zero or a positive number if the first row comes before, with or after the second.
+     */
+    public static int compareRows(String first, String second) {
+        Matcher firstMethod = METHOD_ROW.matcher(first);
+        Matcher secondMethod = METHOD_ROW.matcher(second);
+        if (!firstMethod.matches() || !secondMethod.matches()) {
+            return compareNames(first, second);
+        }
+        String firstPath = firstMethod.group(1);
+        String secondPath = secondMethod.group(1);
+        int byFile = compareNames(firstPath.substring(firstPath.lastIndexOf('/') + 1),
+                secondPath.substring(secondPath.lastIndexOf('/') + 1));
+        if (byFile == 0) {
+            byFile = firstPath.compareTo(secondPath);
+        }
+        return byFile != 0 ? byFile
+                : Integer.compare(Integer.parseInt(firstMethod.group(2)), Integer.parseInt(secondMethod.group(2)));
+    }
+
+    /**
+     * Checks whether the File column of a row identifies a method, as written with {@code --methods}.
+     *
+     * @param file the File column of a row.
+     * @return {@code true} if the row belongs to a method.
+     */
+    public static boolean isMethodRow(String file) {
+        return METHOD_ROW.matcher(file).matches();
+    }
+
+    /**
+     * Selects a stable subset of the snippets by the hash of their file names, such that a corpus can be processed
+     * by several independent processes. Every snippet belongs to exactly one of the shards 1 to {@code count}.
+     *
+     * @param index the number of the shard, starting at 1.
+     * @param count the number of shards.
+     */
+    public record Shard(int index, int count) {
+
+        /**
+         * The single shard containing all snippets.
+         */
+        public static final Shard ALL = new Shard(1, 1);
+
+        public Shard {
+            if (count < 1 || index < 1 || index > count) {
+                throw new IllegalArgumentException("The shard must be between 1/" + count + " and " + count + "/" + count
+                        + " but was " + index + "/" + count + ".");
+            }
+        }
+
+        /**
+         * Parses a shard written as {@code i/n}, e.g. {@code 2/8}.
+         *
+         * @param shard the text of the shard.
+         * @return the shard.
+         * @throws IllegalArgumentException if the text is not a valid shard.
+         */
+        public static Shard parse(String shard) {
+            String[] parts = shard.split("/");
+            try {
+                if (parts.length == 2) {
+                    return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("The shard must be given as i/n, e.g. 2/8, but was '" + shard + "'.");
+        }
+
+        /**
+         * Checks whether the snippet with the given file name belongs to this shard. The assignment only depends on the
+         * file name, so it is the same in every process and on every machine.
+         *
+         * @param name the file name of the snippet.
+         * @return {@code true} if the snippet belongs to this shard.
+         */
+        public boolean contains(String name) {
+            if (count == 1) {
+                return true;
+            }
+            // FNV-1a over the UTF-8 bytes, which spreads similar names evenly
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            return Math.floorMod(hash, count) == index - 1;
+        }
+    }
+
+    /**
+     * Checks whether a file with the given path relative to the corpus directory is a snippet of this discovery.
+     *
+     * @param relativePath the path of the file relative to the corpus directory, or the name of a packed snippet.
+     * @return {@code true} if the file is taken.
+     */
+    public boolean accepts(Path relativePath) {
+        String name = relativePath.getFileName().toString();
+        if (suffix != null && !name.endsWith(suffix)) {
+            return false;
+        }
+        if (matcher != null && !matcher.matches(matchFileName ? relativePath.getFileName() : relativePath)) {
+            return false;
+        }
+        return shard.contains(name);
+    }
+
+    /**
+     * Finds all snippet files below the given directory.
+     *
+     * @param root    the corpus directory.
+     * @param threads the number of threads listing the directories.
+     * @param onFound receives each snippet file as soon as it is found, possibly concurrently from several threads.
+     * @return all snippet files in the order of {@link #ORDER}.
+     * @throws IOException if a directory could not be listed.
+     */
+    public List<SnippetFile> discover(Path root, int threads, Consumer<SnippetFile> onFound) throws IOException {
+        Queue<SnippetFile> found = new ConcurrentLinkedQueue<>();
+        Consumer<SnippetFile> collect = file -> {
+            found.add(file);
+            onFound.accept(file);
+        };
+        if (Files.isRegularFile(root)) {
+            visitFile(root, root.getFileName(), collect);
+        } else if (threads == 1) {
+            try {
+                new ListDirectory(root, root, collect).compute();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new ListDirectory(root, root, collect));
+            } catch (RuntimeException e) {
+                // the pool may rethrow a copy of the exception of a worker, which wraps the original
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof UncheckedIOException uncheckedIOException) {
+                        throw uncheckedIOException.getCause();
+                    }
+                }
+                throw e;
+            } finally {
+                pool.shutdown();
+            }
+        }
+        List<SnippetFile> files = new ArrayList<>(found);
+        files.sort(ORDER);
+        return files;
+    }
+
+    /**
+     * Finds all snippet files below the given directory like {@link #discover(Path, int, Consumer)}.
+     *
+     * @param root the corpus directory.
+     * @return all snippet files in the order of {@link #ORDER}.
+     * @throws IOException if a directory could not be listed.
+     */
+    public List<SnippetFile> discover(Path root) throws IOException {
+        return discover(root, 1, file -> {
+        });
+    }
+
+    private void visitFile(Path file, Path relativePath, Consumer<SnippetFile> onFound) {
+        if (accepts(relativePath)) {
+            String name = file.getFileName().toString();
+            onFound.accept(new SnippetFile(file, name, Preprocess.extractNumber(name)));
+        }
+    }
+
+    /**
+     * Lists a directory, forks a task for each subdirectory and announces the snippet files. Symbolic links to
+     * directories are not followed, like by {@link Files#walk(Path, java.nio.file.FileVisitOption...)}. The tasks only
+     * live within a single discovery and are never serialized.
+     */
+    private final class ListDirectory extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path root;
+        private final transient Path directory;
+        private final transient Consumer<SnippetFile> onFound;
+
+        ListDirectory(Path root, Path directory, Consumer<SnippetFile> onFound) {
+            this.root = root;
+            this.directory = directory;
+            this.onFound = onFound;
+        }
+
+        @Override
+        protected void compute() {
+            List<ListDirectory> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subdirectories.add(new ListDirectory(root, entry, onFound));
+                    } else if (Files.isRegularFile(entry)) {
+                        visitFile(entry, root.relativize(entry), onFound);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (inForkJoinPool()) {
+                invokeAll(subdirectories);
+            } else {
+                subdirectories.forEach(ListDirectory::compute);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SnippetDiscovery[extension=" + suffix + ", glob=" + glob + ", shard=" + shard.index() + "/" + shard.count() + "]";
+    }
+}
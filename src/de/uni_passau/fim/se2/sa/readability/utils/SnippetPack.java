@@ -0,0 +1,237 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A corpus of snippets packed into a single file, such that reading the corpus does not open, stat and read every
+ * snippet file on its own.
+ * <p>
+ * The file starts with the magic bytes {@code JSNPACK1}, followed by the UTF-8 bytes of all snippets, one after another.
+ * The index of the snippets follows the data: the number of entries and, for each entry, the length and UTF-8 bytes of
+ * its name, the offset and the length of its data. The last eight bytes hold the offset of the index. All numbers are
+ * big-endian. The entries are stored in the order in which the preprocessing visits the snippets of a directory.
+ * <p>
+ * An opened pack maps the file into memory in overlapping chunks, such that each snippet lies completely within one
+ * chunk even for files larger than 2 GiB. Reading a snippet only copies its bytes out of the mapping, the pack can be
+ * read by several threads at once.
+ */
+public class SnippetPack implements AutoCloseable {
+
+    private static final byte[] MAGIC = "JSNPACK1".getBytes(StandardCharsets.US_ASCII);
+
+    private static final long DEFAULT_CHUNK_SIZE = 1L << 30;
+
+    /**
+     * Each thread decodes the snippets from its own buffer, which grows to the largest snippet read by the thread.
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    /**
+     * A snippet in the pack.
+     *
+     * @param name   the file name of the snippet.
+     * @param offset the position of the first byte of the snippet in the pack.
+     * @param length the number of UTF-8 bytes of the snippet.
+     */
+    public record Entry(String name, long offset, int length) {
+    }
+
+    private final FileChannel channel;
+    private final List<Entry> entries;
+    private final MappedByteBuffer[] chunks;
+    private final long chunkSize;
+
+    private SnippetPack(FileChannel channel, List<Entry> entries, MappedByteBuffer[] chunks, long chunkSize) {
+        this.channel = channel;
+        this.entries = entries;
+        this.chunks = chunks;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Packs all .jsnp files of the given directory and its subdirectories into the target file. The files are ordered
+     * by the number in their file names like in {@link Preprocess#collectCSVBody(Path, java.io.File, Appendable, List)}.
+     *
+     * @param sourceDir the directory containing java snippet (.jsnp) files.
+     * @param target    the pack file to write.
+     * @return the number of packed snippets.
+     * @throws IOException if a snippet could not be read or the pack could not be written.
+     */
+    public static int write(Path sourceDir, Path target) throws IOException {
+        return write(sourceDir, target, SnippetDiscovery.SNIPPETS);
+    }
+
+    /**
+     * Packs the snippet files the given discovery takes, in the order of the discovery.
+     *
+     * @param sourceDir the directory containing the snippet files.
+     * @param target    the pack file to write.
+     * @param discovery selects and orders the snippet files.
+     * @return the number of packed snippets.
+     * @throws IOException if a snippet could not be read or the pack could not be written.
+     */
+    public static int write(Path sourceDir, Path target, SnippetDiscovery discovery) throws IOException {
+        List<SnippetDiscovery.SnippetFile> files = discovery.discover(sourceDir);
+
+        List<Entry> entries = new ArrayList<>(files.size());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+            out.write(MAGIC);
+            long offset = MAGIC.length;
+            for (SnippetDiscovery.SnippetFile file : files) {
+                byte[] data = Files.readAllBytes(file.path());
+                out.write(data);
+                entries.add(new Entry(file.name(), offset, data.length));
+                offset += data.length;
+            }
+
+            long indexOffset = offset;
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+                out.writeLong(entry.offset());
+                out.writeInt(entry.length());
+            }
+            out.writeLong(indexOffset);
+        }
+        return entries.size();
+    }
+
+    /**
+     * Checks whether the given file starts with the magic bytes of a pack.
+     *
+     * @param file the file to check.
+     * @return {@code true} if the file is a pack.
+     * @throws IOException if the file could not be read.
+     */
+    public static boolean isPack(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) != -1) {
+                // read until the magic bytes are complete or the file ends
+            }
+            return Arrays.equals(magic.array(), MAGIC);
+        }
+    }
+
+    /**
+     * Opens a pack written by {@link #write(Path, Path)}.
+     *
+     * @param file the pack file.
+     * @return the opened pack.
+     * @throws IOException if the file could not be read or is not a pack.
+     */
+    public static SnippetPack open(Path file) throws IOException {
+        return open(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    static SnippetPack open(Path file, long chunkSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < MAGIC.length + Integer.BYTES + Long.BYTES || !isPack(file)) {
+                throw new IOException(file + " is not a snippet pack.");
+            }
+            long indexOffset = channel.map(FileChannel.MapMode.READ_ONLY, size - Long.BYTES, Long.BYTES).getLong();
+            if (indexOffset < MAGIC.length || indexOffset > size - Long.BYTES - Integer.BYTES) {
+                throw new IOException(file + " has a corrupt index.");
+            }
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, size - Long.BYTES - indexOffset);
+            int count = index.getInt();
+            if (count < 0) {
+                throw new IOException(file + " has a corrupt index.");
+            }
+            List<Entry> entries = new ArrayList<>();
+            int maxLength = 0;
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[index.getInt()];
+                index.get(name);
+                Entry entry = new Entry(new String(name, StandardCharsets.UTF_8), index.getLong(), index.getInt());
+                if (entry.offset() < MAGIC.length || entry.length() < 0 || entry.offset() + entry.length() > indexOffset) {
+                    throw new IOException(file + " has a corrupt index entry for " + entry.name() + ".");
+                }
+                entries.add(entry);
+                maxLength = Math.max(maxLength, entry.length());
+            }
+
+            if (chunkSize + maxLength > Integer.MAX_VALUE) {
+                throw new IOException(file + " contains a snippet that is too large to be mapped.");
+            }
+            // consecutive chunks overlap by the largest snippet, so a snippet starting in a chunk also ends in it
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) Math.max(1, (indexOffset + chunkSize - 1) / chunkSize)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = i * chunkSize;
+                long end = Math.min(indexOffset, start + chunkSize + maxLength);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            }
+            return new SnippetPack(channel, List.copyOf(entries), chunks, chunkSize);
+        } catch (BufferUnderflowException e) {
+            channel.close();
+            throw new IOException(file + " has a truncated index.", e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the snippets of the pack in the order they were packed.
+     *
+     * @return the entries of the pack.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns a read-only view of the UTF-8 bytes of the given snippet without copying them.
+     *
+     * @param entry an entry of this pack.
+     * @return the bytes of the snippet.
+     */
+    public ByteBuffer slice(Entry entry) {
+        MappedByteBuffer chunk = chunks[(int) (entry.offset() / chunkSize)];
+        return chunk.slice((int) (entry.offset() % chunkSize), entry.length()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes the code of the given snippet.
+     *
+     * @param entry an entry of this pack.
+     * @return the code of the snippet.
+     */
+    public String read(Entry entry) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < entry.length()) {
+            scratch = new byte[Math.max(entry.length(), scratch.length * 2)];
+            SCRATCH.set(scratch);
+        }
+        MappedByteBuffer chunk = chunks[(int) (entry.offset() / chunkSize)];
+        chunk.get((int) (entry.offset() % chunkSize), scratch, 0, entry.length());
+        return new String(scratch, 0, entry.length(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Closes the file of the pack. The memory mappings are released once they are no longer referenced.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,198 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Processes elements in two stages: a blocking read of each element on its own virtual thread, and the CPU-bound work
+ * on a fixed pool of platform threads. The read elements are handed over through a bounded queue, so readers that get
+ * ahead of the workers wait instead of filling the heap, and a slow read never blocks a worker that could measure
+ * another snippet in the meantime.
+ * <p>
+ * While statistics are recorded, the pipeline reports how long readers wait for room in the queue
+ * ({@link RunStatistics#READ_STALL}), how long workers wait for a read element ({@link RunStatistics#COMPUTE_STALL}) and
+ * how long the consumer waits for the next result in order ({@link RunStatistics#ORDER_STALL}), as well as the number
+ * of pending reads ({@link RunStatistics#READ_QUEUE}) and of read elements waiting for a worker
+ * ({@link RunStatistics#COMPUTE_QUEUE}).
+ *
+ * @param <T> the type of the elements.
+ * @param <D> the type of the read data.
+ * @param <R> the type of the results.
+ */
+public class StagedPipeline<T, D, R> implements AutoCloseable {
+
+    private final Function<T, D> read;
+    private final BiFunction<T, D, R> compute;
+    private final BlockingQueue<Task<T, D, R>> queue;
+    private final ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger pendingReads = new AtomicInteger();
+
+    /**
+     * A read element waiting for a worker.
+     */
+    private record Task<T, D, R>(T element, D data, CompletableFuture<R> result) {
+    }
+
+    /**
+     * Starts the workers.
+     *
+     * @param read          reads an element, called on a virtual thread.
+     * @param compute       computes the result of a read element, called on a worker thread.
+     * @param threads       the number of worker threads.
+     * @param queueCapacity the number of read elements that may wait for a worker.
+     */
+    public StagedPipeline(Function<T, D> read, BiFunction<T, D, R> compute, int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The number of threads and the queue capacity must be positive.");
+        }
+        this.read = read;
+        this.compute = compute;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "readability-worker");
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Starts reading an element without waiting, the element is computed as soon as it is read and a worker is free.
+     *
+     * @param element the element to process.
+     * @return the pending result, which fails with what the read or the computation threw.
+     */
+    public Future<R> submit(T element) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        RunStatistics statistics = RunStatistics.active();
+        int pending = pendingReads.incrementAndGet();
+        if (statistics != null) {
+            statistics.recordQueueDepth(RunStatistics.READ_QUEUE, pending);
+        }
+        readers.execute(() -> {
+            D data;
+            try {
+                data = read.apply(element);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            } finally {
+                pendingReads.decrementAndGet();
+            }
+            long start = statistics == null ? 0 : System.nanoTime();
+            try {
+                queue.put(new Task<>(element, data, result));
+            } catch (InterruptedException e) {
+                result.cancel(false);
+                return;
+            }
+            if (statistics != null) {
+                statistics.recordStage(RunStatistics.READ_STALL, System.nanoTime() - start);
+                statistics.recordQueueDepth(RunStatistics.COMPUTE_QUEUE, queue.size());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Processes the elements of the source and returns the results in the order of the source. At most {@code window}
+     * elements are in flight at any time, so the source is only consumed as fast as the results are taken.
+     *
+     * @param source the elements to process.
+     * @param window the maximum number of elements in flight.
+     * @return the results in the order of the source.
+     */
+    public Iterator<R> inOrder(Iterator<T> source, int window) {
+        return inOrder(source, window, this::submit);
+    }
+
+    /**
+     * Returns the results of the elements of the source in the order of the source like
+     * {@link #inOrder(Iterator, int)}, but obtains the pending result of each element from the given function, e.g.
+     * to take the results of elements that were submitted earlier.
+     *
+     * @param source the elements to process.
+     * @param window the maximum number of elements in flight.
+     * @param start  returns the pending result of an element, usually by {@link #submit(Object)}.
+     * @return the results in the order of the source.
+     */
+    public Iterator<R> inOrder(Iterator<T> source, int window, Function<T, Future<R>> start) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window size must be positive.");
+        }
+        Deque<Future<R>> inFlight = new ArrayDeque<>();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                while (inFlight.size() < window && source.hasNext()) {
+                    inFlight.addLast(start.apply(source.next()));
+                }
+                return !inFlight.isEmpty();
+            }
+
+            @Override
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Future<R> next = inFlight.removeFirst();
+                RunStatistics statistics = RunStatistics.active();
+                if (statistics == null || next.isDone()) {
+                    return OrderedParallelIterator.await(next);
+                }
+                long start = System.nanoTime();
+                try {
+                    return OrderedParallelIterator.await(next);
+                } finally {
+                    statistics.recordStage(RunStatistics.ORDER_STALL, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    private void work() {
+        while (true) {
+            Task<T, D, R> task;
+            RunStatistics statistics = RunStatistics.active();
+            long start = statistics == null ? 0 : System.nanoTime();
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (statistics != null) {
+                statistics.recordStage(RunStatistics.COMPUTE_STALL, System.nanoTime() - start);
+            }
+            try {
+                task.result().complete(compute.apply(task.element(), task.data()));
+            } catch (Throwable e) {
+                task.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Stops the readers and the workers, results that are still pending are never completed.
+     */
+    @Override
+    public void close() {
+        readers.shutdownNow();
+        workers.forEach(Thread::interrupt);
+        queue.forEach(task -> task.result().cancel(false));
+        queue.clear();
+    }
+}
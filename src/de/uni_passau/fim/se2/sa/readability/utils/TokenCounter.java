@@ -0,0 +1,151 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Counts the occurrences of Strings in an open-addressing hash table with primitive counts, such that counting does
+ * not box an {@link Integer} per occurrence. The counter can be cleared and reused, keeping its capacity.
+ */
+public class TokenCounter {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private String[] keys;
+    private int[] counts;
+    private int size;
+    private int total;
+
+    public TokenCounter() {
+        keys = new String[DEFAULT_CAPACITY];
+        counts = new int[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Counts one occurrence of the given String.
+     *
+     * @param key the String to count.
+     */
+    public void increment(String key) {
+        int slot = slot(keys, key);
+        if (keys[slot] == null) {
+            keys[slot] = key;
+            size++;
+        }
+        counts[slot]++;
+        total++;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Returns the number of occurrences of the given String.
+     *
+     * @param key the String to look up.
+     * @return the number of occurrences, 0 if the String was never counted.
+     */
+    public int get(String key) {
+        int slot = slot(keys, key);
+        return keys[slot] == null ? 0 : counts[slot];
+    }
+
+    /**
+     * Returns the number of distinct Strings counted.
+     *
+     * @return the number of distinct Strings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of occurrences of all Strings.
+     *
+     * @return the sum of all counts.
+     */
+    public int total() {
+        return total;
+    }
+
+    /**
+     * Returns the number of occurrences of each distinct String, in no particular order.
+     *
+     * @return the counts of all distinct Strings.
+     */
+    public int[] counts() {
+        int[] result = new int[size];
+        int next = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                result[next++] = counts[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Passes each distinct String together with its number of occurrences to the given action.
+     *
+     * @param action the action receiving the Strings and their counts.
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes all counts but keeps the capacity of the counter.
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(counts, 0);
+            size = 0;
+            total = 0;
+        }
+    }
+
+    /**
+     * Copies the counts into a map.
+     *
+     * @return a map from each distinct String to the number of its occurrences.
+     */
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> map = new HashMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new String[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of the given key by linear probing, which is either the slot holding the key or the first free slot.
+     */
+    private static int slot(String[] keys, String key) {
+        int mask = keys.length - 1;
+        int hash = key.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
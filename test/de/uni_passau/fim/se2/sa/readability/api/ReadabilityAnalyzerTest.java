@@ -0,0 +1,124 @@
+package de.uni_passau.fim.se2.sa.readability.api;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetrics;
+import de.uni_passau.fim.se2.sa.readability.features.NumberLinesFeature;
+import de.uni_passau.fim.se2.sa.readability.utils.Classify;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel;
+import de.uni_passau.fim.se2.sa.readability.utils.ReadabilityModel.Prediction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadabilityAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Snippet snippet(int i) {
+        return new Snippet("s" + i, "int f" + i + "(int x) {\n" + "    x = x + 1;\n".repeat(i % 7) + "    return x;\n}");
+    }
+
+    @Test
+    void testResultsAreOrderedAndMatchTheMetrics() {
+        List<FeatureMetric> metrics = FeatureMetrics.all();
+        ReadabilityAnalyzer analyzer = new ReadabilityAnalyzer(metrics, 4);
+
+        List<SnippetResult> results;
+        try (Stream<SnippetResult> stream = analyzer.analyze(IntStream.range(0, 50).mapToObj(ReadabilityAnalyzerTest::snippet))) {
+            results = stream.toList();
+        }
+
+        assertEquals(50, results.size());
+        for (int i = 0; i < 50; i++) {
+            SnippetResult result = results.get(i);
+            assertEquals("s" + i, result.getId());
+            assertTrue(result.isSuccessful());
+            assertTrue(result.getPrediction().isEmpty());
+            double[] features = result.getFeatures();
+            for (int m = 0; m < metrics.size(); m++) {
+                assertEquals(metrics.get(m).computeMetric(snippet(i).code()), features[m]);
+            }
+        }
+    }
+
+    @Test
+    void testFailuresAreReportedPerSnippet() {
+        ReadabilityAnalyzer analyzer = new ReadabilityAnalyzer(FeatureMetrics.all(), 2);
+
+        List<SnippetResult> results = analyzer.analyze(List.of(snippet(1), new Snippet("broken", "void f( {"), snippet(2)))
+                .toList();
+
+        assertTrue(results.get(0).isSuccessful());
+        assertFalse(results.get(1).isSuccessful());
+        assertTrue(results.get(1).getFailure().isPresent());
+        assertThrows(IllegalStateException.class, () -> results.get(1).getFeatures());
+        assertTrue(results.get(2).isSuccessful());
+    }
+
+    @Test
+    void testSourceIsConsumedLazily() {
+        AtomicInteger taken = new AtomicInteger();
+        AtomicBoolean sourceClosed = new AtomicBoolean();
+        Stream<Snippet> source = Stream.iterate(0, i -> i + 1)
+                .map(i -> {
+                    taken.incrementAndGet();
+                    return snippet(i);
+                })
+                .onClose(() -> sourceClosed.set(true));
+        ReadabilityAnalyzer analyzer = new ReadabilityAnalyzer(List.of(new NumberLinesFeature()), null, 2, 3);
+
+        try (Stream<SnippetResult> results = analyzer.analyze(source)) {
+            assertEquals(List.of("s0", "s1", "s2", "s3", "s4"), results.limit(5).map(SnippetResult::getId).toList());
+        }
+
+        assertTrue(taken.get() <= 5 + 3, "took " + taken.get() + " snippets");
+        assertTrue(sourceClosed.get());
+    }
+
+    private ReadabilityModel trainLinesModel() throws Exception {
+        File csv = tempDir.resolve("data.csv").toFile();
+        try (FileWriter writer = new FileWriter(csv)) {
+            writer.write("File,NumberLines,Truth\n1.jsnp,3.00,Y\n2.jsnp,4.00,Y\n3.jsnp,8.00,N\n4.jsnp,5.00,Y\n"
+                    + "5.jsnp,9.00,N\n6.jsnp,7.00,N\n");
+        }
+        return ReadabilityModel.train(Classify.loadDataset(csv));
+    }
+
+    @Test
+    void testPredictionsMatchTheModel() throws Exception {
+        ReadabilityModel model = trainLinesModel();
+        ReadabilityAnalyzer analyzer = new ReadabilityAnalyzer(model, 2);
+
+        for (int i = 0; i < 7; i++) {
+            SnippetResult result = analyzer.analyze(snippet(i));
+            assertEquals(model.predict(snippet(i).code()), result.getPrediction().orElseThrow());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReadabilityAnalyzer(FeatureMetrics.all(), model, 1, 1));
+    }
+
+    @Test
+    void testParallelPredictionsMatchSequentialOnes() throws Exception {
+        ReadabilityModel model = trainLinesModel();
+        List<Snippet> snippets = IntStream.range(0, 100_000).mapToObj(ReadabilityAnalyzerTest::snippet).toList();
+
+        List<Optional<Prediction>> sequential = new ReadabilityAnalyzer(model, 1).analyze(snippets)
+                .map(SnippetResult::getPrediction).toList();
+        List<Optional<Prediction>> parallel = new ReadabilityAnalyzer(model, 8).analyze(snippets)
+                .map(SnippetResult::getPrediction).toList();
+
+        assertEquals(sequential, parallel);
+    }
+}
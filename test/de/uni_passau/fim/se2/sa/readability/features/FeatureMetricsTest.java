@@ -0,0 +1,74 @@
+package de.uni_passau.fim.se2.sa.readability.features;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureMetricsTest {
+
+    /**
+     * A metric of another library, registered as a service.
+     */
+    public static class CharacterCountFeature extends FeatureMetric {
+
+        @Override
+        public double computeMetric(String codeSnippet) {
+            return codeSnippet.length();
+        }
+
+        @Override
+        public MetricInput getRequiredInput() {
+            return MetricInput.TEXT;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return "CharacterCount";
+        }
+    }
+
+    @Test
+    void testForIdentifierFindsEachMetric() {
+        for (FeatureMetric metric : FeatureMetrics.all()) {
+            assertEquals(metric.getClass(), FeatureMetrics.forIdentifier(metric.getIdentifier()).getClass());
+        }
+    }
+
+    @Test
+    void testForIdentifierRejectsUnknownIdentifier() {
+        assertThrows(IllegalArgumentException.class, () -> FeatureMetrics.forIdentifier("File"));
+    }
+
+    @Test
+    void testForNameAcceptsCommandLineNamesAndIdentifiers() {
+        assertInstanceOf(NumberLinesFeature.class, FeatureMetrics.forName("LINES"));
+        assertInstanceOf(HalsteadVolumeFeature.class, FeatureMetrics.forName("h_volume"));
+        assertInstanceOf(TokenEntropyFeature.class, FeatureMetrics.forName("TokenEntropy"));
+        assertInstanceOf(CyclomaticComplexityFeature.class, FeatureMetrics.forName("CYCLOMATICCOMPLEXITY"));
+        assertThrows(IllegalArgumentException.class, () -> FeatureMetrics.forName("words"));
+    }
+
+    @Test
+    void testAllIncludesRegisteredMetrics(@TempDir Path dir) throws IOException {
+        Path services = dir.resolve("META-INF/services");
+        Files.createDirectories(services);
+        Files.writeString(services.resolve(FeatureMetric.class.getName()),
+                "# a comment\n" + CharacterCountFeature.class.getName() + "\n" + NumberLinesFeature.class.getName() + "\n");
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+            List<FeatureMetric> metrics = FeatureMetrics.all(ServiceLoader.load(FeatureMetric.class, classLoader));
+
+            assertEquals(List.of("NumberLines", "HalsteadVolume", "TokenEntropy", "CyclomaticComplexity", "CharacterCount"),
+                    metrics.stream().map(FeatureMetric::getIdentifier).toList());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package de.uni_passau.fim.se2.sa.readability.features;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricPlanTest {
+
+    @Test
+    void testTextMetricsNeedNoLexerOrParser() {
+        MetricPlan plan = MetricPlan.of(List.of(new NumberLinesFeature()));
+
+        assertEquals(MetricInput.TEXT, plan.getRequiredInput());
+        assertFalse(plan.needsParser());
+        assertEquals(List.of("read"), plan.getStages());
+        assertEquals(1, plan.getEstimatedCost());
+    }
+
+    @Test
+    void testTokenMetricsOnlyNeedTheLexer() {
+        MetricPlan plan = MetricPlan.of(List.of(new NumberLinesFeature(), new TokenEntropyFeature()));
+
+        assertEquals(MetricInput.TOKENS, plan.getRequiredInput());
+        assertFalse(plan.needsParser());
+        assertEquals(List.of("read", "lex"), plan.getStages());
+        assertEquals(MetricInput.TOKENS.getPreparationCost() + 3, plan.getEstimatedCost());
+    }
+
+    @Test
+    void testAstMetricsNeedTheParser() {
+        MetricPlan plan = MetricPlan.of(List.of(new TokenEntropyFeature(), new CyclomaticComplexityFeature()));
+
+        assertEquals(MetricInput.AST, plan.getRequiredInput());
+        assertTrue(plan.needsParser());
+        assertEquals(List.of("read", "parse"), plan.getStages());
+    }
+
+    @Test
+    void testUndeclaredMetricsNeedTheParser() {
+        FeatureMetric undeclared = new FeatureMetric() {
+            @Override
+            public double computeMetric(String codeSnippet) {
+                return 0;
+            }
+
+            @Override
+            public String getIdentifier() {
+                return "Undeclared";
+            }
+        };
+
+        assertTrue(MetricPlan.of(List.of(new NumberLinesFeature(), undeclared)).needsParser());
+    }
+
+    @Test
+    void testEmptyPlanOnlyReads() {
+        MetricPlan plan = MetricPlan.of(List.of());
+
+        assertEquals(MetricInput.TEXT, plan.getRequiredInput());
+        assertEquals(0, plan.getEstimatedCost());
+    }
+}
@@ -73,4 +73,23 @@ public void testGetIdentifier() {
         NumberLinesFeature feature = new NumberLinesFeature();
         Assertions.assertEquals("NumberLines", feature.getIdentifier());
     }
+
+    @Test
+    public void testComputeMetricMatchesRegexSplit() {
+        NumberLinesFeature feature = new NumberLinesFeature();
+        String[] snippets = {"", "a", "\n", "\n\n", "\r\n", "\r", "a\n", "a\n\n", "a\r\n\r\n", "\na", "a\rb",
+                "a\r\r\n", "a\n\r", "\r\n\r", "a\nb\r\nc", "\n\na\n\n"};
+        for (String snippet : snippets) {
+            Assertions.assertEquals(snippet.split("\\r?\\n").length, feature.computeMetric(snippet), snippet);
+        }
+        java.util.Random random = new java.util.Random(7);
+        char[] alphabet = {'a', '\r', '\n', ' '};
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder snippet = new StringBuilder();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                snippet.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            Assertions.assertEquals(snippet.toString().split("\\r?\\n").length, feature.computeMetric(snippet.toString()));
+        }
+    }
 }
@@ -8,6 +8,7 @@
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -145,4 +146,35 @@ public void testSingleClassDataset() throws IOException {
         assertNotNull(exception.getMessage());
     }
 
+    @Test
+    public void testParallelFoldsMatchSequentialCrossValidation() throws Exception {
+        File tempFile = File.createTempFile("parallel_folds", ".csv");
+        tempFile.deleteOnExit();
+
+        Random random = new Random(42);
+        try (FileWriter writer = new FileWriter(tempFile)) {
+            writer.write("feature1,feature2,feature3,class\n");
+            for (int i = 0; i < 120; i++) {
+                double a = random.nextGaussian();
+                double b = random.nextGaussian();
+                double c = random.nextDouble() * 10;
+                String label = a + 0.5 * b + random.nextGaussian() > 0 ? "Y" : "N";
+                writer.write(a + "," + b + "," + c + "," + label + "\n");
+            }
+        }
+
+        Instances dataset = Classify.loadDataset(tempFile);
+
+        Evaluation sequential = new Evaluation(dataset);
+        sequential.crossValidateModel(new Logistic(), dataset, 10, new Random(1));
+
+        for (int threads : new int[]{1, 4, 16}) {
+            Evaluation parallel = Classify.trainAndEvaluate(dataset, threads);
+            assertEquals(sequential.toSummaryString(), parallel.toSummaryString());
+            assertEquals(sequential.toClassDetailsString(), parallel.toClassDetailsString());
+            assertEquals(sequential.toMatrixString(), parallel.toMatrixString());
+            assertEquals(sequential.areaUnderROC(0), parallel.areaUnderROC(0));
+            assertEquals(sequential.SFMeanEntropyGain(), parallel.SFMeanEntropyGain());
+        }
+    }
 }
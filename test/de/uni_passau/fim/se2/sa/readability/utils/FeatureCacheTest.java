@@ -0,0 +1,146 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.CyclomaticComplexityFeature;
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.HalsteadVolumeFeature;
+import de.uni_passau.fim.se2.sa.readability.features.NumberLinesFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStoreAndLoad() throws IOException {
+        FeatureCache cache = new FeatureCache(tempDir.resolve("cache"), 1 << 20);
+        String hash = FeatureCache.hash("class A {}");
+        FeatureMetric metric = new NumberLinesFeature();
+
+        FeatureCache.Entry entry = cache.load(hash);
+        assertTrue(entry.get(metric).isEmpty());
+        entry.put(metric, 1.23456789);
+        cache.store(entry);
+        assertEquals(OptionalDouble.of(1.23456789), cache.load(hash).get(metric));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testValuesOfASnippetShareOneEntry() throws IOException {
+        FeatureCache cache = new FeatureCache(tempDir, 1 << 20);
+        String hash = FeatureCache.hash("class A {}");
+        FeatureCache.Entry entry = cache.load(hash);
+        entry.put(new NumberLinesFeature(), 1.0);
+        entry.put(new HalsteadVolumeFeature(), 2.0);
+        cache.store(entry);
+
+        FeatureCache.Entry extended = cache.load(hash);
+        extended.put(new CyclomaticComplexityFeature(), 3.0);
+        cache.store(extended);
+
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+        FeatureCache.Entry loaded = cache.load(hash);
+        assertEquals(OptionalDouble.of(1.0), loaded.get(new NumberLinesFeature()));
+        assertEquals(OptionalDouble.of(2.0), loaded.get(new HalsteadVolumeFeature()));
+        assertEquals(OptionalDouble.of(3.0), loaded.get(new CyclomaticComplexityFeature()));
+    }
+
+    @Test
+    void testHashDependsOnContent() {
+        assertEquals(FeatureCache.hash("a"), FeatureCache.hash("a"));
+        assertNotEquals(FeatureCache.hash("a"), FeatureCache.hash("b"));
+        assertEquals(64, FeatureCache.hash("").length());
+    }
+
+    @Test
+    void testNewMetricVersionMisses() throws IOException {
+        FeatureCache cache = new FeatureCache(tempDir, 1 << 20);
+        String hash = FeatureCache.hash("class A {}");
+        put(cache, hash, new NumberLinesFeature(), 3.0);
+
+        FeatureMetric newVersion = new NumberLinesFeature() {
+            @Override
+            public int getVersion() {
+                return 2;
+            }
+        };
+        assertTrue(cache.load(hash).get(newVersion).isEmpty());
+    }
+
+    @Test
+    void testEvictRemovesLeastRecentlyUsed() throws IOException, InterruptedException {
+        FeatureMetric metric = new NumberLinesFeature();
+        for (int i = 0; i < 8; i++) {
+            put(new FeatureCache(tempDir, 1 << 20), FeatureCache.hash("snippet" + i), metric, i);
+        }
+        long entrySize;
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            entrySize = files.filter(Files::isRegularFile).findAny().orElseThrow().toFile().length();
+        }
+        FeatureCache cache = new FeatureCache(tempDir, 4 * entrySize);
+        Thread.sleep(20);
+        cache.load(FeatureCache.hash("snippet0"));
+
+        assertEquals(5, cache.evict());
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertEquals(3, files.filter(Files::isRegularFile).count());
+        }
+        assertTrue(cache.load(FeatureCache.hash("snippet0")).get(metric).isPresent());
+        assertEquals(0, cache.evict());
+    }
+
+    @Test
+    void testCollectCSVBody_skipsUnchangedSnippets() throws IOException {
+        Path snippets = Files.createDirectory(tempDir.resolve("snippets"));
+        Files.writeString(snippets.resolve("1.jsnp"), "void a() {}", StandardCharsets.UTF_8);
+        Files.writeString(snippets.resolve("2.jsnp"), "void b() {\n}", StandardCharsets.UTF_8);
+        File truth = tempDir.resolve("truth.csv").toFile();
+        try (PrintWriter writer = new PrintWriter(truth)) {
+            writer.println("id,Snippet1,Snippet2");
+            writer.println("mean,4.0,3.0");
+        }
+        AtomicInteger computations = new AtomicInteger();
+        FeatureMetric metric = new NumberLinesFeature() {
+            @Override
+            public double computeMetric(String codeSnippet) {
+                computations.incrementAndGet();
+                return super.computeMetric(codeSnippet);
+            }
+        };
+        FeatureCache cache = new FeatureCache(tempDir.resolve("cache"), 1 << 20);
+
+        StringBuilder first = new StringBuilder();
+        Preprocess.collectCSVBody(snippets, truth, first, List.of(metric), PreprocessOptions.DEFAULTS.withCache(cache));
+        assertEquals(2, computations.get());
+
+        Files.writeString(snippets.resolve("2.jsnp"), "void b() {\n\n}", StandardCharsets.UTF_8);
+        StringBuilder second = new StringBuilder();
+        Preprocess.collectCSVBody(snippets, truth, second, List.of(metric),
+                PreprocessOptions.DEFAULTS.withThreads(2).withCache(cache));
+        assertEquals(3, computations.get());
+        assertEquals("1.jsnp,1.00,Y\n2.jsnp,3.00,N\n", second.toString());
+    }
+
+    private static void put(FeatureCache cache, String hash, FeatureMetric metric, double value) {
+        FeatureCache.Entry entry = cache.load(hash);
+        entry.put(metric, value);
+        cache.store(entry);
+    }
+}
@@ -0,0 +1,89 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureDatasetTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File writeCsv() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        Preprocess.appendCSVHeader(csv, List.of("NumberLines", "TokenEntropy"));
+        Preprocess.appendCSVRow(csv, new FeatureRow("2.jsnp", new double[]{3.0, 1.25}, "N"));
+        Preprocess.appendCSVRow(csv, new FeatureRow("1.jsnp", new double[]{8.0, 2.5}, "Y"));
+        Preprocess.appendCSVRow(csv, new FeatureRow("3.jsnp", new double[]{5.0, 0.75}, "N"));
+        return Files.writeString(tempDir.resolve("features.csv"), csv).toFile();
+    }
+
+    @Test
+    void testLoadCsv_keepsFilesAsRowIds() throws IOException {
+        FeatureDataset dataset = FeatureDataset.load(writeCsv());
+        Instances instances = dataset.instances();
+
+        assertEquals(List.of("2.jsnp", "1.jsnp", "3.jsnp"), dataset.files());
+        assertEquals("features", instances.relationName());
+        assertEquals(3, instances.numAttributes());
+        assertNull(instances.attribute("File"));
+        assertEquals(8.0, instances.instance(1).value(0));
+        assertEquals(2.5, instances.instance(1).value(1));
+    }
+
+    @Test
+    void testLoadCsv_truthIsNominalClass() throws IOException {
+        Instances instances = FeatureDataset.load(writeCsv()).instances();
+
+        assertEquals("Truth", instances.classAttribute().name());
+        assertEquals(2, instances.classIndex());
+        assertEquals("N", instances.classAttribute().value(0));
+        assertEquals("Y", instances.classAttribute().value(1));
+    }
+
+    @Test
+    void testLoadFeatureFile_matchesCsv() throws Exception {
+        File csv = writeCsv();
+        File features = tempDir.resolve("features.features").toFile();
+        FeatureFile.csvToFeatureFile(csv, features);
+
+        FeatureDataset fromCsv = FeatureDataset.load(csv);
+        FeatureDataset fromFeatures = FeatureDataset.load(features);
+
+        assertEquals(fromCsv.files(), fromFeatures.files());
+        assertNull(fromCsv.instances().equalHeadersMsg(fromFeatures.instances()));
+        for (int i = 0; i < fromCsv.instances().numInstances(); i++) {
+            assertArrayEquals(fromCsv.instances().instance(i).toDoubleArray(),
+                    fromFeatures.instances().instance(i).toDoubleArray());
+        }
+    }
+
+    @Test
+    void testHasFeatureSchema() throws IOException {
+        assertTrue(FeatureDataset.hasFeatureSchema(writeCsv()));
+        Path other = Files.writeString(tempDir.resolve("other.csv"), "feature1,feature2,class\n1.0,2.0,A\n");
+        assertFalse(FeatureDataset.hasFeatureSchema(other.toFile()));
+    }
+
+    @Test
+    void testClassifyLoadsFeatureCsvWithoutFileAttribute() throws IOException {
+        Instances instances = Classify.loadDataset(writeCsv());
+
+        assertEquals(3, instances.numAttributes());
+        assertEquals("Truth", instances.classAttribute().name());
+    }
+
+    @Test
+    void testRejectsNonNumericValues() throws IOException {
+        Path csv = Files.writeString(tempDir.resolve("bad.csv"), "File,NumberLines,Truth\n1.jsnp,many,Y\n");
+        assertThrows(IOException.class, () -> FeatureDataset.load(csv.toFile()));
+    }
+}
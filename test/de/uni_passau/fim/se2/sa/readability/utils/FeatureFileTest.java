@@ -0,0 +1,112 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File writeCsv(int rows) throws IOException {
+        Random random = new Random(7);
+        StringBuilder csv = new StringBuilder();
+        Preprocess.appendCSVHeader(csv, List.of("NumberLines", "HalsteadVolume"));
+        for (int i = 0; i < rows; i++) {
+            double[] values = {random.nextInt(60), Preprocess.roundTwoDecimals(random.nextDouble() * 1000)};
+            // the first label is N, such that the labels are not in alphabetical order
+            String truth = i == 0 || random.nextBoolean() ? "N" : "Y";
+            Preprocess.appendCSVRow(csv, new FeatureRow((rows - i) + ".jsnp", values, truth));
+        }
+        Path file = tempDir.resolve("features.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+
+    @Test
+    void testConversionRoundTripIsLossless() throws IOException {
+        File csv = writeCsv(10_000);
+        File features = tempDir.resolve("features.features").toFile();
+
+        assertEquals(10_000, FeatureFile.csvToFeatureFile(csv, features));
+        assertTrue(FeatureFile.isFeatureFile(features));
+        assertFalse(FeatureFile.isFeatureFile(csv));
+
+        StringBuilder back = new StringBuilder();
+        assertEquals(10_000, FeatureFile.featureFileToCsv(features, back));
+        assertEquals(Files.readString(csv.toPath(), StandardCharsets.UTF_8), back.toString());
+    }
+
+    @Test
+    void testLoadMatchesCsv() throws IOException {
+        File csv = writeCsv(5_000);
+        File features = tempDir.resolve("features.features").toFile();
+        FeatureFile.csvToFeatureFile(csv, features);
+
+        FeatureDataset expected = FeatureDataset.load(csv);
+        FeatureDataset actual = FeatureDataset.load(features);
+
+        assertNull(expected.instances().equalHeadersMsg(actual.instances()));
+        assertNull(actual.instances().attribute(FeatureCsvReader.FILE_ATTRIBUTE));
+        assertEquals("features", actual.instances().relationName());
+        assertEquals(expected.files(), actual.files());
+        assertEquals(expected.instances().numInstances(), actual.instances().numInstances());
+        for (int i = 0; i < expected.instances().numInstances(); i++) {
+            assertArrayEquals(expected.instances().instance(i).toDoubleArray(),
+                    actual.instances().instance(i).toDoubleArray());
+        }
+    }
+
+    @Test
+    void testClassifyLoadsBothFormats() throws Exception {
+        File csv = writeCsv(300);
+        File features = tempDir.resolve("features.features").toFile();
+        FeatureFile.csvToFeatureFile(csv, features);
+
+        Instances fromCsv = Classify.loadDataset(csv);
+        Instances fromFeatures = Classify.loadDataset(features);
+
+        assertEquals("Truth", fromFeatures.classAttribute().name());
+        assertEquals(Classify.trainAndEvaluate(fromCsv, 2).toSummaryString(),
+                Classify.trainAndEvaluate(fromFeatures, 2).toSummaryString());
+    }
+
+    @Test
+    void testEmptyFile() throws IOException {
+        File features = tempDir.resolve("empty.features").toFile();
+        new FeatureFile.Writer(new FileOutputStream(features), List.of("NumberLines")).close();
+
+        Instances dataset = FeatureDataset.load(features).instances();
+        assertEquals(0, dataset.numInstances());
+        assertEquals(2, dataset.numAttributes());
+    }
+
+    @Test
+    void testRejectsCorruptFiles() throws IOException {
+        File csv = writeCsv(10);
+        assertThrows(IOException.class, () -> FeatureFile.read(csv));
+
+        File features = tempDir.resolve("features.features").toFile();
+        FeatureFile.csvToFeatureFile(csv, features);
+        byte[] bytes = Files.readAllBytes(features.toPath());
+        Path truncated = Files.write(tempDir.resolve("truncated.features"), Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> FeatureFile.read(truncated.toFile()));
+
+        Path badHeader = Files.writeString(tempDir.resolve("bad.csv"), "Name,NumberLines\na,1.00\n");
+        assertThrows(IOException.class,
+                () -> FeatureFile.csvToFeatureFile(badHeader.toFile(), tempDir.resolve("bad.features").toFile()));
+    }
+}
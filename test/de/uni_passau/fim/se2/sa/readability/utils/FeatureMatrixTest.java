@@ -0,0 +1,153 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureMatrixTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<FeatureRow> rows(int count) {
+        Random random = new Random(7);
+        List<FeatureRow> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double[] values = {random.nextInt(60), random.nextDouble() * 1000};
+            // the first label is N, such that the labels are not in alphabetical order
+            String truth = i == 0 || random.nextBoolean() ? "N" : "Y";
+            rows.add(new FeatureRow((i + 1) + ".jsnp", values, truth));
+        }
+        return rows;
+    }
+
+    private File writeMatrix(String name, List<FeatureRow> rows) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (FeatureMatrix.Writer writer = new FeatureMatrix.Writer(file, List.of("NumberLines", "HalsteadVolume"))) {
+            for (FeatureRow row : rows) {
+                writer.accept(row);
+            }
+        }
+        return file;
+    }
+
+    private File writeCsv(String name, List<FeatureRow> rows) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        Preprocess.appendCSVHeader(csv, List.of("NumberLines", "HalsteadVolume"));
+        for (FeatureRow row : rows) {
+            Preprocess.appendCSVRow(csv, row);
+        }
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+
+    @Test
+    void testValuesAreStoredInColumns() throws IOException {
+        List<FeatureRow> rows = rows(10_000);
+        File file = writeMatrix("features.matrix", rows);
+
+        assertTrue(FeatureMatrix.isFeatureMatrix(file));
+        assertFalse(FeatureFile.isFeatureFile(file));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(file.toPath()), files.toList());
+        }
+        try (FeatureMatrix matrix = FeatureMatrix.open(file)) {
+            assertEquals(List.of("NumberLines", "HalsteadVolume"), matrix.featureIdentifiers());
+            assertEquals(List.of("N", "Y"), matrix.labels());
+            assertEquals(10_000, matrix.rowCount());
+
+            double[] column = new double[100];
+            matrix.readColumn(1, 5_000, column, 0, column.length);
+            int[] labels = new int[100];
+            matrix.readLabelIndices(5_000, labels, 0, labels.length);
+            for (int i = 0; i < column.length; i++) {
+                FeatureRow row = rows.get(5_000 + i);
+                assertEquals(Preprocess.roundTwoDecimals(row.values()[1]), column[i]);
+                assertEquals(row.values()[0], matrix.value(5_000 + i, 0));
+                assertEquals(row.truth(), matrix.labels().get(labels[i]));
+                assertEquals(labels[i], matrix.labelIndex(5_000 + i));
+            }
+        }
+    }
+
+    @Test
+    void testCsvConversionMatchesPreprocessing() throws IOException {
+        List<FeatureRow> rows = rows(3_000);
+        File matrix = writeMatrix("features.matrix", rows);
+        File csv = writeCsv("features.csv", rows);
+
+        StringBuilder converted = new StringBuilder();
+        assertEquals(3_000, FeatureMatrix.featureMatrixToCsv(matrix, converted));
+        assertEquals(Files.readString(csv.toPath(), StandardCharsets.UTF_8), converted.toString());
+    }
+
+    @Test
+    void testClassifyLoadsTheSameDatasetAsFromTheCsv() throws IOException {
+        List<FeatureRow> rows = rows(20_000);
+        File matrix = writeMatrix("features.matrix", rows);
+        File csv = writeCsv("features.csv", rows);
+
+        Instances expected = Classify.loadDataset(csv);
+        Instances actual = Classify.loadDataset(matrix);
+
+        assertNull(expected.equalHeadersMsg(actual));
+        assertEquals("features", actual.relationName());
+        assertEquals(expected.numInstances(), actual.numInstances());
+        for (int i = 0; i < expected.numInstances(); i++) {
+            assertArrayEquals(expected.instance(i).toDoubleArray(), actual.instance(i).toDoubleArray());
+        }
+
+        FeatureDataset dataset = FeatureDataset.load(matrix);
+        assertEquals(rows.stream().map(FeatureRow::file).toList(), dataset.files());
+        assertEquals(expected.toString(), dataset.instances().toString());
+    }
+
+    @Test
+    void testEmptyMatrix() throws IOException {
+        File file = writeMatrix("empty.matrix", List.of());
+
+        try (FeatureMatrix matrix = FeatureMatrix.open(file)) {
+            assertEquals(0, matrix.rowCount());
+            assertEquals(List.of(), matrix.labels());
+            assertEquals(0, matrix.toInstances("empty", 16).numInstances());
+        }
+    }
+
+    @Test
+    void testTruncatedMatrixIsRejected() throws IOException {
+        File file = writeMatrix("features.matrix", rows(100));
+        try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+            truncated.setLength(truncated.length() - 1_000);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> FeatureMatrix.open(file));
+        assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+    }
+
+    @Test
+    void testHeaderLengthInsideTheHeaderIsRejected() throws IOException {
+        File file = writeMatrix("features.matrix", rows(100));
+        try (RandomAccessFile corrupt = new RandomAccessFile(file, "rw")) {
+            // the header length follows the eight magic bytes
+            corrupt.seek(8);
+            corrupt.writeInt(12);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> FeatureMatrix.open(file));
+        assertTrue(e.getMessage().contains("corrupt header"), e.getMessage());
+    }
+}
@@ -0,0 +1,168 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.NumberLinesFeature;
+import de.uni_passau.fim.se2.sa.readability.features.TokenEntropyFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureMergerTest {
+
+    private static final List<FeatureMetric> METRICS = List.of(new NumberLinesFeature(), new TokenEntropyFeature());
+    private static final List<String> IDENTIFIERS = List.of("NumberLines", "TokenEntropy");
+
+    @TempDir
+    Path tempDir;
+
+    private Path corpus;
+    private File truth;
+
+    private void writeCorpus() throws IOException {
+        corpus = Files.createDirectories(tempDir.resolve("snippets"));
+        StringBuilder ids = new StringBuilder("id");
+        StringBuilder means = new StringBuilder("mean");
+        for (int i = 1; i <= 20; i++) {
+            Files.writeString(corpus.resolve(i + ".jsnp"), "int x = " + i + ";\n".repeat(i % 4 + 1));
+            ids.append(",Snippet").append(i);
+            means.append(",").append(i % 2 == 0 ? "4.0" : "3.0");
+        }
+        truth = Files.writeString(tempDir.resolve("truth.csv"), ids + "\n" + means + "\n").toFile();
+    }
+
+    private String preprocessCsv(SnippetDiscovery.Shard shard) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        Preprocess.appendCSVHeader(csv, IDENTIFIERS);
+        Preprocess.collectFeatures(corpus, truth, row -> Preprocess.appendCSVRow(csv, row), METRICS,
+                PreprocessOptions.DEFAULTS.withThreads(2).withDiscovery(new SnippetDiscovery("jsnp", null, shard)));
+        return csv.toString();
+    }
+
+    private File preprocessFeatureFile(SnippetDiscovery.Shard shard, File target) throws IOException {
+        try (FeatureFile.Writer writer = new FeatureFile.Writer(new FileOutputStream(target), IDENTIFIERS)) {
+            Preprocess.collectFeatures(corpus, truth, writer, METRICS,
+                    PreprocessOptions.DEFAULTS.withDiscovery(new SnippetDiscovery("jsnp", null, shard)));
+        }
+        return target;
+    }
+
+    private static String mergeToCsv(List<File> inputs) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        try (FeatureMerger merger = new FeatureMerger(inputs)) {
+            Preprocess.appendCSVHeader(csv, merger.featureIdentifiers());
+            merger.mergeInto(row -> Preprocess.appendCSVRow(csv, row));
+        }
+        return csv.toString();
+    }
+
+    @Test
+    void testMergeShards_equalsUnshardedRun() throws IOException {
+        writeCorpus();
+        List<File> shards = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            String shard = preprocessCsv(new SnippetDiscovery.Shard(i, 3));
+            shards.add(Files.writeString(tempDir.resolve("shard" + i + ".csv"), shard).toFile());
+        }
+
+        assertEquals(preprocessCsv(SnippetDiscovery.Shard.ALL), mergeToCsv(shards));
+    }
+
+    @Test
+    void testMergeMixedFormats_equalsUnshardedRun() throws IOException {
+        writeCorpus();
+        File first = Files.writeString(tempDir.resolve("shard1.csv"),
+                preprocessCsv(new SnippetDiscovery.Shard(1, 2))).toFile();
+        File second = preprocessFeatureFile(new SnippetDiscovery.Shard(2, 2), tempDir.resolve("shard2.features").toFile());
+
+        assertEquals(preprocessCsv(SnippetDiscovery.Shard.ALL), mergeToCsv(List.of(second, first)));
+    }
+
+    private String preprocessMethodsCsv(Path sources, SnippetDiscovery.Shard shard) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        Preprocess.appendCSVHeader(csv, IDENTIFIERS);
+        Preprocess.collectMethodFeatures(sources, row -> Preprocess.appendCSVRow(csv, row), METRICS,
+                PreprocessOptions.DEFAULTS.withDiscovery(new SnippetDiscovery("java", null, shard)));
+        return csv.toString();
+    }
+
+    @Test
+    void testMergeMethodShards_equalsUnshardedRun() throws IOException {
+        Path sources = Files.createDirectories(tempDir.resolve("src/pkg"));
+        // the line numbers of the first file are larger than those of the second
+        Files.writeString(tempDir.resolve("src/A1.java"), "class A1 {\n" + "\n".repeat(100)
+                + "  int f() {\n    return 1;\n  }\n  int g() { return 2; } int h() { return 3; }\n}\n");
+        Files.writeString(tempDir.resolve("src/A2.java"), "class A2 {\n  void f() {}\n}\n");
+        Files.writeString(sources.resolve("A1.java"), "class A1 {\n  void f() {}\n}\n");
+        for (int i = 3; i <= 12; i++) {
+            Files.writeString(tempDir.resolve("src/A" + i + ".java"), "class A" + i + " {\n" + "\n".repeat(i)
+                    + "  int f() { return " + i + "; }\n}\n");
+        }
+        Path root = tempDir.resolve("src");
+        List<File> shards = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            String shard = preprocessMethodsCsv(root, new SnippetDiscovery.Shard(i, 3));
+            shards.add(Files.writeString(tempDir.resolve("methods" + i + ".csv"), shard).toFile());
+        }
+
+        String unsharded = preprocessMethodsCsv(root, SnippetDiscovery.Shard.ALL);
+        assertTrue(unsharded.indexOf("A1.java:102-104") < unsharded.indexOf("A2.java:2-2"), unsharded);
+        assertEquals(unsharded, mergeToCsv(shards));
+    }
+
+    @Test
+    void testMerge_rejectsDifferentFeatures() throws IOException {
+        File first = Files.writeString(tempDir.resolve("a.csv"), "File,NumberLines,Truth\n1.jsnp,1.00,Y\n").toFile();
+        File second = Files.writeString(tempDir.resolve("b.csv"), "File,TokenEntropy,Truth\n2.jsnp,1.00,Y\n").toFile();
+
+        assertThrows(IOException.class, () -> new FeatureMerger(List.of(first, second)));
+    }
+
+    @Test
+    void testMerge_rejectsUnorderedInput() throws IOException {
+        File unordered = Files.writeString(tempDir.resolve("a.csv"),
+                "File,NumberLines,Truth\n2.jsnp,1.00,Y\n1.jsnp,1.00,N\n").toFile();
+
+        IOException e = assertThrows(IOException.class, () -> mergeToCsv(List.of(unordered)));
+        assertTrue(e.getMessage().contains("not in the order"));
+    }
+
+    @Test
+    void testMerge_rejectsDuplicateSnippets() throws IOException {
+        File first = Files.writeString(tempDir.resolve("a.csv"), "File,NumberLines,Truth\n1.jsnp,1.00,Y\n").toFile();
+        File second = Files.writeString(tempDir.resolve("b.csv"), "File,NumberLines,Truth\n1.jsnp,1.00,Y\n").toFile();
+
+        IOException e = assertThrows(IOException.class, () -> mergeToCsv(List.of(first, second)));
+        assertTrue(e.getMessage().contains("more than one input"));
+    }
+
+    @Test
+    void testRowReader_streamsLargeFeatureFile() throws IOException {
+        File features = tempDir.resolve("large.features").toFile();
+        int rowCount = FeatureFile.ROW_GROUP_SIZE + 10;
+        try (FeatureFile.Writer writer = new FeatureFile.Writer(new FileOutputStream(features), IDENTIFIERS)) {
+            for (int i = 0; i < rowCount; i++) {
+                writer.accept(new FeatureRow(i + ".jsnp", new double[]{i, i / 4.0}, i % 3 == 0 ? "Y" : "N"));
+            }
+        }
+
+        try (FeatureRowReader reader = FeatureRowReader.open(features)) {
+            assertEquals(IDENTIFIERS, reader.featureIdentifiers());
+            for (int i = 0; i < rowCount; i++) {
+                FeatureRow row = reader.next();
+                assertEquals(i + ".jsnp", row.file());
+                assertArrayEquals(new double[]{i, Preprocess.roundTwoDecimals(i / 4.0)}, row.values());
+                assertEquals(i % 3 == 0 ? "Y" : "N", row.truth());
+            }
+            assertNull(reader.next());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.NumberLinesFeature;
+import de.uni_passau.fim.se2.sa.readability.features.TokenEntropyFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class GitChangesTest {
+
+    private static final List<FeatureMetric> METRICS = List.of(new NumberLinesFeature(), new TokenEntropyFeature());
+    private static final List<String> IDENTIFIERS = List.of("NumberLines", "TokenEntropy");
+
+    @TempDir
+    Path repository;
+
+    private Path snippets;
+    private File truth;
+
+    private void git(String... arguments) throws IOException, InterruptedException {
+        List<String> command = new java.util.ArrayList<>(List.of("git", "-c", "user.name=test", "-c",
+                "user.email=test@example.com", "-c", "commit.gpgsign=false"));
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).directory(repository.toFile()).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor(), output);
+    }
+
+    private static String code(int i) {
+        return "int f() {\n" + "    return 1;\n".repeat(i % 5 + 1) + "}\n";
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try {
+            assumeTrue(new ProcessBuilder("git", "--version").start().waitFor() == 0);
+        } catch (IOException e) {
+            assumeTrue(false, "git is not installed");
+        }
+        git("init", "-q");
+        snippets = Files.createDirectories(repository.resolve("corpus/snippets"));
+        Files.createDirectories(snippets.resolve("nested"));
+        for (int i = 1; i <= 8; i++) {
+            Files.writeString((i % 2 == 0 ? snippets.resolve("nested") : snippets).resolve(i + ".jsnp"), code(i));
+        }
+        Files.writeString(repository.resolve("README"), "outside of the snippets");
+        truth = Files.writeString(repository.resolve("truth.csv"),
+                "id,Snippet1,Snippet2,Snippet3,Snippet9\nmean,4.0,3.0,4.0,4.0\n").toFile();
+        git("add", "-A");
+        git("commit", "-q", "-m", "first");
+
+        Files.writeString(snippets.resolve("3.jsnp"), "int g() { return 2; }\n");
+        Files.delete(snippets.resolve("nested/4.jsnp"));
+        Files.move(snippets.resolve("5.jsnp"), snippets.resolve("nested/5.jsnp"));
+        Files.writeString(snippets.resolve("9.jsnp"), code(9));
+        Files.writeString(repository.resolve("README"), "changed, but not a snippet");
+        git("add", "-A");
+        git("commit", "-q", "-m", "second");
+    }
+
+    @Test
+    void testBetween_listsChangesBelowDirectory() throws IOException {
+        GitChanges changes = GitChanges.between(snippets, "HEAD~1", "HEAD");
+
+        Set<String> listed = new HashSet<>();
+        for (GitChanges.Change change : changes.getChanges()) {
+            listed.add(change.status() + " " + change.relativePath().toString().replace('\\', '/'));
+        }
+        assertEquals(Set.of("MODIFIED 3.jsnp", "DELETED nested/4.jsnp", "DELETED 5.jsnp", "ADDED nested/5.jsnp",
+                "ADDED 9.jsnp"), listed);
+        assertEquals(List.of("3.jsnp", "5.jsnp", "9.jsnp"), changes.getChangedSnippets(SnippetDiscovery.SNIPPETS)
+                .stream().map(GitChanges.Change::fileName).toList());
+    }
+
+    @Test
+    void testContents_readsTheRevision() throws Exception {
+        Files.writeString(snippets.resolve("3.jsnp"), "uncommitted");
+        GitChanges changes = GitChanges.between(snippets, "HEAD~1", "HEAD");
+
+        try (GitChanges.Contents contents = changes.openContents()) {
+            for (GitChanges.Change change : changes.getChangedSnippets(SnippetDiscovery.SNIPPETS)) {
+                String expected = change.fileName().equals("3.jsnp") ? "int g() { return 2; }\n" : code(Preprocess.extractNumber(change.fileName()));
+                assertEquals(expected, new String(contents.read(change), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void testBetween_unknownRevision() {
+        assertThrows(IOException.class, () -> GitChanges.between(snippets, "does-not-exist", "HEAD"));
+    }
+
+    private String fullCsv() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        Preprocess.appendCSVHeader(csv, IDENTIFIERS);
+        Preprocess.collectFeatures(snippets, truth, row -> Preprocess.appendCSVRow(csv, row), METRICS, PreprocessOptions.DEFAULTS);
+        return csv.toString();
+    }
+
+    private int update(File target) throws IOException {
+        GitChanges changes = GitChanges.between(snippets, "HEAD~1", "HEAD");
+        Set<String> obsolete = new HashSet<>();
+        changes.getChangedSnippets(SnippetDiscovery.SNIPPETS).forEach(change -> obsolete.add(change.fileName()));
+        changes.getDeletedSnippets(SnippetDiscovery.SNIPPETS).forEach(change -> obsolete.add(change.fileName()));
+        FeatureFileUpdate update = new FeatureFileUpdate(target, IDENTIFIERS);
+        Preprocess.collectFeatures(changes, truth, update, METRICS, PreprocessOptions.DEFAULTS.withThreads(2));
+        return update.apply(obsolete);
+    }
+
+    @Test
+    void testUpdateCsv_equalsFullRunAtRevision() throws Exception {
+        git("checkout", "-q", "HEAD~1");
+        File target = Files.writeString(repository.resolve("features.csv"), fullCsv()).toFile();
+        git("checkout", "-q", "-");
+
+        assertEquals(8, update(target));
+        assertEquals(fullCsv(), Files.readString(target.toPath()));
+        assertFalse(Files.exists(repository.resolve("features.csv.tmp")));
+    }
+
+    @Test
+    void testUpdateFeatureFile_equalsFullRunAtRevision() throws Exception {
+        git("checkout", "-q", "HEAD~1");
+        File target = repository.resolve("features.features").toFile();
+        try (FeatureFile.Writer writer = new FeatureFile.Writer(new FileOutputStream(target), IDENTIFIERS)) {
+            Preprocess.collectFeatures(snippets, truth, writer, METRICS, PreprocessOptions.DEFAULTS);
+        }
+        git("checkout", "-q", "-");
+
+        update(target);
+        StringBuilder csv = new StringBuilder();
+        FeatureFile.featureFileToCsv(target, csv);
+        assertEquals(fullCsv(), csv.toString());
+    }
+}
@@ -0,0 +1,51 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+import weka.core.Instances;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstancesBuilderTest {
+
+    @Test
+    void testBuild_keepsFullPrecisionWithoutFileAttribute() {
+        InstancesBuilder builder = new InstancesBuilder("snippets", List.of("NumberLines", "TokenEntropy"));
+        builder.accept(new FeatureRow("1.jsnp", new double[]{3.0, 2.123456}, "N"));
+        builder.accept(new FeatureRow("2.jsnp", new double[]{7.0, 0.987654}, "Y"));
+
+        Instances dataset = builder.build();
+
+        assertEquals("snippets", dataset.relationName());
+        assertEquals(2, dataset.numInstances());
+        assertEquals(3, dataset.numAttributes());
+        assertNull(dataset.attribute("File"));
+        assertTrue(dataset.attribute("NumberLines").isNumeric());
+        assertEquals(2.123456, dataset.instance(0).value(1));
+        assertEquals(0.987654, dataset.instance(1).value(1));
+    }
+
+    @Test
+    void testBuild_truthIsNominalClassInOrderOfAppearance() {
+        InstancesBuilder builder = new InstancesBuilder("snippets", List.of("NumberLines"));
+        builder.accept(new FeatureRow("1.jsnp", new double[]{3.0}, "N"));
+        builder.accept(new FeatureRow("2.jsnp", new double[]{7.0}, "Y"));
+        builder.accept(new FeatureRow("3.jsnp", new double[]{5.0}, "N"));
+
+        Instances dataset = builder.build();
+
+        assertEquals(1, dataset.classIndex());
+        assertTrue(dataset.classAttribute().isNominal());
+        assertEquals("N", dataset.classAttribute().value(0));
+        assertEquals("Y", dataset.classAttribute().value(1));
+        assertEquals("Y", dataset.instance(1).stringValue(dataset.classIndex()));
+    }
+
+    @Test
+    void testAccept_rejectsWrongNumberOfValues() {
+        InstancesBuilder builder = new InstancesBuilder("snippets", List.of("NumberLines"));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.accept(new FeatureRow("1.jsnp", new double[]{1.0, 2.0}, "N")));
+    }
+}
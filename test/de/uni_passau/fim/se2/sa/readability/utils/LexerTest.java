@@ -0,0 +1,57 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseException;
+import de.uni_passau.fim.se2.sa.readability.features.TokenEntropyFeature;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LexerTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "void m() {}",
+            "/** doc */\n  @Override\n  public String toString() { return \"x\"; } // trailing\n\n",
+            "Map<String, List<List<Integer>>> m = new HashMap<>();",
+            "int shift(int y) { int x = y >> 2; x = y >>> 3; x >>= 1; x >>>= 2; return x > 1 && y >= 2 ? x : y; }",
+            "\r\nvoid crlf() {\r\n\t/* block */\r\n\tchar c = '\\n';\r\n}\r\n"
+    })
+    void testTokensMatchParsedTokenRange(String code) throws ParseException {
+        List<String> parsed = new ArrayList<>();
+        for (JavaToken token : Parser.parseJavaSnippet(code).getTokenRange().orElseThrow()) {
+            parsed.add(token.getText());
+        }
+        List<String> lexed = new ArrayList<>();
+        Lexer.forEachToken(code, lexed::add);
+
+        assertEquals(parsed, lexed);
+    }
+
+    @Test
+    void testTokenStreamModeDoesNotParse() throws ParseException {
+        String invalid = "void m() { int x = ; ";
+        List<String> lexed = new ArrayList<>();
+        new SnippetContext(invalid, true).forEachToken(lexed::add);
+        assertEquals("void", lexed.get(0));
+
+        assertThrows(ParseException.class, () -> new SnippetContext(invalid).forEachToken(token -> { }));
+    }
+
+    @Test
+    void testTokenEntropyIsIdenticalInTokenStreamMode() {
+        String code = "/** doc */ public <T extends Comparable<T>> T max(List<List<T>> values) { return values.get(0).get(0); }";
+        TokenEntropyFeature feature = new TokenEntropyFeature();
+        assertEquals(feature.computeMetric(code), feature.computeMetric(new SnippetContext(code, true)));
+    }
+
+    @Test
+    void testInvalidCharactersAreRejected() {
+        assertThrows(ParseException.class, () -> Lexer.forEachToken("int a = #;", token -> { }));
+    }
+}
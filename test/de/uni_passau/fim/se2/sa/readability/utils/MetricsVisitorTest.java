@@ -0,0 +1,82 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsVisitorTest {
+
+    private static final String CODE = """
+            public class Test {
+                public int method(int a, Object o) {
+                    int b = a + 3;
+                    if (a > 0 && o instanceof String) {
+                        b++;
+                    }
+                    return b > 2 ? b : -b;
+                }
+            }
+            """;
+
+    @Test
+    void testSingleTraversalMatchesSeparateVisitors() throws ParseException {
+        BodyDeclaration<?> bodyDecl = Parser.parseJavaSnippet(CODE);
+
+        MetricsVisitor fused = new MetricsVisitor();
+        bodyDecl.accept(fused, null);
+        OperatorVisitor operatorVisitor = new OperatorVisitor();
+        bodyDecl.accept(operatorVisitor, null);
+        OperandVisitor operandVisitor = new OperandVisitor();
+        bodyDecl.accept(operandVisitor, null);
+        CyclomaticComplexityVisitor complexityVisitor = new CyclomaticComplexityVisitor();
+        bodyDecl.accept(complexityVisitor, null);
+
+        assertEquals(operatorVisitor.getOperatorsPerMethod(), fused.getOperatorsPerMethod());
+        assertEquals(operandVisitor.getOperandsPerMethod(), fused.getOperandsPerMethod());
+        assertEquals(complexityVisitor.getComplexity(), fused.getComplexity());
+    }
+
+    @Test
+    void testCollectsAllResults() throws ParseException {
+        MetricsVisitor visitor = new MetricsVisitor();
+        Parser.parseJavaSnippet(CODE).accept(visitor, null);
+
+        assertEquals(4, visitor.getComplexity());
+        assertEquals(4, visitor.getOperatorsPerMethod().get(OperatorVisitor.OperatorType.BINARY));
+        assertEquals(1, visitor.getOperatorsPerMethod().get(OperatorVisitor.OperatorType.TYPE_COMPARISON));
+        assertEquals(5, visitor.getOperandsPerMethod().get("b"));
+    }
+
+    @Test
+    void testContextTraversesOnce() throws ParseException {
+        SnippetContext context = new SnippetContext(CODE);
+        assertSame(context.getMetricsVisitor(), context.getMetricsVisitor());
+    }
+
+    @Test
+    void testResetAllowsReuse() throws ParseException {
+        MetricsVisitor reused = new MetricsVisitor();
+        Parser.parseJavaSnippet("void other(int a) { while (a > 0) { a--; } }").accept(reused, null);
+        reused.reset();
+        Parser.parseJavaSnippet(CODE).accept(reused, null);
+
+        MetricsVisitor fresh = new MetricsVisitor();
+        Parser.parseJavaSnippet(CODE).accept(fresh, null);
+
+        assertEquals(fresh.getOperatorsPerMethod(), reused.getOperatorsPerMethod());
+        assertEquals(fresh.getOperandsPerMethod(), reused.getOperandsPerMethod());
+        assertEquals(fresh.getComplexity(), reused.getComplexity());
+        assertEquals(9, fresh.getTotalOperators());
+        assertEquals(5, fresh.getDistinctOperators());
+        assertEquals(fresh.getOperandsPerMethod().size(), fresh.getDistinctOperands());
+    }
+
+    @Test
+    void testContextResetsReusableVisitor() throws ParseException {
+        MetricsVisitor visitor = new MetricsVisitor();
+        new SnippetContext("void a() { if (true) {} }", false, visitor).getMetricsVisitor();
+        assertEquals(1, new SnippetContext("void b() {}", false, visitor).getMetricsVisitor().getComplexity());
+    }
+}
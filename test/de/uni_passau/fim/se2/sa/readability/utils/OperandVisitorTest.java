@@ -137,4 +137,13 @@ private void assertContainsOperand(OperandVisitor visitor, String expected) {
                         .anyMatch(op -> op.equals(expected)),
                 "Expected operand '" + expected + "' was not found.");
     }
+
+    @Test
+    public void testResetClearsTheCounts() throws ParseException {
+        OperandVisitor visitor = new OperandVisitor();
+        Parser.parseJavaSnippet("public class A { int x = 1; }").accept(visitor, null);
+        visitor.reset();
+        Parser.parseJavaSnippet("public class B { int y = y; }").accept(visitor, null);
+        assertEquals(Map.of("B", 1, "y", 2), visitor.getOperandsPerMethod());
+    }
 }
@@ -105,4 +105,13 @@ public void testMixedOperatorsCount() throws ParseException {
         );
     }
 
+    @Test
+    public void testResetClearsTheCounts() throws ParseException {
+        OperatorVisitor visitor = new OperatorVisitor();
+        Parser.parseJavaSnippet("public class Test { void m() { int a = 1; a = a + 2; } }").accept(visitor, null);
+        visitor.reset();
+        Parser.parseJavaSnippet("public class Test { void m() { boolean b = !true; } }").accept(visitor, null);
+        Map<OperatorVisitor.OperatorType, Integer> ops = visitor.getOperatorsPerMethod();
+        assertEquals(Map.of(OperatorVisitor.OperatorType.ASSIGNMENT, 1, OperatorVisitor.OperatorType.UNARY, 1), ops);
+    }
 }
@@ -0,0 +1,71 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderedParallelIteratorTest {
+
+    @Test
+    void testResultsKeepSourceOrder() {
+        List<Integer> source = IntStream.range(0, 200).boxed().toList();
+        List<Integer> results = new ArrayList<>();
+        try (OrderedParallelIterator<Integer, Integer> it = new OrderedParallelIterator<>(source.iterator(), i -> {
+            sleepQuietly((200 - i) % 3);
+            return i * 2;
+        }, 8)) {
+            it.forEachRemaining(results::add);
+        }
+        assertEquals(source.stream().map(i -> i * 2).toList(), results);
+    }
+
+    @Test
+    void testSingleThreadRunsOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        try (OrderedParallelIterator<Integer, Thread> it = new OrderedParallelIterator<>(List.of(1, 2).iterator(), i -> Thread.currentThread(), 1)) {
+            assertSame(caller, it.next());
+            assertSame(caller, it.next());
+            assertFalse(it.hasNext());
+            assertThrows(NoSuchElementException.class, it::next);
+        }
+    }
+
+    @Test
+    void testSourceIsConsumedOnlyUpToWindow() {
+        AtomicInteger pulled = new AtomicInteger();
+        var source = IntStream.range(0, 100).peek(i -> pulled.incrementAndGet()).iterator();
+        try (OrderedParallelIterator<Integer, Integer> it = new OrderedParallelIterator<>(source, i -> i, 2, 5)) {
+            assertEquals(0, it.next());
+            assertTrue(pulled.get() <= 5);
+        }
+    }
+
+    @Test
+    void testWorkerExceptionIsRethrown() {
+        try (OrderedParallelIterator<Integer, Integer> it = new OrderedParallelIterator<>(List.of(1).iterator(), i -> {
+            throw new IllegalStateException("boom");
+        }, 2)) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, it::next);
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test
+    void testInvalidThreadCountIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderedParallelIterator<Integer, Integer>(List.of(1).iterator(), i -> i, 0));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
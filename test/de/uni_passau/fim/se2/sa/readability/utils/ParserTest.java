@@ -0,0 +1,52 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParserTest {
+
+    @Test
+    void testParseJavaSnippetKeepsTokens() throws ParseException {
+        BodyDeclaration<?> bodyDecl = Parser.parseJavaSnippet("void m() { int x = 1; }");
+        assertTrue(bodyDecl.isMethodDeclaration());
+        assertEquals("void m() { int x = 1; }", bodyDecl.getTokenRange().orElseThrow().toString());
+    }
+
+    @Test
+    void testReusedParserLeavesEarlierResultsIntact() throws ParseException {
+        BodyDeclaration<?> first = Parser.parseJavaSnippet("void a() { return; }");
+        String firstTokens = first.getTokenRange().orElseThrow().toString();
+        Parser.parseJavaSnippet("int b = 2;");
+        assertThrows(ParseException.class, () -> Parser.parseJavaSnippet("void c( {"));
+
+        assertEquals(firstTokens, first.getTokenRange().orElseThrow().toString());
+        assertEquals("a", first.asMethodDeclaration().getNameAsString());
+    }
+
+    @Test
+    void testCommentsAreNotAttributed() throws ParseException {
+        BodyDeclaration<?> bodyDecl = Parser.parseJavaSnippet("// comment\nvoid m() {}");
+        assertTrue(bodyDecl.getComment().isEmpty());
+    }
+
+    @Test
+    void testParsersOfDifferentThreadsAreIndependent() throws Exception {
+        BodyDeclaration<?>[] result = new BodyDeclaration<?>[1];
+        Thread thread = new Thread(() -> {
+            try {
+                result[0] = Parser.parseJavaSnippet("void other() {}");
+            } catch (ParseException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        BodyDeclaration<?> own = Parser.parseJavaSnippet("void own() {}");
+        thread.join();
+
+        assertEquals("other", result[0].asMethodDeclaration().getNameAsString());
+        assertEquals("own", own.asMethodDeclaration().getNameAsString());
+    }
+}
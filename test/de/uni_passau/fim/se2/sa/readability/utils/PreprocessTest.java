@@ -1,7 +1,7 @@
 package de.uni_passau.fim.se2.sa.readability.utils;
 
 
-import de.uni_passau.fim.se2.sa.readability.features.FeatureMetric;
+import de.uni_passau.fim.se2.sa.readability.features.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -9,6 +9,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -122,19 +123,13 @@ public String getIdentifier() {
         collectCSVBody(tempDir, truthFile, csv, metrics);
 
         String[] rows = csv.toString().trim().split("\n");
-        assertEquals(3, rows.length);
+        assertEquals(2, rows.length);
 
         String[] cols1 = rows[0].split(",");
-        assertEquals("truth.csv", cols1[0]);
+        assertEquals("1.jsnp", cols1[0]);
         assertEquals("10.00", cols1[1]);
         assertEquals("1.23", cols1[2]);
-        assertEquals("N", cols1[3]);
-
-        String[] cols2 = rows[1].split(",");
-        assertEquals("1.jsnp", cols2[0]);
-        assertEquals("10.00", cols2[1]);
-        assertEquals("1.23", cols2[2]);
-        assertEquals("Y", cols2[3]);
+        assertEquals("Y", cols1[3]);
     }
 
     @Test
@@ -202,4 +197,154 @@ public String getIdentifier() {
         assertTrue(out.contains("4.jsnp,1.00,Y"));
     }
 
+    @Test
+    void testCollectCSVBody_parallelMatchesSequential(@TempDir Path dir) throws IOException {
+        for (int i = 1; i <= 40; i++) {
+            Files.writeString(dir.resolve(i + ".jsnp"), "void m" + i + "(int x) {\n if (x > " + i + ") { x++; }\n}", StandardCharsets.UTF_8);
+        }
+        List<FeatureMetric> metrics = List.of(new NumberLinesFeature(), new TokenEntropyFeature(),
+                new HalsteadVolumeFeature(), new CyclomaticComplexityFeature());
+
+        StringBuilder sequential = new StringBuilder();
+        collectCSVBody(dir, truthFile, sequential, metrics, PreprocessOptions.DEFAULTS);
+        StringBuilder parallel = new StringBuilder();
+        collectCSVBody(dir, truthFile, parallel, metrics, PreprocessOptions.DEFAULTS.withThreads(4));
+
+        assertEquals(40, sequential.toString().split("\n").length);
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @Test
+    void testAppendTwoDecimals_matchesFormatter() {
+        Random random = new Random(42);
+        List<Double> values = new ArrayList<>(List.of(0.0, -0.0, 0.005, 0.015, 0.125, -0.125, 1.005, 2.675, -0.001,
+                -1.235, 99.995, 9999999.995, 1e7, 123456789.125, 1e300, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE));
+        for (int i = 0; i < 100_000; i++) {
+            values.add((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(10)));
+            values.add(random.nextInt(100_000) / 1000.0);
+        }
+        for (double value : values) {
+            StringBuilder line = new StringBuilder();
+            appendTwoDecimals(line, value);
+            assertEquals(String.format(Locale.ROOT, "%.2f", value), line.toString(), "value " + value);
+            assertEquals(Double.parseDouble(line.toString()), roundTwoDecimals(value), "value " + value);
+        }
+    }
+
+    @Test
+    void testCollectCSVBody_streamsToWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+        int rows = collectCSVBody(tempDir, truthFile, writer, List.of(new NumberLinesFeature()));
+        assertEquals(2, rows);
+        assertTrue(writer.toString().contains("1.jsnp,1.00,Y\n"));
+    }
+
+    @Test
+    void testCollectCSVBody_packMatchesDirectory(@TempDir Path dir) throws IOException {
+        Path snippets = Files.createDirectories(dir.resolve("snippets"));
+        for (int i = 1; i <= 30; i++) {
+            Files.writeString(snippets.resolve(i + ".jsnp"), "void m" + i + "(int x) {\n while (x < " + i + ") { x++; }\n}", StandardCharsets.UTF_8);
+        }
+        Files.writeString(snippets.resolve("31.jsnp"), "void broken( {", StandardCharsets.UTF_8);
+        List<FeatureMetric> metrics = List.of(new NumberLinesFeature(), new TokenEntropyFeature(),
+                new HalsteadVolumeFeature(), new CyclomaticComplexityFeature());
+        Path packFile = dir.resolve("corpus.pack");
+        SnippetPack.write(snippets, packFile);
+
+        StringBuilder fromDirectory = new StringBuilder();
+        collectCSVBody(snippets, truthFile, fromDirectory, metrics, PreprocessOptions.DEFAULTS.withThreads(3));
+        StringBuilder fromPack = new StringBuilder();
+        int rows;
+        try (SnippetPack pack = SnippetPack.open(packFile)) {
+            rows = collectCSVBody(pack, truthFile, fromPack, metrics, PreprocessOptions.DEFAULTS.withThreads(3));
+        }
+
+        assertEquals(30, rows);
+        assertEquals(fromDirectory.toString(), fromPack.toString());
+    }
+
+    @Test
+    void testCollectFeatures_sinkReceivesExactValues() throws IOException {
+        Files.writeString(tempDir.resolve("3.jsnp"), "int f() {\n  return 1;\n}", StandardCharsets.UTF_8);
+        List<FeatureRow> rows = new ArrayList<>();
+
+        int count = collectFeatures(tempDir, truthFile, rows::add, List.of(new NumberLinesFeature(), new TokenEntropyFeature()),
+                PreprocessOptions.DEFAULTS.withThreads(2));
+
+        assertEquals(rows.size(), count);
+        FeatureRow row = rows.stream().filter(r -> r.file().equals("3.jsnp")).findFirst().orElseThrow();
+        assertEquals(3.0, row.values()[0]);
+        assertEquals(new TokenEntropyFeature().computeMetric("int f() {\n  return 1;\n}"), row.values()[1]);
+        assertEquals("N", row.truth());
+    }
+
+    @Test
+    void testCollectFeatures_skipsSnippetsExceedingBudget() throws IOException {
+        Files.writeString(tempDir.resolve("3.jsnp"), "int f() {\n  return 1;\n}".repeat(10), StandardCharsets.UTF_8);
+        List<String> rows = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        FeatureSink sink = new FeatureSink() {
+            @Override
+            public void accept(FeatureRow row) {
+                rows.add(row.file());
+            }
+
+            @Override
+            public void skip(String file, String reason) {
+                skipped.add(file + ": " + reason);
+            }
+        };
+
+        SnippetBudget budget = new SnippetBudget(100, java.time.Duration.ZERO, java.time.Duration.ZERO);
+        int count = collectFeatures(tempDir, truthFile, sink, List.of(new NumberLinesFeature()),
+                PreprocessOptions.DEFAULTS.withThreads(2).withBudget(budget));
+
+        assertEquals(rows.size(), count);
+        assertFalse(rows.contains("3.jsnp"));
+        assertEquals(List.of("3.jsnp: size of 230 bytes exceeds the limit of 100 bytes"), skipped);
+    }
+
+    @Test
+    void testCollectMethodFeatures_rowPerMethodAndConstructor(@TempDir Path dir) throws IOException {
+        String method = "    int f(int x) {\n        if (x > 0) {\n            return x;\n        }\n        return -x;\n    }\n";
+        Files.createDirectories(dir.resolve("pkg"));
+        Files.writeString(dir.resolve("pkg/A.java"), "package pkg;\n\nclass A {\n    A() {\n    }\n\n" + method
+                + "\n    interface I {\n        void g();\n    }\n}\n", StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("B.java"), "class B {", StandardCharsets.UTF_8);
+        List<FeatureMetric> metrics = List.of(new NumberLinesFeature(), new TokenEntropyFeature(),
+                new HalsteadVolumeFeature(), new CyclomaticComplexityFeature());
+        List<FeatureRow> rows = new ArrayList<>();
+
+        int count = collectMethodFeatures(dir, rows::add, metrics, PreprocessOptions.DEFAULTS.withThreads(2));
+
+        assertEquals(2, count);
+        assertEquals(List.of("pkg/A.java:4-5", "pkg/A.java:7-12"), rows.stream().map(FeatureRow::file).toList());
+        assertArrayEquals(computeAll(metrics, method.strip()), rows.get(1).values());
+        assertEquals("N", rows.get(1).truth());
+    }
+
+    @Test
+    void testCollectMethodFeatures_usesTheColumnsOfTheDeclaration(@TempDir Path dir) throws IOException {
+        // carriage returns only, and the method starts after other code on its first line
+        String method = "int f(int x) {\r    return x > 0 ? x : -x;\r}";
+        Files.writeString(dir.resolve("C.java"), "class C {\r  int a; " + method + " int b;\r}\r",
+                StandardCharsets.UTF_8);
+        List<FeatureMetric> metrics = List.of(new NumberLinesFeature(), new TokenEntropyFeature(),
+                new HalsteadVolumeFeature(), new CyclomaticComplexityFeature());
+        List<FeatureRow> rows = new ArrayList<>();
+
+        collectMethodFeatures(dir, rows::add, metrics, PreprocessOptions.DEFAULTS);
+
+        assertEquals(List.of("C.java:2-4"), rows.stream().map(FeatureRow::file).toList());
+        assertArrayEquals(computeAll(metrics, method), rows.get(0).values());
+    }
+
+    private static double[] computeAll(List<FeatureMetric> metrics, String snippet) {
+        double[] values = new double[metrics.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = metrics.get(i).computeMetric(snippet);
+        }
+        return values;
+    }
 }
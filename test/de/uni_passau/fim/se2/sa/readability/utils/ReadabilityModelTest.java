@@ -0,0 +1,95 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadabilityModelTest {
+
+    private static final String SHORT = "void a() { return; }";
+    private static final String LONG = """
+            void b(int x) {
+                if (x > 0) {
+                    while (x > 10) {
+                        x = x - 1;
+                    }
+                }
+            }""";
+
+    @TempDir
+    Path tempDir;
+
+    private Instances writeDataset(String header, List<String> rows) throws IOException {
+        File csv = tempDir.resolve("data.csv").toFile();
+        try (FileWriter writer = new FileWriter(csv)) {
+            writer.write(header + "\n");
+            for (String row : rows) {
+                writer.write(row + "\n");
+            }
+        }
+        return Classify.loadDataset(csv);
+    }
+
+    private Instances linesDataset() throws IOException {
+        return writeDataset("File,NumberLines,Truth", List.of(
+                "1.jsnp,1.00,Y", "2.jsnp,2.00,Y", "3.jsnp,3.00,Y", "4.jsnp,5.00,N",
+                "5.jsnp,4.00,Y", "6.jsnp,6.00,N", "7.jsnp,8.00,N", "8.jsnp,9.00,N"));
+    }
+
+    @Test
+    void testTrainDropsFileColumn() throws Exception {
+        ReadabilityModel model = ReadabilityModel.train(linesDataset());
+        assertEquals(List.of("NumberLines"), model.getMetricIdentifiers());
+        assertEquals("NumberLines", model.getFeatureMetrics().get(0).getIdentifier());
+    }
+
+    @Test
+    void testPredictSeparatesShortAndLongSnippets() throws Exception {
+        ReadabilityModel model = ReadabilityModel.train(linesDataset());
+
+        ReadabilityModel.Prediction shortPrediction = model.predict(SHORT);
+        ReadabilityModel.Prediction longPrediction = model.predict(LONG);
+
+        assertEquals("Y", shortPrediction.label());
+        assertEquals("N", longPrediction.label());
+        assertTrue(shortPrediction.probability() >= 0.5 && shortPrediction.probability() <= 1.0);
+    }
+
+    @Test
+    void testSaveAndLoadKeepPredictions() throws Exception {
+        Instances dataset = writeDataset("File,NumberLines,CyclomaticComplexity,Truth", List.of(
+                "1.jsnp,1.00,1.00,Y", "2.jsnp,2.00,1.00,Y", "3.jsnp,3.00,2.00,Y", "4.jsnp,5.00,3.00,N",
+                "5.jsnp,4.00,1.00,Y", "6.jsnp,6.00,4.00,N", "7.jsnp,8.00,2.00,N", "8.jsnp,9.00,5.00,N"));
+        ReadabilityModel model = ReadabilityModel.train(dataset);
+        File modelFile = tempDir.resolve("readability.model").toFile();
+        model.save(modelFile);
+
+        ReadabilityModel loaded = ReadabilityModel.load(modelFile);
+
+        assertEquals(model.getMetricIdentifiers(), loaded.getMetricIdentifiers());
+        assertEquals(model.predict(LONG), loaded.predict(LONG));
+        assertEquals(model.predict(SHORT), loaded.predict(SHORT));
+    }
+
+    @Test
+    void testUnknownFeatureColumnIsRejected() throws IOException {
+        Instances dataset = writeDataset("Unknown,Truth", List.of("1.0,Y", "2.0,N", "3.0,Y", "4.0,N"));
+        assertThrows(IllegalArgumentException.class, () -> ReadabilityModel.train(dataset));
+    }
+
+    @Test
+    void testPredictRejectsInvalidSnippet() throws Exception {
+        Instances dataset = writeDataset("File,CyclomaticComplexity,Truth", List.of(
+                "1.jsnp,1.00,Y", "2.jsnp,5.00,N", "3.jsnp,1.00,Y", "4.jsnp,6.00,N"));
+        ReadabilityModel model = ReadabilityModel.train(dataset);
+        assertThrows(Exception.class, () -> model.predict("void broken( {"));
+    }
+}
@@ -0,0 +1,94 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.HalsteadVolumeFeature;
+import de.uni_passau.fim.se2.sa.readability.features.NumberLinesFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunStatisticsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHistogramBucketsCoverAllValues() {
+        long previousUpperBound = -1;
+        for (int bucket = 0; bucket < RunStatistics.LatencyHistogram.BUCKETS; bucket++) {
+            long upperBound = RunStatistics.LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, RunStatistics.LatencyHistogram.bucket(upperBound));
+            assertEquals(bucket, RunStatistics.LatencyHistogram.bucket(previousUpperBound + 1));
+            previousUpperBound = upperBound;
+        }
+        assertEquals(Long.MAX_VALUE, previousUpperBound);
+        assertEquals(RunStatistics.LatencyHistogram.BUCKETS - 1, RunStatistics.LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        RunStatistics.LatencyHistogram histogram = new RunStatistics.LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000L, histogram.getTotal());
+        assertEquals(1_000_000L, histogram.getMax());
+        long p50 = histogram.getPercentile(0.5);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 " + p50);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 " + p99);
+    }
+
+    @Test
+    void testSlowestSnippets() {
+        RunStatistics statistics = new RunStatistics();
+        for (int i = 0; i < 100; i++) {
+            statistics.recordSnippet(i + ".jsnp", i, true);
+        }
+
+        List<RunStatistics.SlowSnippet> slowest = statistics.getSlowestSnippets();
+        assertEquals(RunStatistics.SLOWEST_SNIPPETS, slowest.size());
+        assertEquals("99.jsnp", slowest.get(0).file());
+        assertEquals(90, slowest.get(slowest.size() - 1).nanos());
+    }
+
+    @Test
+    void testPreprocessRecordsStages() throws IOException {
+        Path snippets = Files.createDirectory(tempDir.resolve("snippets"));
+        Files.writeString(snippets.resolve("1.jsnp"), "int f() {\n  return 1;\n}", StandardCharsets.UTF_8);
+        Files.writeString(snippets.resolve("2.jsnp"), "int g( {", StandardCharsets.UTF_8);
+        File truth = Files.writeString(tempDir.resolve("truth.csv"), "Rater,Snippet1,Snippet2\nMean,4.0,2.0\n").toFile();
+
+        RunStatistics statistics = RunStatistics.start();
+        try {
+            Preprocess.collectCSVBody(snippets, truth, new StringBuilder(),
+                    List.of(new NumberLinesFeature(), new HalsteadVolumeFeature()),
+                    PreprocessOptions.DEFAULTS.withThreads(2));
+        } finally {
+            statistics.stop();
+        }
+
+        assertNull(RunStatistics.active());
+        assertEquals(2, statistics.getSnippets());
+        assertEquals(Files.size(snippets.resolve("1.jsnp")) + Files.size(snippets.resolve("2.jsnp")),
+                statistics.getBytesRead());
+        assertEquals(2, statistics.getStage(RunStatistics.READ).getCount());
+        assertEquals(2, statistics.getStage(RunStatistics.PARSE).getCount());
+        assertEquals(1, statistics.getStage(RunStatistics.WRITE).getCount());
+        assertEquals(1, statistics.getStage(RunStatistics.METRIC_PREFIX + "HalsteadVolume").getCount());
+
+        StringBuilder json = new StringBuilder();
+        statistics.writeReport(json);
+        assertTrue(json.toString().contains("\"failedSnippets\": 1"));
+        assertTrue(json.toString().contains("\"metric:NumberLines\": {\"count\": 2,"));
+    }
+}
@@ -0,0 +1,179 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import de.uni_passau.fim.se2.sa.readability.features.FeatureMetrics;
+import de.uni_passau.fim.se2.sa.readability.features.HalsteadVolumeFeature;
+import de.uni_passau.fim.se2.sa.readability.features.NumberLinesFeature;
+import de.uni_passau.fim.se2.sa.readability.features.TokenEntropyFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoringServerTest {
+
+    private static final String SNIPPET = "int max(int a, int b) {\n    return a > b ? a : b;\n}";
+
+    @TempDir
+    Path tempDir;
+
+    private static String batch(String command, String... snippets) {
+        StringBuilder request = new StringBuilder(command).append(' ').append(snippets.length).append('\n');
+        for (String snippet : snippets) {
+            request.append(snippet.getBytes(StandardCharsets.UTF_8).length).append('\n').append(snippet);
+        }
+        return request.toString();
+    }
+
+    private static List<String> exchange(ScoringServer server, String requests) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        server.handle(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private ReadabilityModel trainLinesModel() throws Exception {
+        File csv = tempDir.resolve("data.csv").toFile();
+        try (FileWriter writer = new FileWriter(csv)) {
+            writer.write("File,NumberLines,Truth\n1.jsnp,1.00,Y\n2.jsnp,2.00,Y\n3.jsnp,8.00,N\n4.jsnp,3.00,Y\n"
+                    + "5.jsnp,9.00,N\n6.jsnp,7.00,N\n");
+        }
+        return ReadabilityModel.train(Classify.loadDataset(csv));
+    }
+
+    @Test
+    void testFeaturesMatchMetricsInBatchOrder() throws IOException {
+        try (ScoringServer server = new ScoringServer(null, FeatureMetrics.all(), 2)) {
+            String other = "void f() { if (x) { y(); } }";
+            List<String> responses = exchange(server, batch("FEATURES", SNIPPET, other, "ä"));
+
+            assertEquals(3, responses.size());
+            assertEquals("OK 3.00," + twoDecimals(new HalsteadVolumeFeature().computeMetric(SNIPPET))
+                    + "," + twoDecimals(new TokenEntropyFeature().computeMetric(SNIPPET))
+                    + ",2.00", responses.get(0));
+            assertTrue(responses.get(1).startsWith("OK 1.00,"));
+            assertTrue(responses.get(2).startsWith("ERROR "));
+            assertEquals(3, server.getSnippets());
+            assertEquals(1, server.getErrors());
+        }
+    }
+
+    @Test
+    void testHealthStatsAndMissingModel() throws IOException {
+        try (ScoringServer server = new ScoringServer(null, List.of(new NumberLinesFeature()), 1)) {
+            List<String> responses = exchange(server, "HEALTH\n" + batch("PREDICT", SNIPPET) + "STATS\n");
+
+            assertEquals("OK features=NumberLines model=false", responses.get(0));
+            assertEquals("ERROR no model loaded", responses.get(1));
+            assertTrue(responses.get(2).startsWith("OK requests=3 snippets=0 errors=1 uptimeMillis="));
+        }
+    }
+
+    @Test
+    void testMalformedRequestIsRejected() {
+        try (ScoringServer server = new ScoringServer(null, List.of(new NumberLinesFeature()), 1)) {
+            assertThrows(IOException.class, () -> exchange(server, "FEATURES x\n"));
+            assertThrows(IOException.class, () -> exchange(server, "FEATURES 2\n1\na"));
+            assertThrows(IOException.class, () -> exchange(server, "UNKNOWN\n"));
+        }
+    }
+
+    @Test
+    void testOversizedAndTruncatedBatchesAreRejected() {
+        try (ScoringServer server = new ScoringServer(null, List.of(new NumberLinesFeature()), 1)) {
+            assertThrows(EOFException.class, () -> exchange(server, "FEATURES 1\n10\nabc"));
+            String longLine = "FEATURES" + " ".repeat(ScoringServer.MAX_LINE_BYTES);
+            assertThrows(IOException.class, () -> exchange(server, longLine));
+
+            // announces snippets of the maximum size until the batch exceeds the maximum number of bytes
+            int maxSnippet = ScoringServer.MAX_SNIPPET_BYTES;
+            byte[] lengthLine = (maxSnippet + "\n").getBytes(StandardCharsets.US_ASCII);
+            byte[] header = ("FEATURES 5\n" + maxSnippet + "\n").getBytes(StandardCharsets.US_ASCII);
+            InputStream oversized = new InputStream() {
+                private long position;
+
+                @Override
+                public int read() {
+                    long offset = position++;
+                    if (offset < header.length) {
+                        return header[(int) offset];
+                    }
+                    offset -= header.length;
+                    int inSnippet = (int) (offset % (maxSnippet + lengthLine.length));
+                    return inSnippet < maxSnippet ? 'x' : lengthLine[inSnippet - maxSnippet];
+                }
+            };
+            IOException e = assertThrows(IOException.class,
+                    () -> server.handle(oversized, OutputStream.nullOutputStream()));
+            assertTrue(e.getMessage().contains("must not take more than"), e.getMessage());
+            assertEquals(0, server.getSnippets());
+        }
+    }
+
+    @Test
+    void testPredictOverTcp() throws Exception {
+        ReadabilityModel model = trainLinesModel();
+        try (ScoringServer server = new ScoringServer(model, model.getFeatureMetrics(), 2);
+             ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.warmUp(1);
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve(serverChannel);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            serving.start();
+
+            try (SocketChannel client = SocketChannel.open(serverChannel.getLocalAddress())) {
+                Writer writer = new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8);
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+                String longSnippet = "void f() {\n" + "x();\n".repeat(10) + "}";
+                writer.write(batch("PREDICT", "void a() {}", longSnippet));
+                writer.flush();
+
+                ReadabilityModel.Prediction expected = model.predict("void a() {}");
+                assertEquals(String.format(Locale.ROOT, "OK %s,%.4f", expected.label(), expected.probability()),
+                        reader.readLine());
+                assertTrue(reader.readLine().startsWith("OK N,"));
+            }
+            serverChannel.close();
+            serving.join(5000);
+            assertFalse(serving.isAlive());
+        }
+    }
+
+    @Test
+    void testConcurrentPredictionsMatchSequentialOnes() throws Exception {
+        ReadabilityModel model = trainLinesModel();
+        String[] snippets = new String[100_000];
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < snippets.length; i++) {
+            snippets[i] = "void f() {\n" + "x();\n".repeat(i % 12) + "}";
+            ReadabilityModel.Prediction prediction = model.predict(snippets[i]);
+            expected.add(String.format(Locale.ROOT, "OK %s,%.4f", prediction.label(), prediction.probability()));
+        }
+
+        try (ScoringServer server = new ScoringServer(model, model.getFeatureMetrics(), 8)) {
+            assertEquals(expected, exchange(server, batch("PREDICT", snippets)));
+        }
+    }
+
+    private static String twoDecimals(double value) {
+        StringBuilder line = new StringBuilder();
+        Preprocess.appendTwoDecimals(line, value);
+        return line.toString();
+    }
+}
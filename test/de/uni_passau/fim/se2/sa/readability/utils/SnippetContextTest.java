@@ -0,0 +1,83 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import com.github.javaparser.ParseException;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import de.uni_passau.fim.se2.sa.readability.features.CyclomaticComplexityFeature;
+import de.uni_passau.fim.se2.sa.readability.features.HalsteadVolumeFeature;
+import de.uni_passau.fim.se2.sa.readability.features.TokenEntropyFeature;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnippetContextTest {
+
+    private static final String CODE = "void m(int x) { if (x > 0 && x < 10) { x++; } }";
+
+    @Test
+    void testBodyDeclarationIsParsedOnce() throws ParseException {
+        SnippetContext context = new SnippetContext(CODE);
+        BodyDeclaration<?> first = context.getBodyDeclaration();
+        assertSame(first, context.getBodyDeclaration());
+        assertEquals(CODE, context.getCodeSnippet());
+        assertTrue(context.getTokenRange().iterator().hasNext());
+    }
+
+    @Test
+    void testParseFailureIsRememberedAndRethrown() {
+        SnippetContext context = new SnippetContext("void m( {");
+        ParseException first = assertThrows(ParseException.class, context::getBodyDeclaration);
+        ParseException second = assertThrows(ParseException.class, context::getTokenRange);
+        assertSame(first, second);
+    }
+
+    @Test
+    void testMetricsOnSharedContextMatchStringBasedMetrics() {
+        SnippetContext context = new SnippetContext(CODE);
+        assertEquals(new TokenEntropyFeature().computeMetric(CODE), new TokenEntropyFeature().computeMetric(context));
+        assertEquals(new HalsteadVolumeFeature().computeMetric(CODE), new HalsteadVolumeFeature().computeMetric(context));
+        assertEquals(new CyclomaticComplexityFeature().computeMetric(CODE), new CyclomaticComplexityFeature().computeMetric(context));
+    }
+
+    @Test
+    void testParseTimeIsLimited() {
+        SnippetBudget budget = new SnippetBudget(0, Duration.ofNanos(1), Duration.ZERO);
+        SnippetContext context = new SnippetContext(CODE, false, null, budget);
+        SnippetBudgetExceededException exceeded =
+                assertThrows(SnippetBudgetExceededException.class, context::getBodyDeclaration);
+        assertTrue(exceeded.getMessage().startsWith("parse time"));
+    }
+
+    @Test
+    void testTokenizingTimeIsLimited() {
+        SnippetBudget budget = new SnippetBudget(0, Duration.ofNanos(1), Duration.ZERO);
+        SnippetContext context = new SnippetContext(CODE.repeat(20), true, null, budget);
+        assertThrows(SnippetBudgetExceededException.class, () -> context.forEachToken(token -> {
+        }));
+    }
+
+    @Test
+    void testVisitTimeIsLimited() throws ParseException {
+        SnippetBudget budget = new SnippetBudget(0, Duration.ZERO, Duration.ofNanos(1));
+        String code = "void m(int x) { " + "if (x > 0 && x < 10) { x++; }".repeat(20) + " }";
+        SnippetContext context = new SnippetContext(code, false, null, budget);
+        context.getBodyDeclaration();
+        SnippetBudgetExceededException exceeded =
+                assertThrows(SnippetBudgetExceededException.class, context::getMetricsVisitor);
+        assertTrue(exceeded.getMessage().startsWith("visit time"));
+    }
+
+    @Test
+    void testDeepNestingIsAbandoned() {
+        String nested = "int f() { return " + "(".repeat(20_000) + "1" + ")".repeat(20_000) + "; }";
+        SnippetContext context = new SnippetContext(nested);
+        assertThrows(SnippetBudgetExceededException.class, context::getBodyDeclaration);
+    }
+
+    @Test
+    void testUnlimitedBudgetMeasuresLikeDefault() {
+        SnippetContext context = new SnippetContext(CODE, false, null, SnippetBudget.UNLIMITED);
+        assertEquals(new HalsteadVolumeFeature().computeMetric(CODE), new HalsteadVolumeFeature().computeMetric(context));
+    }
+}
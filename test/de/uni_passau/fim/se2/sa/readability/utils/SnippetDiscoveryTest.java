@@ -0,0 +1,132 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnippetDiscoveryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeCorpus() throws IOException {
+        Files.createDirectories(tempDir.resolve("a/deep"));
+        Files.createDirectories(tempDir.resolve("b"));
+        for (int i = 1; i <= 30; i++) {
+            Path dir = switch (i % 3) {
+                case 0 -> tempDir.resolve("a/deep");
+                case 1 -> tempDir.resolve("b");
+                default -> tempDir;
+            };
+            Files.writeString(dir.resolve(i + ".jsnp"), "int x = " + i + ";");
+        }
+        Files.writeString(tempDir.resolve("truth.csv"), "id,Snippet1\n");
+        Files.writeString(tempDir.resolve("b/notes.txt"), "7");
+        return tempDir;
+    }
+
+    private static List<String> names(List<SnippetDiscovery.SnippetFile> files) {
+        return files.stream().map(SnippetDiscovery.SnippetFile::name).toList();
+    }
+
+    @Test
+    void testDiscover_filtersByExtensionAndSortsByNumber() throws IOException {
+        List<SnippetDiscovery.SnippetFile> files = SnippetDiscovery.SNIPPETS.discover(writeCorpus());
+
+        assertEquals(30, files.size());
+        for (int i = 0; i < files.size(); i++) {
+            assertEquals((i + 1) + ".jsnp", files.get(i).name());
+            assertEquals(i + 1, files.get(i).sortKey());
+        }
+    }
+
+    @Test
+    void testDiscover_parallelFindsTheSameOrder() throws IOException {
+        Path corpus = writeCorpus();
+        List<String> found = Collections.synchronizedList(new ArrayList<>());
+
+        List<SnippetDiscovery.SnippetFile> files = SnippetDiscovery.SNIPPETS.discover(corpus, 4,
+                file -> found.add(file.name()));
+
+        assertEquals(names(SnippetDiscovery.SNIPPETS.discover(corpus)), names(files));
+        assertEquals(new HashSet<>(names(files)), new HashSet<>(found));
+    }
+
+    @Test
+    void testDiscover_equalNumbersAreOrderedByName() throws IOException {
+        Files.writeString(tempDir.resolve("b1.jsnp"), "");
+        Files.writeString(tempDir.resolve("a1.jsnp"), "");
+        Files.writeString(tempDir.resolve("0.jsnp"), "");
+
+        assertEquals(List.of("0.jsnp", "a1.jsnp", "b1.jsnp"), names(SnippetDiscovery.SNIPPETS.discover(tempDir)));
+    }
+
+    @Test
+    void testDiscover_allFilesWithoutExtension() throws IOException {
+        List<SnippetDiscovery.SnippetFile> files = new SnippetDiscovery("", null, SnippetDiscovery.Shard.ALL)
+                .discover(writeCorpus());
+
+        assertEquals(32, files.size());
+        assertEquals(List.of("notes.txt", "truth.csv", "1.jsnp"), names(files).subList(0, 3));
+    }
+
+    @Test
+    void testDiscover_globOnFileNameOrRelativePath() throws IOException {
+        Path corpus = writeCorpus();
+
+        assertEquals(List.of("1.jsnp", "10.jsnp", "11.jsnp", "12.jsnp", "13.jsnp"),
+                names(new SnippetDiscovery("jsnp", "1*.jsnp", SnippetDiscovery.Shard.ALL).discover(corpus)).subList(0, 5));
+        assertEquals(List.of("3.jsnp", "6.jsnp", "9.jsnp"),
+                names(new SnippetDiscovery("jsnp", "a/**", SnippetDiscovery.Shard.ALL).discover(corpus)).subList(0, 3));
+        assertEquals(10, new SnippetDiscovery("jsnp", "a/**", SnippetDiscovery.Shard.ALL).discover(corpus).size());
+    }
+
+    @Test
+    void testDiscover_missingDirectory() {
+        assertThrows(NoSuchFileException.class, () -> SnippetDiscovery.SNIPPETS.discover(tempDir.resolve("missing")));
+        assertThrows(NoSuchFileException.class,
+                () -> SnippetDiscovery.SNIPPETS.discover(tempDir.resolve("missing"), 4, file -> {
+                }));
+    }
+
+    @Test
+    void testShards_partitionTheCorpus() throws IOException {
+        Path corpus = writeCorpus();
+        Set<String> all = new HashSet<>();
+        int total = 0;
+        for (int i = 1; i <= 3; i++) {
+            List<String> shard = names(new SnippetDiscovery("jsnp", null, new SnippetDiscovery.Shard(i, 3)).discover(corpus));
+            assertFalse(shard.isEmpty());
+            all.addAll(shard);
+            total += shard.size();
+        }
+        assertEquals(30, total);
+        assertEquals(new HashSet<>(names(SnippetDiscovery.SNIPPETS.discover(corpus))), all);
+    }
+
+    @Test
+    void testShard_parse() {
+        assertEquals(new SnippetDiscovery.Shard(2, 8), SnippetDiscovery.Shard.parse("2/8"));
+        assertThrows(IllegalArgumentException.class, () -> SnippetDiscovery.Shard.parse("0/8"));
+        assertThrows(IllegalArgumentException.class, () -> SnippetDiscovery.Shard.parse("9/8"));
+        assertThrows(IllegalArgumentException.class, () -> SnippetDiscovery.Shard.parse("2"));
+        assertThrows(IllegalArgumentException.class, () -> SnippetDiscovery.Shard.parse("a/b"));
+    }
+
+    @Test
+    void testExtractNumber_tooManyDigits() {
+        assertEquals(Integer.MAX_VALUE, Preprocess.extractNumber("2147483647.jsnp"));
+        assertThrows(NumberFormatException.class, () -> Preprocess.extractNumber("2147483648.jsnp"));
+    }
+}
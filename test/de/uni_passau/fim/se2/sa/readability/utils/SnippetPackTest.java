@@ -0,0 +1,91 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnippetPackTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeSnippets(int count) throws IOException {
+        Path sourceDir = Files.createDirectories(tempDir.resolve("snippets"));
+        Files.createDirectories(sourceDir.resolve("nested"));
+        for (int i = count; i >= 1; i--) {
+            Path dir = i % 3 == 0 ? sourceDir.resolve("nested") : sourceDir;
+            Files.writeString(dir.resolve(i + ".jsnp"), code(i), StandardCharsets.UTF_8);
+        }
+        return sourceDir;
+    }
+
+    private static String code(int i) {
+        return "// snippet " + i + " äöü €\nint f() { return " + "1 + ".repeat(i) + "0; }\n";
+    }
+
+    @Test
+    void testRoundTripInSnippetOrder() throws IOException {
+        Path pack = tempDir.resolve("corpus.pack");
+        assertEquals(25, SnippetPack.write(writeSnippets(25), pack));
+
+        try (SnippetPack snippets = SnippetPack.open(pack)) {
+            List<SnippetPack.Entry> entries = snippets.getEntries();
+            assertEquals(25, entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertEquals((i + 1) + ".jsnp", entries.get(i).name());
+                assertEquals(code(i + 1), snippets.read(entries.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void testSnippetsAcrossChunkBoundaries() throws IOException {
+        Path pack = tempDir.resolve("corpus.pack");
+        SnippetPack.write(writeSnippets(40), pack);
+
+        try (SnippetPack snippets = SnippetPack.open(pack, 64)) {
+            for (SnippetPack.Entry entry : snippets.getEntries()) {
+                String expected = code(Preprocess.extractNumber(entry.name()));
+                assertEquals(expected, snippets.read(entry));
+
+                ByteBuffer slice = snippets.slice(entry);
+                assertTrue(slice.isReadOnly());
+                byte[] bytes = new byte[slice.remaining()];
+                slice.get(bytes);
+                assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyDirectory() throws IOException {
+        Path pack = tempDir.resolve("empty.pack");
+        assertEquals(0, SnippetPack.write(Files.createDirectories(tempDir.resolve("empty")), pack));
+        try (SnippetPack snippets = SnippetPack.open(pack)) {
+            assertTrue(snippets.getEntries().isEmpty());
+        }
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path text = Files.writeString(tempDir.resolve("1.jsnp"), "int f() { return 1; }");
+        assertFalse(SnippetPack.isPack(text));
+        assertThrows(IOException.class, () -> SnippetPack.open(text));
+
+        Path pack = tempDir.resolve("corpus.pack");
+        SnippetPack.write(writeSnippets(5), pack);
+        assertTrue(SnippetPack.isPack(pack));
+        byte[] bytes = Files.readAllBytes(pack);
+        Path truncated = Files.write(tempDir.resolve("truncated.pack"), Arrays.copyOf(bytes, bytes.length - 20));
+        assertThrows(IOException.class, () -> SnippetPack.open(truncated));
+    }
+}
@@ -0,0 +1,125 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StagedPipelineTest {
+
+    @Test
+    void testResultsKeepSourceOrder() {
+        List<Integer> source = IntStream.range(0, 200).boxed().toList();
+        List<Integer> results = new ArrayList<>();
+        try (StagedPipeline<Integer, Integer, Integer> pipeline = new StagedPipeline<>(i -> {
+            sleepQuietly((200 - i) % 3);
+            return i;
+        }, (i, read) -> read * 2, 4, 2)) {
+            pipeline.inOrder(source.iterator(), 16).forEachRemaining(results::add);
+        }
+        assertEquals(source.stream().map(i -> i * 2).toList(), results);
+    }
+
+    @Test
+    void testReadsRunOnVirtualThreadsAndComputationsOnWorkers() {
+        try (StagedPipeline<Integer, Boolean, List<Boolean>> pipeline = new StagedPipeline<>(
+                i -> Thread.currentThread().isVirtual(),
+                (i, readVirtual) -> List.of(readVirtual, Thread.currentThread().isVirtual()), 2, 1)) {
+            Iterator<List<Boolean>> results = pipeline.inOrder(List.of(1, 2, 3).iterator(), 3);
+            while (results.hasNext()) {
+                assertEquals(List.of(true, false), results.next());
+            }
+        }
+    }
+
+    @Test
+    void testWindowBoundsElementsInFlight() {
+        AtomicInteger pulled = new AtomicInteger();
+        Iterator<Integer> source = IntStream.range(0, 100).peek(i -> pulled.incrementAndGet()).iterator();
+        try (StagedPipeline<Integer, Integer, Integer> pipeline = new StagedPipeline<>(i -> i, (i, read) -> read, 2, 1)) {
+            Iterator<Integer> results = pipeline.inOrder(source, 5);
+            assertEquals(0, results.next());
+            assertTrue(pulled.get() <= 5);
+        }
+    }
+
+    @Test
+    void testQueueAppliesBackpressureToReaders() throws Exception {
+        RunStatistics statistics = RunStatistics.start();
+        try (StagedPipeline<Integer, Integer, Integer> pipeline = new StagedPipeline<>(i -> i, (i, read) -> {
+            sleepQuietly(2);
+            return read;
+        }, 1, 2)) {
+            List<Integer> results = new ArrayList<>();
+            pipeline.inOrder(IntStream.range(0, 40).boxed().iterator(), 20).forEachRemaining(results::add);
+            assertEquals(IntStream.range(0, 40).boxed().toList(), results);
+        } finally {
+            statistics.stop();
+        }
+
+        assertTrue(statistics.getQueue(RunStatistics.COMPUTE_QUEUE).getMax() <= 2);
+        assertTrue(statistics.getQueue(RunStatistics.READ_QUEUE).getMax() <= 20);
+        assertEquals(40, statistics.getStage(RunStatistics.READ_STALL).getCount());
+        assertTrue(statistics.getStage(RunStatistics.READ_STALL).getMax() > 0);
+        assertEquals(40, statistics.getStage(RunStatistics.COMPUTE_STALL).getCount());
+
+        StringWriter json = new StringWriter();
+        statistics.writeReport(json);
+        assertTrue(json.toString().contains("\"compute\": {\"samples\": 40"), json.toString());
+    }
+
+    @Test
+    void testSubmittedResultsCanBeTakenInOrderLater() {
+        try (StagedPipeline<Integer, Integer, Integer> pipeline = new StagedPipeline<>(i -> i, (i, read) -> -read, 2, 4)) {
+            ConcurrentHashMap<Integer, Future<Integer>> submitted = new ConcurrentHashMap<>();
+            submitted.put(3, pipeline.submit(3));
+            submitted.put(1, pipeline.submit(1));
+
+            List<Integer> results = new ArrayList<>();
+            pipeline.inOrder(List.of(0, 1, 2, 3).iterator(), 2, i -> {
+                Future<Integer> result = submitted.remove(i);
+                return result == null ? pipeline.submit(i) : result;
+            }).forEachRemaining(results::add);
+
+            assertEquals(List.of(0, -1, -2, -3), results);
+            assertTrue(submitted.isEmpty());
+        }
+    }
+
+    @Test
+    void testReadAndComputeExceptionsAreRethrown() {
+        try (StagedPipeline<Integer, Integer, Integer> pipeline = new StagedPipeline<>(i -> {
+            if (i == 1) {
+                throw new IllegalStateException("read");
+            }
+            return i;
+        }, (i, read) -> {
+            if (read == 2) {
+                throw new IllegalArgumentException("compute");
+            }
+            return read;
+        }, 2, 2)) {
+            Iterator<Integer> results = pipeline.inOrder(List.of(0, 1, 2).iterator(), 3);
+            assertEquals(0, results.next());
+            assertEquals("read", assertThrows(IllegalStateException.class, results::next).getMessage());
+            assertEquals("compute", assertThrows(IllegalArgumentException.class, results::next).getMessage());
+            assertFalse(results.hasNext());
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
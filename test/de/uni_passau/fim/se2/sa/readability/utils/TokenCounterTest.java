@@ -0,0 +1,60 @@
+package de.uni_passau.fim.se2.sa.readability.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenCounterTest {
+
+    @Test
+    void testCountsMatchHashMap() {
+        TokenCounter counter = new TokenCounter();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            String key = "t" + random.nextInt(1_000);
+            counter.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        assertEquals(expected, counter.toMap());
+        assertEquals(expected.size(), counter.size());
+        assertEquals(20_000, counter.total());
+        assertEquals(20_000, Arrays.stream(counter.counts()).sum());
+        assertEquals(expected.get("t7"), counter.get("t7"));
+        assertEquals(0, counter.get("absent"));
+    }
+
+    @Test
+    void testClearKeepsCounterUsable() {
+        TokenCounter counter = new TokenCounter();
+        for (int i = 0; i < 100; i++) {
+            counter.increment(String.valueOf(i));
+        }
+        counter.clear();
+        assertEquals(0, counter.size());
+        assertEquals(0, counter.total());
+        assertEquals(0, counter.get("1"));
+
+        counter.increment("x");
+        counter.increment("x");
+        assertEquals(Map.of("x", 2), counter.toMap());
+    }
+
+    @Test
+    void testCollidingHashCodes() {
+        TokenCounter counter = new TokenCounter();
+        // "Aa" and "BB" share the same hash code
+        counter.increment("Aa");
+        counter.increment("BB");
+        counter.increment("Aa");
+        assertEquals(2, counter.get("Aa"));
+        assertEquals(1, counter.get("BB"));
+        assertEquals(2, counter.size());
+    }
+}